@@ -20,11 +20,12 @@ import com.qwazr.extractor.ParserField;
 import com.qwazr.extractor.ParserInterface;
 import com.qwazr.extractor.ParserResult;
 import com.qwazr.extractor.ParserUtils;
-import com.qwazr.utils.AutoCloseWrapper;
+import com.qwazr.library.extractor.FieldProjection;
+import com.qwazr.library.extractor.Spool;
+import com.qwazr.library.extractor.SpoolStrategy;
 import com.qwazr.utils.LoggerUtils;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -103,7 +104,7 @@ final public class AudioParser implements ParserFactory, ParserInterface {
             FIELDMAP.put(fieldKey, ParserField.newString(fieldKey.name().toLowerCase(), null));
     }
 
-    private final static List<ParserField> PARAMETERS = List.of(FORMAT);
+    private final static List<ParserField> PARAMETERS = List.of(FORMAT, FieldProjection.PARAMETER);
 
     @Override
     public String getName() {
@@ -136,7 +137,8 @@ final public class AudioParser implements ParserFactory, ParserInterface {
     }
 
     private ParserResult extract(final Path filePath,
-                                 final MediaType mediaType) throws IOException {
+                                 final MediaType mediaType,
+                                 final FieldProjection projection) throws IOException {
         final ParserResult.Builder resultBuilder = ParserResult.of(NAME);
         try {
             final AudioFile f = AudioFileIO.read(filePath.toFile());
@@ -149,6 +151,8 @@ final public class AudioParser implements ParserFactory, ParserInterface {
             if (tag.getFieldCount() == 0)
                 return resultBuilder.build();
             for (Map.Entry<FieldKey, ParserField> entry : FIELDMAP.entrySet()) {
+                if (!projection.has(entry.getValue()))
+                    continue;
                 final List<TagField> tagFields = tag.getFields(entry.getKey());
                 if (tagFields == null)
                     continue;
@@ -170,7 +174,8 @@ final public class AudioParser implements ParserFactory, ParserInterface {
     @Override
     public ParserResult extract(final MultivaluedMap<String, String> parameters,
                                 final Path filePath) throws IOException {
-        return extract(filePath, EXTENSIONMAP.get(ParserUtils.getExtension(filePath)));
+        return extract(filePath, EXTENSIONMAP.get(ParserUtils.getExtension(filePath)),
+                FieldProjection.of(parameters));
     }
 
     @Override
@@ -182,10 +187,9 @@ final public class AudioParser implements ParserFactory, ParserInterface {
             format = MIMEMAP.get(mimeType);
         if (StringUtils.isEmpty(format))
             throw new NotSupportedException("The format is not found");
-        try (final AutoCloseWrapper<Path> a = AutoCloseWrapper.of(
-                ParserUtils.createTempFile(inputStream, '.' + format), LOGGER,
-                Files::deleteIfExists)) {
-            return extract(a.get(), mimeType);
+        // JAudioTagger only reads files, they are written to the (RAM-backed) spool directory
+        try (final Spool spool = SpoolStrategy.DEFAULT.spool(inputStream, '.' + format)) {
+            return extract(spool.toPath(), mimeType, FieldProjection.of(parameters));
         }
     }
 
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.library.benchmark;
+
+import com.qwazr.extractor.ParserFactory;
+import com.qwazr.library.audio.AudioParser;
+import com.qwazr.library.email.EmlParser;
+import com.qwazr.library.html.HtmlParser;
+import com.qwazr.library.markdown.MarkdownParser;
+import com.qwazr.library.odf.OdfParser;
+import com.qwazr.library.pdfbox.PdfBoxParser;
+import com.qwazr.library.poi.DocParser;
+import com.qwazr.library.poi.DocxParser;
+import com.qwazr.library.poi.MapiMsgParser;
+import com.qwazr.library.poi.PptParser;
+import com.qwazr.library.poi.PptxParser;
+import com.qwazr.library.poi.PublisherParser;
+import com.qwazr.library.poi.VisioParser;
+import com.qwazr.library.poi.XlsParser;
+import com.qwazr.library.poi.XlsxParser;
+import com.qwazr.library.rss.RssParser;
+import java.io.FileNotFoundException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.function.Supplier;
+import javax.ws.rs.core.MediaType;
+
+/**
+ * One entry per shipped parser: the factory, the file extension, the media type and the corpus generator.
+ * <p>
+ * Apache POI cannot write DOC, VSD, PUB and MSG files.
+ * For those formats the corpus is read from the directory given by the system property
+ * {@value #CORPUS_DIRECTORY_PROPERTY}, which must contain the files small.ext, medium.ext and large.ext.
+ */
+public enum CorpusFormat {
+
+    html(HtmlParser::new, "html", "text/html", CorpusGenerator::html),
+
+    pdf(PdfBoxParser::new, "pdf", "application/pdf", CorpusGenerator::pdf),
+
+    doc(DocParser::new, "doc", "application/msword", null),
+
+    docx(DocxParser::new, "docx",
+            "application/vnd.openxmlformats-officedocument.wordprocessingml.document", CorpusGenerator::docx),
+
+    xls(XlsParser::new, "xls", "application/vnd.ms-excel", CorpusGenerator::xls),
+
+    xlsx(XlsxParser::new, "xlsx",
+            "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", CorpusGenerator::xlsx),
+
+    ppt(PptParser::new, "ppt", "application/vnd.ms-powerpoint", CorpusGenerator::ppt),
+
+    pptx(PptxParser::new, "pptx",
+            "application/vnd.openxmlformats-officedocument.presentationml.presentation", CorpusGenerator::pptx),
+
+    vsd(VisioParser::new, "vsd", "application/vnd.visio", null),
+
+    pub(PublisherParser::new, "pub", "application/x-mspublisher", null),
+
+    msg(MapiMsgParser::new, "msg", "application/vnd.ms-outlook", null),
+
+    odt(OdfParser::new, "odt", "application/vnd.oasis.opendocument.text", CorpusGenerator::odt),
+
+    eml(EmlParser::new, "eml", "message/rfc822", CorpusGenerator::eml),
+
+    rss(RssParser::new, "rss", "application/rss+xml", CorpusGenerator::rss),
+
+    markdown(MarkdownParser::new, "md", "text/markdown", CorpusGenerator::markdown),
+
+    audio(AudioParser::new, "wav", "audio/wav", CorpusGenerator::wav);
+
+    public final static String CORPUS_DIRECTORY_PROPERTY = "qwazr.benchmark.corpus";
+
+    private final Supplier<ParserFactory> factorySupplier;
+
+    public final String extension;
+
+    public final MediaType mediaType;
+
+    private final CorpusGenerator.Generator generator;
+
+    CorpusFormat(final Supplier<ParserFactory> factorySupplier,
+                 final String extension,
+                 final String mediaType,
+                 final CorpusGenerator.Generator generator) {
+        this.factorySupplier = factorySupplier;
+        this.extension = extension;
+        this.mediaType = MediaType.valueOf(mediaType);
+        this.generator = generator;
+    }
+
+    public ParserFactory newFactory() {
+        return factorySupplier.get();
+    }
+
+    /**
+     * Create (or locate) the corpus file for the given size.
+     *
+     * @param size      the size of the corpus
+     * @param directory the directory where generated files are written
+     * @return the path of the corpus file
+     * @throws Exception if the file cannot be generated
+     */
+    public Path getCorpus(final CorpusSize size, final Path directory) throws Exception {
+        final String fileName = size.name().toLowerCase(Locale.ROOT) + '.' + extension;
+        if (generator != null) {
+            final Path file = directory.resolve(fileName);
+            generator.generate(size, file);
+            return file;
+        }
+        final String corpusDirectory = System.getProperty(CORPUS_DIRECTORY_PROPERTY);
+        if (corpusDirectory == null)
+            throw new FileNotFoundException(
+                    "The format " + name() + " cannot be generated. Set -D" + CORPUS_DIRECTORY_PROPERTY +
+                            " to a directory containing " + fileName);
+        final Path file = Paths.get(corpusDirectory, fileName);
+        if (!Files.exists(file))
+            throw new FileNotFoundException("Corpus file not found: " + file.toAbsolutePath());
+        return file;
+    }
+
+}
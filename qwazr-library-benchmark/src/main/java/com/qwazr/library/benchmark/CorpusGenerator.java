@@ -0,0 +1,276 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.library.benchmark;
+
+import java.awt.Rectangle;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.Properties;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.poi.hslf.usermodel.HSLFSlide;
+import org.apache.poi.hslf.usermodel.HSLFSlideShow;
+import org.apache.poi.hslf.usermodel.HSLFTextBox;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xslf.usermodel.XMLSlideShow;
+import org.apache.poi.xslf.usermodel.XSLFSlide;
+import org.apache.poi.xslf.usermodel.XSLFTextBox;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.odftoolkit.simple.TextDocument;
+
+/**
+ * Generate the benchmark corpus files.
+ * Every generator writes roughly {@link CorpusSize#units} paragraphs (or rows, lines, entries).
+ */
+class CorpusGenerator {
+
+    private final static long SEED = 1234567890L;
+
+    private final static int LINES_PER_PAGE = 50;
+
+    private final static int PARAGRAPHS_PER_SLIDE = 5;
+
+    private final static int ROWS_PER_SHEET = 10_000;
+
+    @FunctionalInterface
+    interface Generator {
+        void generate(CorpusSize size, Path file) throws Exception;
+    }
+
+    static void html(final CorpusSize size, final Path file) throws IOException {
+        final CorpusText text = new CorpusText(SEED);
+        try (final Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.append("<!DOCTYPE html>\n<html><head><title>").append(text.sentence()).append("</title>\n");
+            writer.append("<meta name=\"description\" content=\"").append(text.sentence()).append("\">\n");
+            writer.append("<meta name=\"keywords\" content=\"").append(text.sentence(5)).append("\">\n");
+            writer.append("</head><body>\n");
+            for (int i = 0; i < size.units; i++) {
+                if (i % 10 == 0)
+                    writer.append("<h").append(Integer.toString(1 + (i / 10) % 6)).append('>')
+                            .append(text.sentence(4))
+                            .append("</h").append(Integer.toString(1 + (i / 10) % 6)).append(">\n");
+                writer.append("<div><p>").append(text.paragraph());
+                writer.append(" <a href=\"/page/").append(Integer.toString(i)).append("\">")
+                        .append(text.word()).append("</a>");
+                writer.append("</p>");
+                if (i % 20 == 0)
+                    writer.append("<img src=\"/img/").append(Integer.toString(i)).append(".png\" alt=\"")
+                            .append(text.sentence(3)).append("\">");
+                writer.append("</div>\n");
+            }
+            writer.append("</body></html>\n");
+        }
+    }
+
+    static void markdown(final CorpusSize size, final Path file) throws IOException {
+        final CorpusText text = new CorpusText(SEED);
+        try (final Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < size.units; i++) {
+                if (i % 10 == 0)
+                    writer.append("#".repeat(1 + (i / 10) % 6)).append(' ').append(text.sentence(4)).append("\n\n");
+                writer.append(text.paragraph());
+                writer.append(" [").append(text.word()).append("](http://www.example.com/").append(Integer.toString(i))
+                        .append(")\n\n");
+            }
+        }
+    }
+
+    static void rss(final CorpusSize size, final Path file) throws IOException {
+        final CorpusText text = new CorpusText(SEED);
+        try (final Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<rss version=\"2.0\"><channel>\n");
+            writer.append("<title>").append(text.sentence()).append("</title>\n");
+            writer.append("<link>http://www.example.com/</link>\n");
+            writer.append("<description>").append(text.paragraph()).append("</description>\n");
+            for (int i = 0; i < size.units; i++) {
+                writer.append("<item><title>").append(text.sentence()).append("</title>");
+                writer.append("<link>http://www.example.com/").append(Integer.toString(i)).append("</link>");
+                writer.append("<description>").append(text.paragraph()).append("</description>");
+                writer.append("<category>").append(text.word()).append("</category>");
+                writer.append("<pubDate>Mon, 06 Sep 2021 16:45:00 GMT</pubDate></item>\n");
+            }
+            writer.append("</channel></rss>\n");
+        }
+    }
+
+    static void eml(final CorpusSize size, final Path file) throws IOException, MessagingException {
+        final CorpusText text = new CorpusText(SEED);
+        final MimeMessage message = new MimeMessage(Session.getInstance(new Properties()));
+        message.setFrom(new InternetAddress("sender@example.com"));
+        message.setRecipients(Message.RecipientType.TO, "recipient@example.com");
+        message.setRecipients(Message.RecipientType.CC, "copy@example.com");
+        message.setSubject(text.sentence());
+        message.setSentDate(new Date(0));
+        final StringBuilder body = new StringBuilder();
+        for (int i = 0; i < size.units; i++)
+            body.append(text.paragraph()).append("\n\n");
+        message.setText(body.toString(), StandardCharsets.UTF_8.name());
+        try (final OutputStream output = Files.newOutputStream(file)) {
+            message.writeTo(output);
+        }
+    }
+
+    static void pdf(final CorpusSize size, final Path file) throws IOException {
+        final CorpusText text = new CorpusText(SEED);
+        try (final PDDocument pdf = new PDDocument()) {
+            pdf.getDocumentInformation().setTitle(text.sentence());
+            pdf.getDocumentInformation().setAuthor(text.sentence(2));
+            int line = 0;
+            while (line < size.units) {
+                final PDPage page = new PDPage(PDRectangle.A4);
+                pdf.addPage(page);
+                try (final PDPageContentStream content = new PDPageContentStream(pdf, page)) {
+                    content.beginText();
+                    content.setFont(PDType1Font.HELVETICA, 10);
+                    content.setLeading(14);
+                    content.newLineAtOffset(40, 800);
+                    for (int i = 0; i < LINES_PER_PAGE && line < size.units; i++, line++) {
+                        content.showText(text.sentence());
+                        content.newLine();
+                    }
+                    content.endText();
+                }
+            }
+            pdf.save(file.toFile());
+        }
+    }
+
+    static void docx(final CorpusSize size, final Path file) throws IOException {
+        final CorpusText text = new CorpusText(SEED);
+        try (final XWPFDocument document = new XWPFDocument()) {
+            document.getProperties().getCoreProperties().setTitle(text.sentence());
+            document.getProperties().getCoreProperties().setCreator(text.sentence(2));
+            for (int i = 0; i < size.units; i++)
+                document.createParagraph().createRun().setText(text.paragraph());
+            try (final OutputStream output = Files.newOutputStream(file)) {
+                document.write(output);
+            }
+        }
+    }
+
+    private static void fillWorkbook(final Workbook workbook, final CorpusSize size, final Path file)
+            throws IOException {
+        final CorpusText text = new CorpusText(SEED);
+        Sheet sheet = null;
+        for (int i = 0; i < size.units; i++) {
+            if (i % ROWS_PER_SHEET == 0)
+                sheet = workbook.createSheet("sheet" + (i / ROWS_PER_SHEET));
+            final Row row = sheet.createRow(i % ROWS_PER_SHEET);
+            row.createCell(0).setCellValue(i);
+            row.createCell(1).setCellValue(text.word());
+            row.createCell(2).setCellValue(text.sentence());
+            row.createCell(3).setCellValue(i * 1.5d);
+        }
+        try (final OutputStream output = Files.newOutputStream(file)) {
+            workbook.write(output);
+        }
+    }
+
+    static void xlsx(final CorpusSize size, final Path file) throws IOException {
+        try (final XSSFWorkbook workbook = new XSSFWorkbook()) {
+            fillWorkbook(workbook, size, file);
+        }
+    }
+
+    static void xls(final CorpusSize size, final Path file) throws IOException {
+        try (final HSSFWorkbook workbook = new HSSFWorkbook()) {
+            fillWorkbook(workbook, size, file);
+        }
+    }
+
+    static void pptx(final CorpusSize size, final Path file) throws IOException {
+        final CorpusText text = new CorpusText(SEED);
+        try (final XMLSlideShow slideShow = new XMLSlideShow()) {
+            for (int i = 0; i < size.units; i += PARAGRAPHS_PER_SLIDE) {
+                final XSLFSlide slide = slideShow.createSlide();
+                final XSLFTextBox textBox = slide.createTextBox();
+                textBox.setAnchor(new Rectangle(40, 40, 640, 460));
+                textBox.setText(text.sentence());
+                for (int j = 0; j < PARAGRAPHS_PER_SLIDE; j++)
+                    textBox.addNewTextParagraph().addNewTextRun().setText(text.paragraph());
+            }
+            try (final OutputStream output = Files.newOutputStream(file)) {
+                slideShow.write(output);
+            }
+        }
+    }
+
+    static void ppt(final CorpusSize size, final Path file) throws IOException {
+        final CorpusText text = new CorpusText(SEED);
+        try (final HSLFSlideShow slideShow = new HSLFSlideShow()) {
+            for (int i = 0; i < size.units; i += PARAGRAPHS_PER_SLIDE) {
+                final HSLFSlide slide = slideShow.createSlide();
+                final HSLFTextBox textBox = slide.createTextBox();
+                textBox.setAnchor(new Rectangle(40, 40, 640, 460));
+                final StringBuilder sb = new StringBuilder(text.sentence());
+                for (int j = 0; j < PARAGRAPHS_PER_SLIDE; j++)
+                    sb.append('\r').append(text.paragraph());
+                textBox.setText(sb.toString());
+            }
+            try (final OutputStream output = Files.newOutputStream(file)) {
+                slideShow.write(output);
+            }
+        }
+    }
+
+    static void odt(final CorpusSize size, final Path file) throws Exception {
+        final CorpusText text = new CorpusText(SEED);
+        final TextDocument document = TextDocument.newTextDocument();
+        try {
+            document.getOfficeMetadata().setTitle(text.sentence());
+            for (int i = 0; i < size.units; i++)
+                document.addParagraph(text.paragraph());
+            document.save(file.toFile());
+        } finally {
+            document.close();
+        }
+    }
+
+    /**
+     * Write a mono 8kHz PCM WAV file. One unit is a tenth of a second.
+     */
+    static void wav(final CorpusSize size, final Path file) throws IOException {
+        final AudioFormat format = new AudioFormat(8000f, 16, 1, true, false);
+        final int frames = size.units * 800;
+        final byte[] pcm = new byte[frames * format.getFrameSize()];
+        try (final AudioInputStream input = new AudioInputStream(new ByteArrayInputStream(pcm), format, frames)) {
+            AudioSystem.write(input, AudioFileFormat.Type.WAVE, file.toFile());
+        }
+    }
+
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.library.benchmark;
+
+/**
+ * The size of a generated corpus file.
+ * The number of units is the number of paragraphs (or rows, lines, entries) written by the generator.
+ */
+public enum CorpusSize {
+
+    SMALL(20),
+
+    MEDIUM(2_000),
+
+    LARGE(50_000);
+
+    public final int units;
+
+    CorpusSize(final int units) {
+        this.units = units;
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.library.benchmark;
+
+import java.util.Random;
+
+/**
+ * Deterministic pseudo-text generator.
+ * The same seed always produces the same corpus, so the runs are comparable across library upgrades.
+ */
+class CorpusText {
+
+    private final static String[] WORDS = {"lorem", "ipsum", "dolor", "sit", "amet", "consectetur", "adipiscing",
+            "elit", "sed", "do", "eiusmod", "tempor", "incididunt", "ut", "labore", "et", "dolore", "magna", "aliqua",
+            "search", "engine", "crawler", "index", "document", "parser", "extractor", "content", "language", "page",
+            "the", "quick", "brown", "fox", "jumps", "over", "lazy", "dog", "qwazr", "benchmark", "throughput"};
+
+    private final Random random;
+
+    CorpusText(final long seed) {
+        random = new Random(seed);
+    }
+
+    String word() {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+
+    String sentence(final int words) {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0)
+                sb.append(' ');
+            sb.append(word());
+        }
+        return sb.toString();
+    }
+
+    String sentence() {
+        return sentence(6 + random.nextInt(10));
+    }
+
+    String paragraph() {
+        final StringBuilder sb = new StringBuilder();
+        final int sentences = 2 + random.nextInt(4);
+        for (int i = 0; i < sentences; i++) {
+            if (i > 0)
+                sb.append(' ');
+            final String sentence = sentence();
+            sb.append(Character.toUpperCase(sentence.charAt(0))).append(sentence, 1, sentence.length()).append('.');
+        }
+        return sb.toString();
+    }
+
+}
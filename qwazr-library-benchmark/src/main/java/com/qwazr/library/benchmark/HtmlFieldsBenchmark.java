@@ -0,0 +1,103 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.library.benchmark;
+
+import com.qwazr.extractor.ParserResult;
+import com.qwazr.library.html.HtmlParser;
+import com.qwazr.utils.FileUtils;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+
+/**
+ * Compare the default field extraction of the HtmlParser (one traversal of the DOM)
+ * with the previous implementation (one walk per field).
+ * Both benchmarks parse the page and extract the title, the headers, the anchors, the images, the metas
+ * and the content.
+ * <pre>
+ * java -jar target/benchmarks.jar HtmlFieldsBenchmark -p size=LARGE
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class HtmlFieldsBenchmark {
+
+    @Param
+    public CorpusSize size;
+
+    private Path directory;
+
+    private byte[] corpusBytes;
+
+    private HtmlParser parser;
+
+    private final MultivaluedMap<String, String> parameters = new MultivaluedHashMap<>();
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        directory = Files.createTempDirectory("qwazr-benchmark");
+        corpusBytes = Files.readAllBytes(CorpusFormat.html.getCorpus(size, directory));
+        parser = new HtmlParser();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (directory != null)
+            FileUtils.deleteDirectory(directory.toFile());
+    }
+
+    @Benchmark
+    public ParserResult visitor() throws IOException {
+        try (final InputStream input = new ByteArrayInputStream(corpusBytes)) {
+            return parser.extract(parameters, input, CorpusFormat.html.mediaType);
+        }
+    }
+
+    @Benchmark
+    public ParserResult legacy() throws Exception {
+        final Document htmlDocument = HtmlParser.parseDocument(new InputSource(
+                new InputStreamReader(new ByteArrayInputStream(corpusBytes), StandardCharsets.UTF_8)));
+        final ParserResult.Builder builder = ParserResult.of("html");
+        LegacyHtmlFields.extract(htmlDocument, builder.newDocument());
+        return builder.build();
+    }
+}
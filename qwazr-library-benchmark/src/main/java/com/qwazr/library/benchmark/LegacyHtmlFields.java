@@ -0,0 +1,119 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.library.benchmark;
+
+import com.qwazr.extractor.ParserField;
+import com.qwazr.extractor.ParserInterface;
+import com.qwazr.extractor.ParserResult;
+import com.qwazr.utils.DomUtils;
+import com.qwazr.utils.HtmlUtils;
+import com.qwazr.utils.StringUtils;
+import com.qwazr.utils.XPathParser;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.xml.xpath.XPathExpressionException;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * The default field extraction of the HtmlParser before the single-pass visitor: one walk of the DOM per field.
+ * Kept as the baseline of {@link HtmlFieldsBenchmark}.
+ */
+class LegacyHtmlFields {
+
+    private final static ParserField H1 = ParserField.newString("h1", null);
+    private final static ParserField H2 = ParserField.newString("h2", null);
+    private final static ParserField H3 = ParserField.newString("h3", null);
+    private final static ParserField H4 = ParserField.newString("h4", null);
+    private final static ParserField H5 = ParserField.newString("h5", null);
+    private final static ParserField H6 = ParserField.newString("h6", null);
+    private final static ParserField ANCHORS = ParserField.newString("anchors", null);
+    private final static ParserField IMAGES = ParserField.newMap("images", null);
+    private final static ParserField METAS = ParserField.newMap("metas", null);
+
+    static void extract(final Document htmlDocument, final ParserResult.FieldsBuilder document)
+            throws XPathExpressionException {
+        final XPathParser xpath = new XPathParser();
+        extractTitle(xpath, htmlDocument, document);
+        extractHeaders(htmlDocument, document);
+        extractAnchors(xpath, htmlDocument, document);
+        extractImgTags(htmlDocument, document);
+        HtmlUtils.domTextExtractor(htmlDocument, line -> document.add(ParserInterface.CONTENT, line));
+        extractMeta(htmlDocument, document);
+    }
+
+    private static void extractTitle(final XPathParser xpath, final Document documentElement,
+                                     final ParserResult.FieldsBuilder document) throws XPathExpressionException {
+        final String title = xpath.evaluateString(documentElement, "/html/head/title//text()");
+        if (title != null)
+            document.set(ParserInterface.TITLE, title);
+    }
+
+    private static void extractHeaders(final Document documentElement, final ParserResult.FieldsBuilder document) {
+        addToField(document, H1, documentElement.getElementsByTagName("h1"));
+        addToField(document, H2, documentElement.getElementsByTagName("h2"));
+        addToField(document, H3, documentElement.getElementsByTagName("h3"));
+        addToField(document, H4, documentElement.getElementsByTagName("h4"));
+        addToField(document, H5, documentElement.getElementsByTagName("h5"));
+        addToField(document, H6, documentElement.getElementsByTagName("h6"));
+    }
+
+    private static void extractAnchors(final XPathParser xpath, final Document documentElement,
+                                       final ParserResult.FieldsBuilder document) throws XPathExpressionException {
+        DomUtils.forEach(xpath.evaluateNodes(documentElement, "//a/@href"),
+                node -> document.add(ANCHORS, DomUtils.getAttributeString(node, "href")));
+    }
+
+    private static void extractImgTags(final Document documentElement, final ParserResult.FieldsBuilder document) {
+        DomUtils.forEach(documentElement.getElementsByTagName("img"), node -> {
+            final Map<String, String> map = new LinkedHashMap<>();
+            addToMap(map, "src", DomUtils.getAttributeString(node, "src"));
+            addToMap(map, "alt", DomUtils.getAttributeString(node, "alt"));
+            if (!map.isEmpty())
+                document.add(IMAGES, map);
+        });
+    }
+
+    private static void extractMeta(final Document documentElement, final ParserResult.FieldsBuilder document) {
+        NodeList nodeList = documentElement.getElementsByTagName("head");
+        if (nodeList == null || nodeList.getLength() == 0)
+            return;
+        final Node head = nodeList.item(0);
+        if (head.getNodeType() != Node.ELEMENT_NODE)
+            return;
+        final Map<String, String> map = new LinkedHashMap<>();
+        DomUtils.forEach((((Element) head).getElementsByTagName("meta")), meta -> {
+            final String name = DomUtils.getAttributeString(meta, "name");
+            final String content = DomUtils.getAttributeString(meta, "content");
+            if (!StringUtils.isEmpty(name) && !StringUtils.isEmpty(content))
+                map.put(name, content);
+        });
+        if (!map.isEmpty())
+            document.add(METAS, map);
+    }
+
+    private static void addToMap(final Map<String, String> map, final String name, final String value) {
+        if (!StringUtils.isEmpty(value))
+            map.put(name, value);
+    }
+
+    private static void addToField(final ParserResult.FieldsBuilder document, final ParserField parserField,
+                                   final NodeList elements) {
+        DomUtils.forEach(elements, node -> document.add(parserField, node.getTextContent()));
+    }
+}
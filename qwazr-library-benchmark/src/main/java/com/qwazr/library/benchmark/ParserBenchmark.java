@@ -0,0 +1,100 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.library.benchmark;
+
+import com.qwazr.extractor.ParserInterface;
+import com.qwazr.extractor.ParserResult;
+import com.qwazr.utils.FileUtils;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measure both entry points of every shipped parser over the generated corpora.
+ * <p>
+ * The throughput mode gives the operations per second,
+ * the sample mode gives the latency distribution (p50, p90, p99...).
+ * The allocation rate is collected by the GC profiler (see {@link BenchmarkRunner}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class ParserBenchmark {
+
+    @Param
+    public CorpusFormat format;
+
+    @Param
+    public CorpusSize size;
+
+    private Path directory;
+
+    private Path corpusFile;
+
+    private byte[] corpusBytes;
+
+    private ParserInterface parser;
+
+    private final MultivaluedMap<String, String> parameters = new MultivaluedHashMap<>();
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        directory = Files.createTempDirectory("qwazr-benchmark");
+        corpusFile = format.getCorpus(size, directory);
+        corpusBytes = Files.readAllBytes(corpusFile);
+        parser = format.newFactory().createParser();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (directory != null)
+            FileUtils.deleteDirectory(directory.toFile());
+    }
+
+    @Benchmark
+    public ParserResult extractPath() throws IOException {
+        return parser.extract(parameters, corpusFile);
+    }
+
+    @Benchmark
+    public ParserResult extractStream() throws IOException {
+        try (final InputStream input = new ByteArrayInputStream(corpusBytes)) {
+            return parser.extract(parameters, input, format.mediaType);
+        }
+    }
+
+}
@@ -20,6 +20,7 @@ import com.qwazr.extractor.ParserField;
 import com.qwazr.extractor.ParserInterface;
 import com.qwazr.extractor.ParserResult;
 import com.qwazr.extractor.ParserUtils;
+import com.qwazr.library.extractor.FieldProjection;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Path;
@@ -89,6 +90,17 @@ public class EmlParser implements ParserFactory, ParserInterface {
             LANG_DETECTION
     );
 
+    private final static List<ParserField> BODY_FIELDS = List.of(
+            ATTACHMENT_NAME,
+            ATTACHMENT_TYPE,
+            ATTACHMENT_CONTENT,
+            PLAIN_CONTENT,
+            HTML_CONTENT,
+            LANG_DETECTION
+    );
+
+    private final static List<ParserField> PARAMETERS = List.of(FieldProjection.PARAMETER);
+
     @Override
     public String getName() {
         return NAME;
@@ -104,6 +116,11 @@ public class EmlParser implements ParserFactory, ParserInterface {
         return FIELDS;
     }
 
+    @Override
+    public Collection<ParserField> getParameters() {
+        return PARAMETERS;
+    }
+
     @Override
     public Collection<String> getSupportedFileExtensions() {
         return DEFAULT_EXTENSIONS;
@@ -126,6 +143,7 @@ public class EmlParser implements ParserFactory, ParserInterface {
                                 final InputStream inputStream,
                                 final MediaType mimeType) throws IOException {
         final ParserResult.Builder resultBuilder = ParserResult.of(NAME);
+        final FieldProjection projection = FieldProjection.of(parameters);
         try {
 
             final Session session = Session.getDefaultInstance(JAVAMAIL_PROPS);
@@ -134,7 +152,7 @@ public class EmlParser implements ParserFactory, ParserInterface {
                 resultBuilder.metas().set(MIME_TYPE, mimeType.toString());
 
             final MimeMessage mimeMessage = new MimeMessage(session, inputStream);
-            final MimeMessageParser mimeMessageParser = new MimeMessageParser(mimeMessage).parse();
+            final MimeMessageParser mimeMessageParser = new MimeMessageParser(mimeMessage);
 
             ParserResult.FieldsBuilder document = resultBuilder.newDocument();
             final String from = mimeMessageParser.getFrom();
@@ -147,11 +165,17 @@ public class EmlParser implements ParserFactory, ParserInterface {
             for (Address address : mimeMessageParser.getBcc())
                 document.add(RECIPIENT_BCC, address.toString());
             document.add(SUBJECT, mimeMessageParser.getSubject());
-            document.add(HTML_CONTENT, mimeMessageParser.getHtmlContent());
-            document.add(PLAIN_CONTENT, mimeMessageParser.getPlainContent());
             document.add(SENT_DATE, mimeMessage.getSentDate());
             document.add(RECEIVED_DATE, mimeMessage.getReceivedDate());
 
+            // The headers are enough, the MIME parts are not parsed
+            if (!projection.hasAny(BODY_FIELDS))
+                return resultBuilder.build();
+
+            mimeMessageParser.parse();
+            document.add(HTML_CONTENT, mimeMessageParser.getHtmlContent());
+            document.add(PLAIN_CONTENT, mimeMessageParser.getPlainContent());
+
             for (DataSource dataSource : mimeMessageParser.getAttachmentList()) {
                 document.add(ATTACHMENT_NAME, dataSource.getName());
                 document.add(ATTACHMENT_TYPE, dataSource.getContentType());
@@ -172,10 +196,12 @@ public class EmlParser implements ParserFactory, ParserInterface {
                 // }
                 // }
             }
-            if (StringUtils.isEmpty(mimeMessageParser.getHtmlContent()))
-                document.add(LANG_DETECTION, ParserUtils.languageDetection(document, PLAIN_CONTENT, 10000));
-            else
-                document.add(LANG_DETECTION, ParserUtils.languageDetection(document, HTML_CONTENT, 10000));
+            if (projection.has(LANG_DETECTION)) {
+                if (StringUtils.isEmpty(mimeMessageParser.getHtmlContent()))
+                    document.add(LANG_DETECTION, ParserUtils.languageDetection(document, PLAIN_CONTENT, 10000));
+                else
+                    document.add(LANG_DETECTION, ParserUtils.languageDetection(document, HTML_CONTENT, 10000));
+            }
         } catch (IOException e) {
             throw e;
         } catch (Exception e) {
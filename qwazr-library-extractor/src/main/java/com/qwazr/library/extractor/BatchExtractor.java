@@ -0,0 +1,333 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.library.extractor;
+
+import com.qwazr.extractor.ParserFactory;
+import com.qwazr.extractor.ParserInterface;
+import com.qwazr.extractor.ParserResult;
+import com.qwazr.utils.LoggerUtils;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import javax.ws.rs.NotSupportedException;
+import javax.ws.rs.core.MediaType;
+
+/**
+ * Extracts a batch of files or streams in parallel.
+ * <pre>
+ * final BatchExtractor extractor = BatchExtractor.of(BatchExtractor.newVirtualThreadExecutor())
+ *         .parser(new HtmlParser())
+ *         .parser(new OcrParser(), 2)
+ *         .parser(new WpdParser(), 1)
+ *         .build();
+ * extractor.extract(inputs).forEach(result -&gt; ...);
+ * </pre>
+ * Each parser has its own concurrency limit: the pending inputs of a busy parser wait in its own queue, without
+ * holding a thread of the executor. Expensive parsers (OCR, external commands) cannot starve the cheap ones.
+ * The results are returned in completion order.
+ * <p>
+ * The parsers are wrapped by a {@link MeteredParser} if the metrics are enabled, either by the builder or by the
+ * system property com.qwazr.library.extractor.metrics.
+ */
+public class BatchExtractor {
+
+    private final static Logger LOGGER = LoggerUtils.getLogger(BatchExtractor.class);
+
+    private final ExecutorService executor;
+    private final Map<String, Lane> lanesByExtension;
+    private final Map<String, Lane> lanesByMimeType;
+
+    private BatchExtractor(final Builder builder) {
+        this.executor = builder.executor;
+        this.lanesByExtension = new HashMap<>();
+        this.lanesByMimeType = new HashMap<>();
+        for (final Map.Entry<ParserFactory, Integer> entry : builder.factories.entrySet()) {
+            final int maxConcurrency = entry.getValue() == 0 ? builder.defaultConcurrency : entry.getValue();
+            final ParserFactory factory = builder.metered && !(entry.getKey() instanceof MeteredParser) ?
+                    MeteredParser.of(entry.getKey()) :
+                    entry.getKey();
+            final Lane lane = new Lane(executor, factory, maxConcurrency);
+            for (final String extension : lane.factory.getSupportedFileExtensions())
+                lanesByExtension.putIfAbsent(extension.toLowerCase(), lane);
+            for (final MediaType mediaType : lane.factory.getSupportedMimeTypes())
+                lanesByMimeType.putIfAbsent(toKey(mediaType), lane);
+        }
+    }
+
+    public static Builder of(final ExecutorService executor) {
+        return new Builder(executor);
+    }
+
+    /**
+     * Virtual threads are available starting with Java 21. On an older runtime a cached thread pool is returned.
+     *
+     * @return an executor starting a new virtual thread for each task
+     */
+    public static ExecutorService newVirtualThreadExecutor() {
+        try {
+            final Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            LOGGER.log(Level.FINE, "Virtual threads are not available, using platform threads", e);
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    private static String toKey(final MediaType mediaType) {
+        return (mediaType.getType() + '/' + mediaType.getSubtype()).toLowerCase();
+    }
+
+    private Lane findLane(final BatchInput input) {
+        if (input.mediaType != null) {
+            final Lane lane = lanesByMimeType.get(toKey(input.mediaType));
+            if (lane != null)
+                return lane;
+        }
+        final String extension = input.getExtension();
+        return extension == null ? null : lanesByExtension.get(extension.toLowerCase());
+    }
+
+    /**
+     * Submit the extraction of every input.
+     *
+     * @param inputs the inputs to extract
+     * @return the results, in completion order
+     */
+    public Stream<BatchResult> extract(final Collection<BatchInput> inputs) {
+        final Results results = new Results(inputs.size());
+        for (final BatchInput input : inputs) {
+            final Lane lane = findLane(input);
+            if (lane == null)
+                results.add(new BatchResult(input, null, null,
+                        new NotSupportedException("No parser found for " + input.getName()), 0));
+            else
+                lane.submit(new Task(lane, input, results));
+        }
+        return StreamSupport.stream(Spliterators.spliterator(results, inputs.size(),
+                Spliterator.SIZED | Spliterator.NONNULL), false);
+    }
+
+    public static class Builder {
+
+        private final ExecutorService executor;
+        private final Map<ParserFactory, Integer> factories;
+        private int defaultConcurrency;
+        private boolean metered;
+
+        private Builder(final ExecutorService executor) {
+            this.executor = Objects.requireNonNull(executor, "The executor is missing");
+            this.factories = new LinkedHashMap<>();
+            this.defaultConcurrency = Runtime.getRuntime().availableProcessors();
+            this.metered = MeteredParser.ENABLED;
+        }
+
+        /**
+         * @param metered true to record the {@link ParserMetrics} of every parser.
+         *                The default value is given by the system property com.qwazr.library.extractor.metrics.
+         * @return this builder
+         */
+        public Builder metered(final boolean metered) {
+            this.metered = metered;
+            return this;
+        }
+
+        /**
+         * @param concurrency the concurrency limit of the parsers registered without explicit limit.
+         *                    The default value is the number of available processors.
+         * @return this builder
+         */
+        public Builder defaultConcurrency(final int concurrency) {
+            if (concurrency < 1)
+                throw new IllegalArgumentException("The concurrency should be at least 1: " + concurrency);
+            this.defaultConcurrency = concurrency;
+            return this;
+        }
+
+        public Builder parser(final ParserFactory factory) {
+            return parser(factory, 0);
+        }
+
+        /**
+         * @param factory        the parser factory
+         * @param maxConcurrency the maximum number of concurrent extractions for this parser,
+         *                       0 for the default concurrency
+         * @return this builder
+         */
+        public Builder parser(final ParserFactory factory, final int maxConcurrency) {
+            if (maxConcurrency < 0)
+                throw new IllegalArgumentException("The concurrency should be positive: " + maxConcurrency);
+            factories.put(factory, maxConcurrency);
+            return this;
+        }
+
+        public BatchExtractor build() {
+            return new BatchExtractor(this);
+        }
+    }
+
+    /**
+     * The queue of the inputs waiting for a given parser
+     */
+    private static class Lane {
+
+        private final ExecutorService executor;
+        private final ParserFactory factory;
+        private final Queue<Task> pending;
+        private final AtomicInteger running;
+        private final int maxConcurrency;
+
+        private Lane(final ExecutorService executor, final ParserFactory factory, final int maxConcurrency) {
+            this.executor = executor;
+            this.factory = factory;
+            this.pending = new ConcurrentLinkedQueue<>();
+            this.running = new AtomicInteger();
+            this.maxConcurrency = maxConcurrency;
+        }
+
+        private void submit(final Task task) {
+            pending.add(task);
+            drain();
+        }
+
+        /**
+         * Start the pending tasks while the concurrency limit is not reached
+         */
+        private void drain() {
+            for (; ; ) {
+                final int current = running.get();
+                if (current >= maxConcurrency || pending.isEmpty())
+                    return;
+                if (!running.compareAndSet(current, current + 1))
+                    continue;
+                final Task task = pending.poll();
+                if (task == null) {
+                    running.decrementAndGet();
+                    continue;
+                }
+                try {
+                    executor.execute(() -> {
+                        try {
+                            task.run();
+                        } finally {
+                            running.decrementAndGet();
+                            drain();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    running.decrementAndGet();
+                    task.fail(e);
+                }
+            }
+        }
+    }
+
+    private static class Task {
+
+        private final Lane lane;
+        private final BatchInput input;
+        private final Results results;
+
+        private Task(final Lane lane, final BatchInput input, final Results results) {
+            this.lane = lane;
+            this.input = input;
+            this.results = results;
+        }
+
+        private void run() {
+            final long start = System.nanoTime();
+            try {
+                final ParserInterface parser = lane.factory.createParser();
+                final ParserResult result;
+                if (input.path != null)
+                    result = parser.extract(input.parameters, input.path);
+                else {
+                    try (final InputStream inputStream = input.streamSupplier.open()) {
+                        result = parser.extract(input.parameters, inputStream, input.mediaType);
+                    }
+                }
+                results.add(new BatchResult(input, lane.factory.getName(), result, null, elapsedMs(start)));
+            } catch (Exception | Error e) {
+                results.add(new BatchResult(input, lane.factory.getName(), null, e, elapsedMs(start)));
+            }
+        }
+
+        private void fail(final Throwable error) {
+            results.add(new BatchResult(input, lane.factory.getName(), null, error, 0));
+        }
+
+        private static long elapsedMs(final long start) {
+            return (System.nanoTime() - start) / 1_000_000;
+        }
+    }
+
+    /**
+     * The results in completion order
+     */
+    private static class Results implements Iterator<BatchResult> {
+
+        private final BlockingQueue<BatchResult> queue;
+        private int remaining;
+
+        private Results(final int count) {
+            this.queue = new LinkedBlockingQueue<>();
+            this.remaining = count;
+        }
+
+        private void add(final BatchResult result) {
+            queue.add(result);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        public BatchResult next() {
+            if (remaining == 0)
+                throw new NoSuchElementException();
+            try {
+                final BatchResult result = queue.take();
+                remaining--;
+                return result;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Interrupted while waiting for the next result");
+            }
+        }
+    }
+}
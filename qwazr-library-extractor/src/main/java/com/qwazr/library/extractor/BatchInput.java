@@ -0,0 +1,84 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.library.extractor;
+
+import com.qwazr.extractor.ParserUtils;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+
+/**
+ * An item of a batch extraction: a file, or a stream which is only opened when its extraction starts.
+ */
+public class BatchInput {
+
+    @FunctionalInterface
+    public interface StreamSupplier {
+        InputStream open() throws IOException;
+    }
+
+    final String name;
+    final Path path;
+    final StreamSupplier streamSupplier;
+    final MediaType mediaType;
+    final MultivaluedMap<String, String> parameters;
+
+    private BatchInput(final String name,
+                       final Path path,
+                       final StreamSupplier streamSupplier,
+                       final MediaType mediaType,
+                       final MultivaluedMap<String, String> parameters) {
+        this.name = name;
+        this.path = path;
+        this.streamSupplier = streamSupplier;
+        this.mediaType = mediaType;
+        this.parameters = parameters;
+    }
+
+    /**
+     * @param path       the file to extract, the parser is selected using the extension
+     * @param parameters the parameters of the extraction, may be null
+     * @return a new batch input
+     */
+    public static BatchInput of(final Path path, final MultivaluedMap<String, String> parameters) {
+        return new BatchInput(path.toString(), path, null, null, parameters);
+    }
+
+    /**
+     * @param name           the name identifying the input in the results
+     * @param streamSupplier opens the stream to extract, the stream is closed after the extraction
+     * @param mediaType      the media type of the stream, used to select the parser
+     * @param parameters     the parameters of the extraction, may be null
+     * @return a new batch input
+     */
+    public static BatchInput of(final String name,
+                                final StreamSupplier streamSupplier,
+                                final MediaType mediaType,
+                                final MultivaluedMap<String, String> parameters) {
+        return new BatchInput(name, null, streamSupplier, mediaType, parameters);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    String getExtension() {
+        return path == null ? null : ParserUtils.getExtension(path);
+    }
+
+}
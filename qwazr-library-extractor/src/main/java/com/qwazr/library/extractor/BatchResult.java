@@ -0,0 +1,79 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.library.extractor;
+
+import com.qwazr.extractor.ParserResult;
+
+/**
+ * The outcome of the extraction of one {@link BatchInput}: either a result or an error.
+ */
+public class BatchResult {
+
+    private final BatchInput input;
+    private final String parserName;
+    private final ParserResult result;
+    private final Throwable error;
+    private final long timeMs;
+
+    BatchResult(final BatchInput input,
+                final String parserName,
+                final ParserResult result,
+                final Throwable error,
+                final long timeMs) {
+        this.input = input;
+        this.parserName = parserName;
+        this.result = result;
+        this.error = error;
+        this.timeMs = timeMs;
+    }
+
+    public BatchInput getInput() {
+        return input;
+    }
+
+    /**
+     * @return the name of the selected parser, or null if no parser supports the input
+     */
+    public String getParserName() {
+        return parserName;
+    }
+
+    /**
+     * @return the result, or null if the extraction failed
+     */
+    public ParserResult getResult() {
+        return result;
+    }
+
+    /**
+     * @return the error, or null if the extraction succeeded
+     */
+    public Throwable getError() {
+        return error;
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    /**
+     * @return the duration of the extraction, excluding the time spent waiting for a slot
+     */
+    public long getTimeMs() {
+        return timeMs;
+    }
+
+}
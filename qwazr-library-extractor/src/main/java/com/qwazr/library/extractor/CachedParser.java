@@ -0,0 +1,121 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.library.extractor;
+
+import com.qwazr.extractor.ParserFactory;
+import com.qwazr.extractor.ParserField;
+import com.qwazr.extractor.ParserInterface;
+import com.qwazr.extractor.ParserResult;
+import com.qwazr.extractor.ParserUtils;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Collection;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+
+/**
+ * A parser decorator which returns the cached result when the same bytes are parsed again
+ * with the same parameters.
+ * <pre>
+ * final ParserResultCache cache = new ParserResultCache(1000, Paths.get("/var/cache/extractor"), 10L &lt;&lt; 30);
+ * final ParserFactory factory = CachedParser.of(new PdfBoxParser(), cache);
+ * </pre>
+ * An input stream is spooled (in memory below the {@link SpoolStrategy} threshold) while its digest is computed,
+ * the parser only reads it back on a cache miss.
+ */
+public class CachedParser implements ParserFactory, ParserInterface {
+
+    private final ParserFactory factory;
+    private final ParserInterface parser;
+    private final ParserResultCache cache;
+
+    private CachedParser(final ParserFactory factory, final ParserInterface parser, final ParserResultCache cache) {
+        this.factory = factory;
+        this.parser = parser;
+        this.cache = cache;
+    }
+
+    public static CachedParser of(final ParserFactory factory, final ParserResultCache cache) {
+        return new CachedParser(factory, factory.createParser(), cache);
+    }
+
+    @Override
+    public String getName() {
+        return factory.getName();
+    }
+
+    @Override
+    public ParserInterface createParser() {
+        return new CachedParser(factory, factory.createParser(), cache);
+    }
+
+    @Override
+    public Collection<ParserField> getParameters() {
+        return factory.getParameters();
+    }
+
+    @Override
+    public Collection<ParserField> getFields() {
+        return factory.getFields();
+    }
+
+    @Override
+    public Collection<String> getSupportedFileExtensions() {
+        return factory.getSupportedFileExtensions();
+    }
+
+    @Override
+    public Collection<MediaType> getSupportedMimeTypes() {
+        return factory.getSupportedMimeTypes();
+    }
+
+    @Override
+    public ParserResult extract(final MultivaluedMap<String, String> parameters,
+                                final InputStream inputStream,
+                                final MediaType mimeType) throws IOException {
+        final MessageDigest digest = ParserResultCache.newDigest(factory.getName(),
+                mimeType == null ? null : mimeType.getType() + '/' + mimeType.getSubtype(), parameters);
+        try (final Spool spool = ParserResultCache.spoolAndDigest(inputStream, digest, SpoolStrategy.DEFAULT)) {
+            final String key = ParserResultCache.toKey(digest);
+            final ParserResult cached = cache.get(key);
+            if (cached != null)
+                return cached;
+            final ParserResult result;
+            try (final InputStream input = spool.getInputStream()) {
+                result = parser.extract(parameters, input, mimeType);
+            }
+            cache.put(key, result);
+            return result;
+        }
+    }
+
+    @Override
+    public ParserResult extract(final MultivaluedMap<String, String> parameters,
+                                final Path filePath) throws IOException {
+        // Some parsers pick the media type from the extension, the extension is part of the key
+        final String key = ParserResultCache.digest(filePath,
+                ParserResultCache.newDigest(factory.getName(), ParserUtils.getExtension(filePath), parameters));
+        final ParserResult cached = cache.get(key);
+        if (cached != null)
+            return cached;
+        final ParserResult result = parser.extract(parameters, filePath);
+        cache.put(key, result);
+        return result;
+    }
+
+}
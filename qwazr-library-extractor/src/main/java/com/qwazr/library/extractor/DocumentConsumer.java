@@ -0,0 +1,36 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.library.extractor;
+
+import com.qwazr.extractor.ParserResult;
+import java.io.IOException;
+
+/**
+ * Receives the documents of a streaming extraction as soon as they are complete.
+ * <p>
+ * Each document is delivered as a {@link ParserResult} holding this single document, and is not retained by the
+ * parser once this method returns. The parser waits for the consumer: a slow consumer slows down the extraction.
+ */
+@FunctionalInterface
+public interface DocumentConsumer {
+
+    /**
+     * @param document a result holding one document
+     * @throws IOException if the document cannot be consumed, the extraction is aborted
+     */
+    void accept(ParserResult document) throws IOException;
+
+}
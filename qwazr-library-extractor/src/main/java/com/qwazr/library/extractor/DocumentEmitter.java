@@ -0,0 +1,107 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.library.extractor;
+
+import com.qwazr.extractor.ParserResult;
+import java.io.IOException;
+
+/**
+ * Creates the documents of a parser, either in the result being built, or pushed one by one to a
+ * {@link DocumentConsumer}.
+ * A parser writes its documents the same way in both cases:
+ * <pre>
+ * final ParserResult.FieldsBuilder document = emitter.newDocument();
+ * document.add(CONTENT, text);
+ * emitter.complete();
+ * </pre>
+ * The documents must be written one after the other.
+ */
+public abstract class DocumentEmitter {
+
+    /**
+     * @return a new document
+     */
+    public abstract ParserResult.FieldsBuilder newDocument();
+
+    /**
+     * Notify that the last document returned by {@link #newDocument()} is complete.
+     *
+     * @throws IOException if the consumer failed
+     */
+    public abstract void complete() throws IOException;
+
+    /**
+     * @param builder the result receiving the documents
+     * @return an emitter adding the documents to the result
+     */
+    public static DocumentEmitter of(final ParserResult.Builder builder) {
+        return new Collecting(builder);
+    }
+
+    /**
+     * @param parserName the name of the parser
+     * @param consumer   the consumer receiving the documents
+     * @return an emitter pushing each document to the consumer
+     */
+    public static DocumentEmitter of(final String parserName, final DocumentConsumer consumer) {
+        return new Streaming(parserName, consumer);
+    }
+
+    private static class Collecting extends DocumentEmitter {
+
+        private final ParserResult.Builder builder;
+
+        private Collecting(final ParserResult.Builder builder) {
+            this.builder = builder;
+        }
+
+        @Override
+        public ParserResult.FieldsBuilder newDocument() {
+            return builder.newDocument();
+        }
+
+        @Override
+        public void complete() {
+        }
+    }
+
+    private static class Streaming extends DocumentEmitter {
+
+        private final String parserName;
+        private final DocumentConsumer consumer;
+        private ParserResult.Builder current;
+
+        private Streaming(final String parserName, final DocumentConsumer consumer) {
+            this.parserName = parserName;
+            this.consumer = consumer;
+        }
+
+        @Override
+        public ParserResult.FieldsBuilder newDocument() {
+            current = ParserResult.of(parserName);
+            return current.newDocument();
+        }
+
+        @Override
+        public void complete() throws IOException {
+            if (current == null)
+                return;
+            final ParserResult document = current.build();
+            current = null;
+            consumer.accept(document);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.library.extractor;
+
+import com.qwazr.extractor.ParserResult;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Runs a streaming extraction on an executor and gives its documents to the calling thread.
+ * <p>
+ * The documents go through a bounded queue: when the queue is full, the extraction waits until the consumer takes
+ * the next document. At most {@code capacity} documents are resident on the heap.
+ * <pre>
+ * try (final DocumentStream documents = DocumentStream.of(executor, 16,
+ *         consumer -&gt; parser.extract(parameters, path, consumer))) {
+ *     documents.stream().forEach(indexer::index);
+ *     final ParserResult metas = documents.getMetas();
+ * }
+ * </pre>
+ * Closing the stream before the end cancels the extraction.
+ */
+public class DocumentStream implements Iterator<ParserResult>, Closeable {
+
+    /**
+     * The extraction to run, typically a call to
+     * {@link StreamingParser#extract(javax.ws.rs.core.MultivaluedMap, java.nio.file.Path, DocumentConsumer)}
+     */
+    @FunctionalInterface
+    public interface Producer {
+        ParserResult extract(DocumentConsumer consumer) throws IOException;
+    }
+
+    private final static Object END = new Object();
+
+    private final BlockingQueue<Object> queue;
+    private final Future<ParserResult> future;
+    private volatile boolean closed;
+    private Object next;
+    private boolean ended;
+
+    private DocumentStream(final ExecutorService executor, final int capacity, final Producer producer) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.future = executor.submit(() -> {
+            try {
+                return producer.extract(this::put);
+            } finally {
+                end();
+            }
+        });
+    }
+
+    /**
+     * @param executor the executor running the extraction
+     * @param capacity the maximum number of documents waiting for the consumer
+     * @param producer the extraction
+     * @return a new stream, the extraction is already submitted
+     */
+    public static DocumentStream of(final ExecutorService executor, final int capacity, final Producer producer) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("The capacity should be at least 1: " + capacity);
+        return new DocumentStream(executor, capacity, producer);
+    }
+
+    private void put(final ParserResult document) throws IOException {
+        if (closed)
+            throw new InterruptedIOException("The document stream is closed");
+        try {
+            queue.put(document);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("The document stream has been interrupted");
+        }
+    }
+
+    private void end() {
+        try {
+            while (!closed)
+                if (queue.offer(END, 100, TimeUnit.MILLISECONDS))
+                    return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next != null)
+            return true;
+        if (ended || closed)
+            return false;
+        try {
+            next = queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for the next document");
+        }
+        if (next != END)
+            return true;
+        next = null;
+        ended = true;
+        getMetas();
+        return false;
+    }
+
+    @Override
+    public ParserResult next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        final ParserResult document = (ParserResult) next;
+        next = null;
+        return document;
+    }
+
+    /**
+     * Wait for the end of the extraction.
+     *
+     * @return the result holding the metadata
+     */
+    public ParserResult getMetas() {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for the extraction");
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw new UncheckedIOException((IOException) cause);
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new RuntimeException(cause);
+        }
+    }
+
+    /**
+     * @return a sequential stream of the documents, closing it closes this document stream
+     */
+    public Stream<ParserResult> stream() {
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(this::close);
+    }
+
+    @Override
+    public void close() {
+        if (closed)
+            return;
+        closed = true;
+        if (!future.isDone())
+            future.cancel(true);
+        queue.clear();
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.library.extractor;
+
+import com.qwazr.extractor.ParserField;
+import com.qwazr.extractor.ParserResult;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.core.MultivaluedMap;
+
+/**
+ * The time and size budget of one extraction.
+ * <p>
+ * The budget is given by the "timeout_ms" and "max_characters" parameters. The deadline starts when the budget is
+ * created, at the beginning of the extraction. An interrupted thread also exhausts the budget.
+ * The parsers check the budget between two pages, rows, paragraphs or text nodes and stop the extraction:
+ * the result is partial and the "truncated" meta gives the reason.
+ * <pre>
+ * final ExtractionBudget budget = ExtractionBudget.of(parameters);
+ * for (final Page page : pages) {
+ *     if (budget.isExhausted())
+ *         break;
+ *     budget.addCharacters(text.length());
+ * }
+ * budget.markTruncated(metas);
+ * </pre>
+ * A budget can be shared by the threads working on the same document.
+ */
+public class ExtractionBudget {
+
+    public final static ParserField TIMEOUT_MS = ParserField.newInteger("timeout_ms",
+            "The maximum duration of the extraction in milliseconds. The result may be partial.");
+
+    public final static ParserField MAX_CHARACTERS = ParserField.newInteger("max_characters",
+            "The maximum number of extracted characters. The result may be partial.");
+
+    public final static ParserField TRUNCATED = ParserField.newString("truncated",
+            "Set if the extraction has been stopped: timeout, max_characters or interrupted");
+
+    public final static Collection<ParserField> PARAMETERS = List.of(TIMEOUT_MS, MAX_CHARACTERS);
+
+    public final static String TIMEOUT = "timeout";
+
+    public final static String INTERRUPTED = "interrupted";
+
+    private final long deadlineNanos;
+    private final long maxCharacters;
+    private final AtomicLong characters;
+    private volatile String reason;
+
+    private ExtractionBudget(final long timeoutMs, final long maxCharacters) {
+        this.deadlineNanos = timeoutMs <= 0 ? 0 : System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        this.maxCharacters = maxCharacters;
+        this.characters = new AtomicLong();
+    }
+
+    /**
+     * @param timeoutMs     the maximum duration in milliseconds, 0 for no limit
+     * @param maxCharacters the maximum number of characters, 0 for no limit
+     * @return a new budget starting now
+     */
+    public static ExtractionBudget of(final long timeoutMs, final long maxCharacters) {
+        return new ExtractionBudget(timeoutMs, maxCharacters);
+    }
+
+    /**
+     * @param parameters the parameters of the extraction
+     * @return a new budget starting now
+     */
+    public static ExtractionBudget of(final MultivaluedMap<String, String> parameters) {
+        return new ExtractionBudget(getLong(parameters, TIMEOUT_MS), getLong(parameters, MAX_CHARACTERS));
+    }
+
+    private static long getLong(final MultivaluedMap<String, String> parameters, final ParserField field) {
+        final String value = parameters == null ? null : parameters.getFirst(field.name);
+        if (value == null || value.isEmpty())
+            return 0;
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("The parameter " + field.name + " is not a number: " + value, e);
+        }
+    }
+
+    /**
+     * @return true if a timeout or a maximum number of characters is set
+     */
+    public boolean isLimited() {
+        return deadlineNanos != 0 || maxCharacters > 0;
+    }
+
+    /**
+     * @return the remaining time in milliseconds, or Long.MAX_VALUE if there is no deadline
+     */
+    public long getRemainingMs() {
+        if (deadlineNanos == 0)
+            return Long.MAX_VALUE;
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime()));
+    }
+
+    /**
+     * @return the number of characters which can still be extracted, or Long.MAX_VALUE if there is no limit
+     */
+    public long getRemainingCharacters() {
+        if (maxCharacters <= 0)
+            return Long.MAX_VALUE;
+        return Math.max(0, maxCharacters - characters.get());
+    }
+
+    /**
+     * Count the extracted characters.
+     *
+     * @param count the number of characters
+     */
+    public void addCharacters(final long count) {
+        characters.addAndGet(count);
+    }
+
+    /**
+     * @return true if the extraction should stop
+     */
+    public boolean isExhausted() {
+        if (reason != null)
+            return true;
+        if (maxCharacters > 0 && characters.get() >= maxCharacters)
+            reason = MAX_CHARACTERS.name;
+        else if (deadlineNanos != 0 && System.nanoTime() - deadlineNanos >= 0)
+            reason = TIMEOUT;
+        else if (Thread.currentThread().isInterrupted())
+            reason = INTERRUPTED;
+        return reason != null;
+    }
+
+    /**
+     * Stop the extraction explicitly, when the caller knows why it cannot go on (an interrupted wait, a killed
+     * process, ...). The first reason is kept.
+     *
+     * @param stopReason the reason recorded in the "truncated" meta (ie: {@link #TIMEOUT}, {@link #INTERRUPTED})
+     */
+    public void stop(final String stopReason) {
+        synchronized (this) {
+            if (reason == null)
+                reason = stopReason;
+        }
+    }
+
+    /**
+     * Stop the extraction from a callback which cannot return a status (a DOM walk, a SAX handler, ...).
+     * The caller catches the {@link Exhausted} exception and keeps the partial result.
+     *
+     * @throws Exhausted if the budget is exhausted
+     */
+    public void check() {
+        if (isExhausted())
+            throw new Exhausted(reason);
+    }
+
+    /**
+     * Record the reason in the metas if the extraction has been stopped.
+     *
+     * @param metas the metas of the result
+     */
+    public void markTruncated(final ParserResult.FieldsBuilder metas) {
+        if (reason != null)
+            metas.set(TRUNCATED, reason);
+    }
+
+    /**
+     * @return the reason why the extraction has been stopped, or null
+     */
+    public String getReason() {
+        return reason;
+    }
+
+    /**
+     * Thrown by {@link #check()}. The stack trace is not filled.
+     */
+    public static class Exhausted extends RuntimeException {
+
+        private Exhausted(final String reason) {
+            super("The extraction budget is exhausted: " + reason, null, false, false);
+        }
+    }
+}
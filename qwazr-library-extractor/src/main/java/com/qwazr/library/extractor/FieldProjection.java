@@ -0,0 +1,107 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.library.extractor;
+
+import com.qwazr.extractor.ParserField;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import javax.ws.rs.core.MultivaluedMap;
+
+/**
+ * The fields requested by the "fields" parameter.
+ * <p>
+ * The parameter accepts several values and/or comma separated field names:
+ * <pre>fields=title,creation_date&amp;fields=mime_type</pre>
+ * Without the parameter every field is extracted.
+ * Parsers use this projection to skip the work of the fields nobody asked for:
+ * a metadata-only request does not extract the text, a content-only request does not run the language detection.
+ */
+public class FieldProjection {
+
+    public final static ParserField PARAMETER = ParserField.newString("fields",
+            "Comma separated list of the fields to extract. By default, every field is extracted.");
+
+    public final static FieldProjection ALL = new FieldProjection(null);
+
+    private final Set<String> names;
+
+    private FieldProjection(final Set<String> names) {
+        this.names = names;
+    }
+
+    public static FieldProjection of(final MultivaluedMap<String, String> parameters) {
+        if (parameters == null)
+            return ALL;
+        final List<String> values = parameters.get(PARAMETER.name);
+        if (values == null || values.isEmpty())
+            return ALL;
+        final Set<String> names = new LinkedHashSet<>();
+        for (final String value : values) {
+            if (value == null)
+                continue;
+            for (final String name : value.split(",")) {
+                final String trimmed = name.trim();
+                if (!trimmed.isEmpty())
+                    names.add(trimmed);
+            }
+        }
+        return names.isEmpty() ? ALL : new FieldProjection(names);
+    }
+
+    /**
+     * @return true if every field is requested
+     */
+    public boolean isAll() {
+        return names == null;
+    }
+
+    /**
+     * @param field the field to check
+     * @return true if the field is requested
+     */
+    public boolean has(final ParserField field) {
+        return names == null || names.contains(field.name);
+    }
+
+    /**
+     * @param fields the fields to check
+     * @return true if at least one of the fields is requested
+     */
+    public boolean hasAny(final ParserField... fields) {
+        if (names == null)
+            return true;
+        for (final ParserField field : fields)
+            if (names.contains(field.name))
+                return true;
+        return false;
+    }
+
+    /**
+     * @param fields the fields to check
+     * @return true if at least one of the fields is requested
+     */
+    public boolean hasAny(final Collection<ParserField> fields) {
+        if (names == null)
+            return true;
+        for (final ParserField field : fields)
+            if (names.contains(field.name))
+                return true;
+        return false;
+    }
+
+}
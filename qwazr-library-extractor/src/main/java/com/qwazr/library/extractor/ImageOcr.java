@@ -0,0 +1,45 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.library.extractor;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ServiceLoader;
+
+/**
+ * An OCR engine recognizing the text of an image.
+ * The parsers use it as a fallback for the pages without text (ie: scanned PDF documents).
+ * The implementations are registered in META-INF/services/com.qwazr.library.extractor.ImageOcr.
+ */
+public interface ImageOcr {
+
+    /**
+     * @param image    the image to recognize
+     * @param language the language of the text if known, or null
+     * @return the recognized text
+     * @throws IOException if the recognition failed
+     */
+    String recognize(BufferedImage image, String language) throws IOException;
+
+    /**
+     * @return the first registered OCR engine, or null if there is none
+     */
+    static ImageOcr load() {
+        for (final ImageOcr imageOcr : ServiceLoader.load(ImageOcr.class))
+            return imageOcr;
+        return null;
+    }
+}
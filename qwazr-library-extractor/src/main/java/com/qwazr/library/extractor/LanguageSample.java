@@ -0,0 +1,92 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.library.extractor;
+
+import com.qwazr.extractor.ParserField;
+import com.qwazr.extractor.ParserInterface;
+import com.qwazr.extractor.ParserResult;
+import com.qwazr.extractor.ParserUtils;
+
+/**
+ * Collects a sample of the text of a document, spread across its parts (pages, sheets, ...),
+ * to run the language detection only once per document.
+ * <p>
+ * Each sampled part gives at least 200 characters. When the document has more parts than the sample can hold,
+ * only one part every "stride" parts is sampled, so that the whole document contributes, not only its beginning.
+ */
+public class LanguageSample {
+
+    public final static int DEFAULT_MAX_CHARACTERS = 10000;
+
+    private final static int MIN_CHARACTERS_PER_PART = 200;
+
+    private final int maxCharacters;
+    private final int stride;
+    private final int maxCharactersPerPart;
+    private final StringBuilder sample;
+    private int partIndex;
+
+    /**
+     * @param maxCharacters the size of the sample
+     * @param expectedParts the number of parts, used to share the sample between the parts
+     */
+    public LanguageSample(final int maxCharacters, final int expectedParts) {
+        this.maxCharacters = maxCharacters;
+        final int parts = Math.max(1, expectedParts);
+        final int maxSampledParts = Math.max(1, maxCharacters / MIN_CHARACTERS_PER_PART);
+        this.stride = (parts + maxSampledParts - 1) / maxSampledParts;
+        final int sampledParts = (parts + stride - 1) / stride;
+        this.maxCharactersPerPart = Math.max(MIN_CHARACTERS_PER_PART, maxCharacters / sampledParts);
+        this.sample = new StringBuilder();
+    }
+
+    /**
+     * Add the beginning of a part to the sample, if the part is sampled. The parts are given in order.
+     *
+     * @param text the text of the part
+     */
+    public void add(final String text) {
+        if (partIndex++ % stride != 0)
+            return;
+        if (text == null)
+            return;
+        final int length = Math.min(text.length(), Math.min(maxCharactersPerPart, maxCharacters - sample.length()));
+        if (length <= 0)
+            return;
+        sample.append(text, 0, length).append(' ');
+    }
+
+    /**
+     * @return the current sample
+     */
+    public String getSample() {
+        return sample.toString();
+    }
+
+    /**
+     * Run the language detection on the sample and add the result to the fields
+     *
+     * @param fields the fields of the result (usually the metas)
+     * @param field  the field receiving the language
+     */
+    public void detect(final ParserResult.FieldsBuilder fields, final ParserField field) {
+        if (sample.length() == 0)
+            return;
+        final ParserResult.FieldsBuilder document = ParserResult.of("sample").newDocument();
+        document.add(ParserInterface.CONTENT, sample.toString());
+        fields.add(field, ParserUtils.languageDetection(document, ParserInterface.CONTENT, maxCharacters));
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.library.extractor;
+
+import com.qwazr.extractor.ParserFactory;
+import com.qwazr.extractor.ParserField;
+import com.qwazr.extractor.ParserInterface;
+import com.qwazr.extractor.ParserResult;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import org.apache.commons.io.input.CountingInputStream;
+
+/**
+ * A parser decorator which records the {@link ParserMetrics} of the wrapped parser.
+ * <pre>
+ * final ParserFactory factory = MeteredParser.of(new PdfBoxParser());
+ * </pre>
+ * Every parser returned by {@link #createParser()} is metered under the name of the wrapped factory.
+ * The characters out are the length of the CONTENT values of the extracted documents.
+ * If the wrapped parser is a {@link StreamingParser}, the decorator is one too: the documents pushed to the consumer
+ * are counted.
+ * <p>
+ * The metering is opt-in, switched on by the system property com.qwazr.library.extractor.metrics:
+ * {@link #ofIfEnabled(ParserFactory)} wraps a factory only if it is set, and the {@link BatchExtractor} then meters
+ * every registered parser.
+ */
+public class MeteredParser implements ParserFactory, ParserInterface {
+
+    public final static boolean ENABLED = Boolean.getBoolean("com.qwazr.library.extractor.metrics");
+
+    private final ParserFactory factory;
+    private final ParserInterface parser;
+    private final ParserMetrics metrics;
+
+    private MeteredParser(final ParserFactory factory, final ParserInterface parser, final ParserMetrics metrics) {
+        this.factory = factory;
+        this.parser = parser;
+        this.metrics = metrics;
+    }
+
+    private static MeteredParser newParser(final ParserFactory factory,
+                                           final ParserInterface parser,
+                                           final ParserMetrics metrics) {
+        return parser instanceof StreamingParser ?
+                new Streaming(factory, parser, metrics) :
+                new MeteredParser(factory, parser, metrics);
+    }
+
+    public static MeteredParser of(final ParserFactory factory) {
+        return newParser(factory, factory.createParser(), ParserMetrics.of(factory.getName()));
+    }
+
+    /**
+     * @param factory the factory to wrap
+     * @return a metered factory if the metrics are enabled, the given factory otherwise
+     */
+    public static ParserFactory ofIfEnabled(final ParserFactory factory) {
+        return ENABLED && !(factory instanceof MeteredParser) ? of(factory) : factory;
+    }
+
+    public ParserMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public String getName() {
+        return factory.getName();
+    }
+
+    @Override
+    public ParserInterface createParser() {
+        return newParser(factory, factory.createParser(), metrics);
+    }
+
+    @Override
+    public Collection<ParserField> getParameters() {
+        return factory.getParameters();
+    }
+
+    @Override
+    public Collection<ParserField> getFields() {
+        return factory.getFields();
+    }
+
+    @Override
+    public Collection<String> getSupportedFileExtensions() {
+        return factory.getSupportedFileExtensions();
+    }
+
+    @Override
+    public Collection<MediaType> getSupportedMimeTypes() {
+        return factory.getSupportedMimeTypes();
+    }
+
+    @Override
+    public ParserResult extract(final MultivaluedMap<String, String> parameters,
+                                final InputStream inputStream,
+                                final MediaType mimeType) throws IOException {
+        final CountingInputStream countingStream = new CountingInputStream(inputStream);
+        return meter(countingStream::getByteCount, null,
+                () -> parser.extract(parameters, countingStream, mimeType));
+    }
+
+    @Override
+    public ParserResult extract(final MultivaluedMap<String, String> parameters,
+                                final Path filePath) throws IOException {
+        final long bytes = Files.size(filePath);
+        return meter(() -> bytes, null, () -> parser.extract(parameters, filePath));
+    }
+
+    @FunctionalInterface
+    private interface Extraction {
+
+        ParserResult extract() throws IOException;
+    }
+
+    /**
+     * @param bytes    the number of bytes read, called once the extraction is done
+     * @param consumer the consumer of a streaming extraction, counting the characters of the pushed documents
+     */
+    private ParserResult meter(final LongSupplier bytes,
+                               final CountingConsumer consumer,
+                               final Extraction extraction) throws IOException {
+        final long startAllocated = ParserMetrics.currentThreadAllocatedBytes();
+        final long startTime = System.nanoTime();
+        try {
+            final ParserResult result = extraction.extract();
+            final long characters = countCharacters(result) + (consumer == null ? 0 : consumer.characters);
+            metrics.recordSuccess(elapsedMs(startTime), bytes.getAsLong(), characters, allocated(startAllocated));
+            return result;
+        } catch (IOException | RuntimeException | Error e) {
+            metrics.recordFailure(elapsedMs(startTime), bytes.getAsLong(), allocated(startAllocated), e);
+            throw e;
+        }
+    }
+
+    private static long elapsedMs(final long startTime) {
+        return (System.nanoTime() - startTime) / 1_000_000;
+    }
+
+    private static long allocated(final long startAllocated) {
+        return startAllocated < 0 ? -1 : ParserMetrics.currentThreadAllocatedBytes() - startAllocated;
+    }
+
+    /**
+     * @return the number of characters of the CONTENT values of every document
+     */
+    private static long countCharacters(final ParserResult result) {
+        if (result == null || result.documents == null)
+            return 0;
+        long count = 0;
+        for (final Map<String, Object> document : result.documents)
+            if (document != null)
+                count += countCharacters(document.get(CONTENT.name));
+        return count;
+    }
+
+    private static long countCharacters(final Object value) {
+        if (value instanceof CharSequence)
+            return ((CharSequence) value).length();
+        if (!(value instanceof Collection))
+            return 0;
+        long count = 0;
+        for (final Object item : (Collection<?>) value)
+            count += countCharacters(item);
+        return count;
+    }
+
+    /**
+     * Counts the characters of the documents pushed by a streaming extraction
+     */
+    private static class CountingConsumer implements DocumentConsumer {
+
+        private final DocumentConsumer consumer;
+        private long characters;
+
+        private CountingConsumer(final DocumentConsumer consumer) {
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void accept(final ParserResult document) throws IOException {
+            characters += countCharacters(document);
+            consumer.accept(document);
+        }
+    }
+
+    /**
+     * The decorator of a {@link StreamingParser}
+     */
+    private static class Streaming extends MeteredParser implements StreamingParser {
+
+        private final StreamingParser streamingParser;
+
+        private Streaming(final ParserFactory factory, final ParserInterface parser, final ParserMetrics metrics) {
+            super(factory, parser, metrics);
+            this.streamingParser = (StreamingParser) parser;
+        }
+
+        @Override
+        public ParserResult extract(final MultivaluedMap<String, String> parameters,
+                                    final InputStream inputStream,
+                                    final MediaType mediaType,
+                                    final DocumentConsumer consumer) throws IOException {
+            final CountingInputStream countingStream = new CountingInputStream(inputStream);
+            final CountingConsumer countingConsumer = new CountingConsumer(consumer);
+            return super.meter(countingStream::getByteCount, countingConsumer,
+                    () -> streamingParser.extract(parameters, countingStream, mediaType, countingConsumer));
+        }
+
+        @Override
+        public ParserResult extract(final MultivaluedMap<String, String> parameters,
+                                    final Path filePath,
+                                    final DocumentConsumer consumer) throws IOException {
+            final long bytes = Files.size(filePath);
+            final CountingConsumer countingConsumer = new CountingConsumer(consumer);
+            return super.meter(() -> bytes, countingConsumer,
+                    () -> streamingParser.extract(parameters, filePath, countingConsumer));
+        }
+    }
+}
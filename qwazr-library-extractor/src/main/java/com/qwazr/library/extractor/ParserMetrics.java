@@ -0,0 +1,257 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.library.extractor;
+
+import com.qwazr.utils.LoggerUtils;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Per parser counters: calls, bytes in, characters out, wall time histogram,
+ * failures by exception type and allocated bytes of the extracting thread.
+ * <p>
+ * One instance exists per parser name. The instances are registered in the platform MBean server
+ * and can be pulled with {@link #getSnapshots()}.
+ */
+public class ParserMetrics implements ParserMetricsMXBean {
+
+    private final static Logger LOGGER = LoggerUtils.getLogger(ParserMetrics.class);
+
+    private final static String JMX_DOMAIN = "com.qwazr.library.extractor";
+
+    /**
+     * The upper bounds (inclusive, in milliseconds) of the wall time histogram buckets.
+     */
+    final static long[] TIME_BUCKETS_MS =
+            {1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000, 60000, Long.MAX_VALUE};
+
+    private final static ConcurrentHashMap<String, ParserMetrics> METRICS = new ConcurrentHashMap<>();
+
+    private final static ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+    private final static boolean ALLOCATION_SUPPORTED;
+
+    static {
+        boolean supported = false;
+        if (THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean) {
+            final com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) THREAD_MX_BEAN;
+            supported = bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled();
+        }
+        ALLOCATION_SUPPORTED = supported;
+    }
+
+    private final String parserName;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder charactersOut = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+    private final LongAdder totalTimeMs = new LongAdder();
+    private final LongAccumulator maxTimeMs = new LongAccumulator(Math::max, 0);
+    private final LongAdder[] timeHistogram;
+    private final ConcurrentHashMap<String, LongAdder> failuresByType = new ConcurrentHashMap<>();
+
+    private ParserMetrics(final String parserName) {
+        this.parserName = parserName;
+        timeHistogram = new LongAdder[TIME_BUCKETS_MS.length];
+        for (int i = 0; i < timeHistogram.length; i++)
+            timeHistogram[i] = new LongAdder();
+    }
+
+    /**
+     * Return the metrics of the given parser. The instance is created and registered in JMX on first use.
+     *
+     * @param parserName the name of the parser (html, pdfbox, xlsx, ocr...)
+     * @return the metrics instance
+     */
+    public static ParserMetrics of(final String parserName) {
+        return METRICS.computeIfAbsent(parserName, name -> {
+            final ParserMetrics metrics = new ParserMetrics(name);
+            registerMBean(metrics);
+            return metrics;
+        });
+    }
+
+    private static void registerMBean(final ParserMetrics metrics) {
+        try {
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName objectName =
+                    new ObjectName(JMX_DOMAIN + ":type=ParserMetrics,name=" + ObjectName.quote(metrics.parserName));
+            if (!server.isRegistered(objectName))
+                server.registerMBean(metrics, objectName);
+        } catch (JMException e) {
+            LOGGER.log(Level.WARNING, e, () -> "Cannot register the JMX bean for the parser " + metrics.parserName);
+        }
+    }
+
+    /**
+     * @return a point-in-time copy of the metrics of every parser, sorted by parser name
+     */
+    public static Map<String, Snapshot> getSnapshots() {
+        final Map<String, Snapshot> snapshots = new TreeMap<>();
+        METRICS.forEach((name, metrics) -> snapshots.put(name, metrics.getSnapshot()));
+        return snapshots;
+    }
+
+    /**
+     * @return the allocated bytes of the current thread, or -1 if the JVM does not support it
+     */
+    static long currentThreadAllocatedBytes() {
+        if (!ALLOCATION_SUPPORTED)
+            return -1;
+        return ((com.sun.management.ThreadMXBean) THREAD_MX_BEAN).getThreadAllocatedBytes(
+                Thread.currentThread().getId());
+    }
+
+    void recordSuccess(final long elapsedMs, final long bytes, final long characters, final long allocated) {
+        record(elapsedMs, bytes, allocated);
+        if (characters > 0)
+            charactersOut.add(characters);
+    }
+
+    void recordFailure(final long elapsedMs, final long bytes, final long allocated, final Throwable error) {
+        record(elapsedMs, bytes, allocated);
+        failures.increment();
+        failuresByType.computeIfAbsent(error.getClass().getName(), type -> new LongAdder()).increment();
+    }
+
+    private void record(final long elapsedMs, final long bytes, final long allocated) {
+        calls.increment();
+        if (bytes > 0)
+            bytesIn.add(bytes);
+        if (allocated > 0)
+            allocatedBytes.add(allocated);
+        totalTimeMs.add(elapsedMs);
+        maxTimeMs.accumulate(elapsedMs);
+        int i = 0;
+        while (elapsedMs > TIME_BUCKETS_MS[i])
+            i++;
+        timeHistogram[i].increment();
+    }
+
+    @Override
+    public String getParserName() {
+        return parserName;
+    }
+
+    @Override
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    @Override
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    @Override
+    public long getBytesIn() {
+        return bytesIn.sum();
+    }
+
+    @Override
+    public long getCharactersOut() {
+        return charactersOut.sum();
+    }
+
+    @Override
+    public long getAllocatedBytes() {
+        return allocatedBytes.sum();
+    }
+
+    @Override
+    public long getTotalTimeMs() {
+        return totalTimeMs.sum();
+    }
+
+    @Override
+    public long getMaxTimeMs() {
+        return maxTimeMs.get();
+    }
+
+    @Override
+    public Map<String, Long> getTimeHistogram() {
+        final Map<String, Long> histogram = new LinkedHashMap<>();
+        for (int i = 0; i < TIME_BUCKETS_MS.length; i++) {
+            final long bound = TIME_BUCKETS_MS[i];
+            histogram.put(bound == Long.MAX_VALUE ? "inf" : "le_" + bound + "ms", timeHistogram[i].sum());
+        }
+        return histogram;
+    }
+
+    @Override
+    public Map<String, Long> getFailuresByType() {
+        final Map<String, Long> map = new TreeMap<>();
+        failuresByType.forEach((type, count) -> map.put(type, count.sum()));
+        return map;
+    }
+
+    @Override
+    public void reset() {
+        calls.reset();
+        failures.reset();
+        bytesIn.reset();
+        charactersOut.reset();
+        allocatedBytes.reset();
+        totalTimeMs.reset();
+        maxTimeMs.reset();
+        for (LongAdder bucket : timeHistogram)
+            bucket.reset();
+        failuresByType.clear();
+    }
+
+    public Snapshot getSnapshot() {
+        return new Snapshot(this);
+    }
+
+    public static class Snapshot {
+
+        public final String parser_name;
+        public final long calls;
+        public final long failures;
+        public final long bytes_in;
+        public final long characters_out;
+        public final long allocated_bytes;
+        public final long total_time_ms;
+        public final long max_time_ms;
+        public final Map<String, Long> time_histogram;
+        public final Map<String, Long> failures_by_type;
+
+        private Snapshot(final ParserMetrics metrics) {
+            parser_name = metrics.parserName;
+            calls = metrics.getCalls();
+            failures = metrics.getFailures();
+            bytes_in = metrics.getBytesIn();
+            characters_out = metrics.getCharactersOut();
+            allocated_bytes = metrics.getAllocatedBytes();
+            total_time_ms = metrics.getTotalTimeMs();
+            max_time_ms = metrics.getMaxTimeMs();
+            time_histogram = metrics.getTimeHistogram();
+            failures_by_type = metrics.getFailuresByType();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.library.extractor;
+
+import com.qwazr.library.AbstractLibrary;
+import java.util.Map;
+
+/**
+ * Pull-style access to the parser metrics from the library configuration:
+ * <pre>
+ * {
+ *   "library": {
+ *     "parser_metrics": {
+ *       "class": "com.qwazr.library.extractor.ParserMetricsTool"
+ *     }
+ *   }
+ * }
+ * </pre>
+ */
+public class ParserMetricsTool extends AbstractLibrary {
+
+    /**
+     * @return a snapshot of the metrics of every metered parser
+     */
+    public Map<String, ParserMetrics.Snapshot> getSnapshots() {
+        return ParserMetrics.getSnapshots();
+    }
+
+    /**
+     * @param parserName the name of the parser
+     * @return a snapshot of the metrics of the given parser
+     */
+    public ParserMetrics.Snapshot getSnapshot(final String parserName) {
+        return ParserMetrics.of(parserName).getSnapshot();
+    }
+
+    /**
+     * Reset the counters of every metered parser
+     */
+    public void reset() {
+        ParserMetrics.getSnapshots().keySet().forEach(name -> ParserMetrics.of(name).reset());
+    }
+}
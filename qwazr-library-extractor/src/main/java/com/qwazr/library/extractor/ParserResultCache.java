@@ -0,0 +1,336 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.library.extractor;
+
+import com.qwazr.extractor.ParserResult;
+import com.qwazr.utils.LoggerUtils;
+import com.qwazr.utils.ObjectMappers;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import javax.ws.rs.core.MultivaluedMap;
+
+/**
+ * A two tiers cache of {@link ParserResult} keyed by the content of the parsed bytes.
+ * <p>
+ * The key is the SHA-256 of the parser name, the input type (media type or file extension),
+ * the normalized parameters and the input bytes.
+ * The memory tier is a bounded LRU map. The optional disk tier stores the JSON serialization of the results
+ * in a directory, and evicts the least recently used files when the total size exceeds the limit.
+ */
+public class ParserResultCache {
+
+    private final static Logger LOGGER = LoggerUtils.getLogger(ParserResultCache.class);
+
+    private final static String DIGEST_ALGORITHM = "SHA-256";
+
+    private final static String FILE_SUFFIX = ".json";
+
+    private final static char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final LinkedHashMap<String, ParserResult> memory;
+
+    private final Path directory;
+
+    private final long maxDiskBytes;
+
+    private final LinkedHashMap<String, Long> diskIndex;
+
+    private long diskBytes;
+
+    private final LongAdder memoryHits = new LongAdder();
+
+    private final LongAdder diskHits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param maxMemoryEntries the maximum number of results kept in memory (0 disables the memory tier)
+     * @param directory        the directory of the disk tier, or null to disable the disk tier
+     * @param maxDiskBytes     the maximum total size of the disk tier
+     * @throws IOException if the directory cannot be created or listed
+     */
+    public ParserResultCache(final int maxMemoryEntries,
+                             final Path directory,
+                             final long maxDiskBytes) throws IOException {
+        this.memory = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, ParserResult> eldest) {
+                return size() > maxMemoryEntries;
+            }
+        };
+        this.directory = directory;
+        this.maxDiskBytes = maxDiskBytes;
+        this.diskIndex = new LinkedHashMap<>(16, 0.75f, true);
+        if (directory != null)
+            loadDiskIndex();
+    }
+
+    /**
+     * Rebuild the disk index, the least recently used files first
+     */
+    private void loadDiskIndex() throws IOException {
+        Files.createDirectories(directory);
+        final List<Path> files = new ArrayList<>();
+        try (final Stream<Path> stream = Files.list(directory)) {
+            stream.filter(p -> p.getFileName().toString().endsWith(FILE_SUFFIX)).forEach(files::add);
+        }
+        final Map<Path, FileTime> times = new LinkedHashMap<>();
+        for (final Path file : files)
+            times.put(file, Files.getLastModifiedTime(file));
+        files.sort(Comparator.comparing(times::get));
+        for (final Path file : files) {
+            final long size = Files.size(file);
+            final String fileName = file.getFileName().toString();
+            diskIndex.put(fileName.substring(0, fileName.length() - FILE_SUFFIX.length()), size);
+            diskBytes += size;
+        }
+        evictDisk();
+    }
+
+    /**
+     * Build the digest which is updated by the input bytes
+     *
+     * @param parserName the name of the parser
+     * @param inputType  the media type of a stream or the extension of a file (may be null)
+     * @param parameters the parameters of the request
+     * @return a new digest
+     */
+    static MessageDigest newDigest(final String parserName,
+                                   final String inputType,
+                                   final MultivaluedMap<String, String> parameters) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        final StringBuilder sb = new StringBuilder(parserName).append('\n');
+        if (inputType != null)
+            sb.append(inputType);
+        sb.append('\n');
+        if (parameters != null) {
+            // Parameter names are sorted, the order of the values is significant (xpath, xpath_name...)
+            new TreeMap<>(parameters).forEach((name, values) -> {
+                sb.append(name).append('=');
+                if (values != null)
+                    values.forEach(value -> sb.append(value).append('\u0000'));
+                sb.append('\n');
+            });
+        }
+        digest.update(sb.toString().getBytes(StandardCharsets.UTF_8));
+        return digest;
+    }
+
+    /**
+     * Spool the stream while updating the digest. The stream is not closed.
+     *
+     * @param spool the strategy which keeps the small inputs in memory
+     * @return the spooled content, which must be closed
+     */
+    static Spool spoolAndDigest(final InputStream input, final MessageDigest digest, final SpoolStrategy spool)
+            throws IOException {
+        return spool.spool(new DigestInputStream(input, digest), ".tmp");
+    }
+
+    /**
+     * @return the key computed by the digest
+     */
+    static String toKey(final MessageDigest digest) {
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Read the whole file while updating the digest
+     *
+     * @return the key
+     */
+    static String digest(final Path file, final MessageDigest digest) throws IOException {
+        final byte[] buffer = new byte[65536];
+        try (final InputStream input = Files.newInputStream(file)) {
+            int read;
+            while ((read = input.read(buffer)) != -1)
+                digest.update(buffer, 0, read);
+        }
+        return toHex(digest.digest());
+    }
+
+    private static String toHex(final byte[] bytes) {
+        final char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * @param key the content key
+     * @return the cached result, or null if the key is unknown
+     */
+    public ParserResult get(final String key) {
+        synchronized (memory) {
+            final ParserResult result = memory.get(key);
+            if (result != null) {
+                memoryHits.increment();
+                return result;
+            }
+        }
+        final ParserResult result = getFromDisk(key);
+        if (result == null) {
+            misses.increment();
+            return null;
+        }
+        diskHits.increment();
+        synchronized (memory) {
+            memory.put(key, result);
+        }
+        return result;
+    }
+
+    private ParserResult getFromDisk(final String key) {
+        if (directory == null)
+            return null;
+        synchronized (diskIndex) {
+            if (diskIndex.get(key) == null)
+                return null;
+        }
+        final Path file = directory.resolve(key + FILE_SUFFIX);
+        try {
+            final ParserResult result = ObjectMappers.JSON.readValue(file.toFile(), ParserResult.class);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return result;
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, e, () -> "Cannot read the cached result " + file);
+            removeFromDisk(key);
+            return null;
+        }
+    }
+
+    /**
+     * Store a result in both tiers
+     *
+     * @param key    the content key
+     * @param result the result to cache
+     */
+    public void put(final String key, final ParserResult result) {
+        if (result == null)
+            return;
+        synchronized (memory) {
+            memory.put(key, result);
+        }
+        if (directory != null)
+            putOnDisk(key, result);
+    }
+
+    private void putOnDisk(final String key, final ParserResult result) {
+        final Path file = directory.resolve(key + FILE_SUFFIX);
+        try {
+            final Path tmpFile = Files.createTempFile(directory, key, ".tmp");
+            try {
+                try (final OutputStream output = Files.newOutputStream(tmpFile)) {
+                    ObjectMappers.JSON.writeValue(output, result);
+                }
+                Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tmpFile);
+            }
+            final long size = Files.size(file);
+            synchronized (diskIndex) {
+                final Long previous = diskIndex.put(key, size);
+                diskBytes += size - (previous == null ? 0 : previous);
+                evictDisk();
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, e, () -> "Cannot write the cached result " + file);
+        }
+    }
+
+    private void removeFromDisk(final String key) {
+        synchronized (diskIndex) {
+            final Long size = diskIndex.remove(key);
+            if (size != null)
+                diskBytes -= size;
+        }
+        try {
+            Files.deleteIfExists(directory.resolve(key + FILE_SUFFIX));
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, e, e::getMessage);
+        }
+    }
+
+    /**
+     * Remove the least recently used files until the disk tier fits in its limit.
+     * Must be called with the diskIndex lock held.
+     */
+    private void evictDisk() {
+        final Iterator<Map.Entry<String, Long>> iterator = diskIndex.entrySet().iterator();
+        while (diskBytes > maxDiskBytes && iterator.hasNext()) {
+            final Map.Entry<String, Long> entry = iterator.next();
+            iterator.remove();
+            diskBytes -= entry.getValue();
+            try {
+                Files.deleteIfExists(directory.resolve(entry.getKey() + FILE_SUFFIX));
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, e, e::getMessage);
+            }
+        }
+    }
+
+    public long getMemoryHits() {
+        return memoryHits.sum();
+    }
+
+    public long getDiskHits() {
+        return diskHits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getDiskBytes() {
+        synchronized (diskIndex) {
+            return diskBytes;
+        }
+    }
+
+    public int getMemorySize() {
+        synchronized (memory) {
+            return memory.size();
+        }
+    }
+
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.library.extractor;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A spooled input: a byte array or a file.
+ * The parsers which can read a buffer use {@link #getInputStream()}, the others ask for a file with
+ * {@link #toPath()}. The file is deleted when the spool is closed.
+ */
+public class Spool implements Closeable {
+
+    private final byte[] bytes;
+    private final String suffix;
+    private final SpoolStrategy strategy;
+    private Path path;
+
+    Spool(final byte[] bytes, final String suffix, final SpoolStrategy strategy) {
+        this.bytes = bytes;
+        this.suffix = suffix;
+        this.strategy = strategy;
+    }
+
+    Spool(final Path path, final SpoolStrategy strategy) {
+        this.bytes = null;
+        this.suffix = null;
+        this.path = path;
+        this.strategy = strategy;
+    }
+
+    /**
+     * @return true if the content is only stored in memory
+     */
+    public boolean isInMemory() {
+        return bytes != null && path == null;
+    }
+
+    /**
+     * @return the size of the content in bytes
+     * @throws IOException if the size of the file cannot be read
+     */
+    public long size() throws IOException {
+        return bytes != null ? bytes.length : Files.size(path);
+    }
+
+    /**
+     * @return a new stream reading the content, without any copy when the content is in memory
+     * @throws IOException if the file cannot be opened
+     */
+    public InputStream getInputStream() throws IOException {
+        return bytes != null ? new ByteArrayInputStream(bytes) : Files.newInputStream(path);
+    }
+
+    /**
+     * Returns a file with the content. An in-memory content is written to the spool directory the first time.
+     *
+     * @return the path of the file
+     * @throws IOException if the file cannot be written
+     */
+    public Path toPath() throws IOException {
+        if (path != null)
+            return path;
+        final Path file = strategy.createFile(suffix);
+        try {
+            Files.write(file, bytes);
+        } catch (IOException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        return path = file;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (path != null)
+            Files.deleteIfExists(path);
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.library.extractor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Where an uploaded stream is spooled before being parsed.
+ * <p>
+ * The inputs smaller than the memory threshold are kept in memory. The larger ones are written to the spool directory,
+ * which should be RAM-backed (tmpfs) on the extraction nodes. By default, /dev/shm is used when it is writable.
+ * The defaults can be changed using the system properties:
+ * <ul>
+ * <li>com.qwazr.library.extractor.spool.memory_threshold: the maximum size in bytes kept in memory (4 MB)</li>
+ * <li>com.qwazr.library.extractor.spool.directory: the directory of the spooled files</li>
+ * </ul>
+ */
+public class SpoolStrategy {
+
+    public final static String MEMORY_THRESHOLD_PROPERTY = "com.qwazr.library.extractor.spool.memory_threshold";
+
+    public final static String DIRECTORY_PROPERTY = "com.qwazr.library.extractor.spool.directory";
+
+    public final static int DEFAULT_MEMORY_THRESHOLD = 4 * 1024 * 1024;
+
+    public final static SpoolStrategy DEFAULT = new SpoolStrategy(
+            Integer.getInteger(MEMORY_THRESHOLD_PROPERTY, DEFAULT_MEMORY_THRESHOLD),
+            getDefaultDirectory());
+
+    private final int memoryThreshold;
+    private final Path directory;
+
+    private SpoolStrategy(final int memoryThreshold, final Path directory) {
+        this.memoryThreshold = Math.max(0, memoryThreshold);
+        this.directory = directory;
+    }
+
+    /**
+     * @param memoryThreshold the maximum size in bytes of an input kept in memory, 0 to always use a file
+     * @param directory       the directory of the spooled files, or null for the default temporary directory
+     * @return a new strategy
+     */
+    public static SpoolStrategy of(final int memoryThreshold, final Path directory) {
+        return new SpoolStrategy(memoryThreshold, directory);
+    }
+
+    private static Path getDefaultDirectory() {
+        final String property = System.getProperty(DIRECTORY_PROPERTY);
+        if (property != null && !property.isEmpty())
+            return Paths.get(property);
+        final Path shm = Paths.get("/dev/shm");
+        if (Files.isDirectory(shm) && Files.isWritable(shm))
+            return shm;
+        return null;
+    }
+
+    public int getMemoryThreshold() {
+        return memoryThreshold;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Read the stream. The stream is not closed.
+     *
+     * @param inputStream the stream to spool
+     * @param suffix      the suffix of the file if one is created (ie: ".mp3")
+     * @return the spooled content, which must be closed
+     * @throws IOException if the stream cannot be read or the file cannot be written
+     */
+    public Spool spool(final InputStream inputStream, final String suffix) throws IOException {
+        final byte[] head = inputStream.readNBytes(memoryThreshold + 1);
+        if (head.length <= memoryThreshold)
+            return new Spool(head, suffix, this);
+        final Path file = createFile(suffix);
+        try (final OutputStream output = Files.newOutputStream(file)) {
+            output.write(head);
+            inputStream.transferTo(output);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        return new Spool(file, this);
+    }
+
+    /**
+     * Create an empty file in the spool directory, for the tools which produce a file.
+     *
+     * @param suffix the suffix of the file
+     * @return the path of the new file, which must be deleted by the caller
+     * @throws IOException if the file cannot be created
+     */
+    public Path createFile(final String suffix) throws IOException {
+        return directory == null ?
+                Files.createTempFile("qwazr-spool", suffix) :
+                Files.createTempFile(directory, "qwazr-spool", suffix);
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.library.extractor;
+
+import com.qwazr.extractor.ParserResult;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+
+/**
+ * Implemented by the parsers which produce several documents (PDF pages, feed entries, spreadsheets, ...).
+ * The documents are pushed to a {@link DocumentConsumer} one by one instead of being accumulated in the result.
+ * <pre>
+ * final ParserResult metas = pdfBoxParser.extract(parameters, path, page -&gt; index(page));
+ * </pre>
+ *
+ * @see DocumentStream to consume the documents from another thread
+ */
+public interface StreamingParser {
+
+    /**
+     * @param parameters  the parameters of the extraction
+     * @param inputStream the stream to parse
+     * @param mediaType   the media type of the stream
+     * @param consumer    receives each document
+     * @return the result holding the metadata only
+     * @throws IOException if any I/O error occurs
+     */
+    ParserResult extract(MultivaluedMap<String, String> parameters,
+                         InputStream inputStream,
+                         MediaType mediaType,
+                         DocumentConsumer consumer) throws IOException;
+
+    /**
+     * @param parameters the parameters of the extraction
+     * @param filePath   the file to parse
+     * @param consumer   receives each document
+     * @return the result holding the metadata only
+     * @throws IOException if any I/O error occurs
+     */
+    ParserResult extract(MultivaluedMap<String, String> parameters,
+                         Path filePath,
+                         DocumentConsumer consumer) throws IOException;
+
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.library.extractor;
+
+import com.qwazr.extractor.ParserResult;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import javax.ws.rs.NotSupportedException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class BatchExtractorTest {
+
+    private final static MediaType SLOW_TYPE = MediaType.valueOf("application/x-slow");
+
+    private static ExecutorService executor;
+
+    @BeforeClass
+    public static void setup() {
+        executor = BatchExtractor.newVirtualThreadExecutor();
+    }
+
+    @AfterClass
+    public static void cleanup() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * A parser which records its maximum concurrency
+     */
+    private static class SlowParser extends StubParser {
+
+        private final AtomicInteger running = new AtomicInteger();
+        private final AtomicInteger maxRunning = new AtomicInteger();
+
+        private SlowParser() {
+            super("slow");
+        }
+
+        @Override
+        public Collection<MediaType> getSupportedMimeTypes() {
+            return List.of(SLOW_TYPE);
+        }
+
+        @Override
+        public Collection<String> getSupportedFileExtensions() {
+            return List.of("slow");
+        }
+
+        @Override
+        public ParserResult extract(final MultivaluedMap<String, String> parameters,
+                                    final InputStream inputStream,
+                                    final MediaType mimeType) throws IOException {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(50);
+                return super.extract(parameters, inputStream, mimeType);
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            } finally {
+                running.decrementAndGet();
+            }
+        }
+    }
+
+    private static BatchInput input(final String text, final MediaType mediaType) {
+        return BatchInput.of(text, () -> new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)),
+                mediaType, null);
+    }
+
+    @Test
+    public void concurrencyLimitAndCompletionOrder() {
+        final SlowParser slow = new SlowParser();
+        final StubParser fast = new StubParser("fast");
+        final BatchExtractor extractor = BatchExtractor.of(executor)
+                .defaultConcurrency(4)
+                .parser(fast)
+                .parser(slow, 2)
+                .build();
+
+        final List<BatchInput> inputs = new ArrayList<>();
+        for (int i = 0; i < 10; i++)
+            inputs.add(input("slow " + i, SLOW_TYPE));
+        for (int i = 0; i < 10; i++)
+            inputs.add(input("fast " + i, MediaType.TEXT_PLAIN_TYPE));
+
+        final List<BatchResult> results = extractor.extract(inputs).collect(Collectors.toList());
+        Assert.assertEquals(20, results.size());
+        for (final BatchResult result : results)
+            Assert.assertTrue(result.isSuccess());
+        Assert.assertEquals(2, slow.maxRunning.get());
+
+        // The fast parser is not stuck behind the slow one
+        Assert.assertEquals("fast", results.get(0).getParserName());
+    }
+
+    @Test
+    public void metered() {
+        final BatchExtractor extractor =
+                BatchExtractor.of(executor).metered(true).parser(new StubParser("batch-metered")).build();
+        Assert.assertEquals(3, extractor.extract(List.of(input("one", MediaType.TEXT_PLAIN_TYPE),
+                input("two", MediaType.TEXT_PLAIN_TYPE), input("three", MediaType.TEXT_PLAIN_TYPE)))
+                .filter(BatchResult::isSuccess)
+                .count());
+        final ParserMetrics.Snapshot snapshot = ParserMetrics.getSnapshots().get("batch-metered");
+        Assert.assertNotNull(snapshot);
+        Assert.assertEquals(3, snapshot.calls);
+        Assert.assertEquals("onetwothree".length(), snapshot.characters_out);
+    }
+
+    @Test
+    public void errors() {
+        final BatchExtractor extractor = BatchExtractor.of(executor).parser(new StubParser("stub")).build();
+        final List<BatchResult> results = extractor.extract(
+                List.of(input("fail", MediaType.TEXT_PLAIN_TYPE), input("unknown", MediaType.TEXT_HTML_TYPE)))
+                .collect(Collectors.toList());
+        Assert.assertEquals(2, results.size());
+        for (final BatchResult result : results) {
+            Assert.assertFalse(result.isSuccess());
+            if ("unknown".equals(result.getInput().getName()))
+                Assert.assertTrue(result.getError() instanceof NotSupportedException);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.library.extractor;
+
+import com.qwazr.extractor.ParserResult;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CachedParserTest {
+
+    private static ParserResult extract(final CachedParser parser, final MultivaluedMap<String, String> parameters,
+                                        final String text) throws IOException {
+        return parser.extract(parameters, new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)),
+                MediaType.TEXT_PLAIN_TYPE);
+    }
+
+    @Test
+    public void memoryTier() throws IOException {
+        final StubParser stub = new StubParser("cache-test");
+        final ParserResultCache cache = new ParserResultCache(10, null, 0);
+        final CachedParser parser = CachedParser.of(stub, cache);
+        final MultivaluedMap<String, String> parameters = new MultivaluedHashMap<>();
+
+        final ParserResult first = extract(parser, parameters, "Hello world");
+        Assert.assertSame(first, extract(parser, parameters, "Hello world"));
+        Assert.assertEquals(1, stub.calls.get());
+        Assert.assertEquals(1, cache.getMemoryHits());
+
+        // Other bytes or other parameters are misses
+        extract(parser, parameters, "Hello world!");
+        parameters.add("param", "value");
+        extract(parser, parameters, "Hello world");
+        Assert.assertEquals(3, stub.calls.get());
+        Assert.assertEquals(3, cache.getMisses());
+    }
+
+    @Test
+    public void memoryEviction() throws IOException {
+        final StubParser stub = new StubParser("cache-test");
+        final ParserResultCache cache = new ParserResultCache(2, null, 0);
+        final CachedParser parser = CachedParser.of(stub, cache);
+        final MultivaluedMap<String, String> parameters = new MultivaluedHashMap<>();
+        extract(parser, parameters, "one");
+        extract(parser, parameters, "two");
+        extract(parser, parameters, "three");
+        Assert.assertEquals(2, cache.getMemorySize());
+        extract(parser, parameters, "one");
+        Assert.assertEquals(4, stub.calls.get());
+    }
+
+    @Test
+    public void diskTier() throws IOException {
+        final Path directory = Files.createTempDirectory("cachedparsertest");
+        final StubParser stub = new StubParser("cache-test");
+        final MultivaluedMap<String, String> parameters = new MultivaluedHashMap<>();
+
+        extract(CachedParser.of(stub, new ParserResultCache(10, directory, 1 << 20)), parameters, "Hello disk");
+        Assert.assertEquals(1, stub.calls.get());
+
+        // A new cache instance reloads the disk tier
+        final ParserResultCache cache = new ParserResultCache(10, directory, 1 << 20);
+        Assert.assertTrue(cache.getDiskBytes() > 0);
+        final ParserResult result = extract(CachedParser.of(stub, cache), parameters, "Hello disk");
+        Assert.assertNotNull(result);
+        Assert.assertEquals("Hello disk", result.getDocumentFieldValue(0, "content", 0));
+        Assert.assertEquals(1, stub.calls.get());
+        Assert.assertEquals(1, cache.getDiskHits());
+
+        // A zero sized disk tier evicts everything
+        Assert.assertEquals(0, new ParserResultCache(10, directory, 0).getDiskBytes());
+    }
+}
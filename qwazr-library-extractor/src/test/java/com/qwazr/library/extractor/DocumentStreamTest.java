@@ -0,0 +1,97 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.library.extractor;
+
+import com.qwazr.extractor.ParserInterface;
+import com.qwazr.extractor.ParserResult;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class DocumentStreamTest {
+
+    private static ExecutorService executor;
+
+    @BeforeClass
+    public static void setup() {
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterClass
+    public static void cleanup() {
+        executor.shutdownNow();
+    }
+
+    private static ParserResult produce(final DocumentConsumer consumer, final int count,
+                                        final AtomicInteger produced) throws IOException {
+        final DocumentEmitter emitter = DocumentEmitter.of("stream-test", consumer);
+        for (int i = 0; i < count; i++) {
+            emitter.newDocument().add(ParserInterface.CONTENT, "page " + i);
+            emitter.complete();
+            produced.incrementAndGet();
+        }
+        final ParserResult.Builder builder = ParserResult.of("stream-test");
+        builder.metas().set(ParserInterface.MIME_TYPE, "text/plain");
+        return builder.build();
+    }
+
+    @Test
+    public void orderAndBackPressure() throws InterruptedException {
+        final AtomicInteger produced = new AtomicInteger();
+        try (final DocumentStream documents = DocumentStream.of(executor, 2,
+                consumer -> produce(consumer, 100, produced))) {
+            int consumed = 0;
+            while (documents.hasNext()) {
+                final ParserResult document = documents.next();
+                Assert.assertEquals("page " + consumed, document.getDocumentFieldValue(0, "content", 0));
+                consumed++;
+                if (consumed == 10) {
+                    // The producer is blocked by the bounded queue
+                    Thread.sleep(100);
+                    Assert.assertTrue(produced.get() <= consumed + 3);
+                }
+            }
+            Assert.assertEquals(100, consumed);
+            Assert.assertNotNull(documents.getMetas());
+        }
+    }
+
+    @Test
+    public void cancelOnClose() {
+        final AtomicInteger produced = new AtomicInteger();
+        final DocumentStream documents = DocumentStream.of(executor, 1, consumer -> produce(consumer, 1000, produced));
+        Assert.assertEquals(1, documents.stream().limit(1).count());
+        documents.close();
+        Assert.assertFalse(documents.hasNext());
+        Assert.assertTrue(produced.get() < 1000);
+    }
+
+    @Test(expected = UncheckedIOException.class)
+    public void producerFailure() {
+        try (final DocumentStream documents = DocumentStream.of(executor, 4, consumer -> {
+            produce(consumer, 3, new AtomicInteger());
+            throw new IOException("broken");
+        })) {
+            documents.stream().count();
+        }
+    }
+}
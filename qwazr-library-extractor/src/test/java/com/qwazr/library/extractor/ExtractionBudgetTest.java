@@ -0,0 +1,92 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.library.extractor;
+
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ExtractionBudgetTest {
+
+    @Test
+    public void unlimited() {
+        final ExtractionBudget budget = ExtractionBudget.of(new MultivaluedHashMap<>());
+        budget.addCharacters(Integer.MAX_VALUE);
+        Assert.assertFalse(budget.isExhausted());
+        Assert.assertFalse(budget.isLimited());
+        Assert.assertEquals(Long.MAX_VALUE, budget.getRemainingMs());
+        Assert.assertNull(budget.getReason());
+    }
+
+    @Test
+    public void maxCharacters() {
+        final MultivaluedMap<String, String> parameters = new MultivaluedHashMap<>();
+        parameters.putSingle(ExtractionBudget.MAX_CHARACTERS.name, "10");
+        final ExtractionBudget budget = ExtractionBudget.of(parameters);
+        Assert.assertTrue(budget.isLimited());
+        budget.addCharacters(9);
+        Assert.assertFalse(budget.isExhausted());
+        budget.addCharacters(1);
+        Assert.assertTrue(budget.isExhausted());
+        Assert.assertEquals(ExtractionBudget.MAX_CHARACTERS.name, budget.getReason());
+        try {
+            budget.check();
+            Assert.fail("Exhausted expected");
+        } catch (ExtractionBudget.Exhausted e) {
+            Assert.assertTrue(e.getMessage().contains(ExtractionBudget.MAX_CHARACTERS.name));
+        }
+    }
+
+    @Test
+    public void timeout() throws InterruptedException {
+        final ExtractionBudget budget = ExtractionBudget.of(50, 0);
+        Assert.assertFalse(budget.isExhausted());
+        Thread.sleep(100);
+        Assert.assertEquals(0, budget.getRemainingMs());
+        Assert.assertTrue(budget.isExhausted());
+        Assert.assertEquals(ExtractionBudget.TIMEOUT, budget.getReason());
+    }
+
+    @Test
+    public void interrupted() {
+        final ExtractionBudget budget = ExtractionBudget.of(0, 0);
+        Thread.currentThread().interrupt();
+        try {
+            Assert.assertTrue(budget.isExhausted());
+            Assert.assertEquals(ExtractionBudget.INTERRUPTED, budget.getReason());
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    @Test
+    public void stop() {
+        final ExtractionBudget budget = ExtractionBudget.of(0, 0);
+        budget.stop(ExtractionBudget.INTERRUPTED);
+        budget.stop(ExtractionBudget.TIMEOUT);
+        Assert.assertTrue(budget.isExhausted());
+        Assert.assertEquals(ExtractionBudget.INTERRUPTED, budget.getReason());
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void notANumber() {
+        final MultivaluedMap<String, String> parameters = new MultivaluedHashMap<>();
+        parameters.putSingle(ExtractionBudget.TIMEOUT_MS.name, "ten");
+        ExtractionBudget.of(parameters);
+    }
+}
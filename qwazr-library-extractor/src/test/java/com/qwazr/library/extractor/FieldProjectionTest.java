@@ -0,0 +1,58 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.library.extractor;
+
+import com.qwazr.extractor.ParserField;
+import com.qwazr.extractor.ParserInterface;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FieldProjectionTest {
+
+    private final static ParserField AUTHOR = ParserField.newString("author", null);
+
+    @Test
+    public void withoutParameter() {
+        Assert.assertSame(FieldProjection.ALL, FieldProjection.of(null));
+        final FieldProjection projection = FieldProjection.of(new MultivaluedHashMap<>());
+        Assert.assertTrue(projection.isAll());
+        Assert.assertTrue(projection.has(ParserInterface.CONTENT));
+    }
+
+    @Test
+    public void commaSeparatedAndMultiValued() {
+        final MultivaluedMap<String, String> parameters = new MultivaluedHashMap<>();
+        parameters.add(FieldProjection.PARAMETER.name, "title, author");
+        parameters.add(FieldProjection.PARAMETER.name, "mime_type");
+        final FieldProjection projection = FieldProjection.of(parameters);
+        Assert.assertFalse(projection.isAll());
+        Assert.assertTrue(projection.has(ParserInterface.TITLE));
+        Assert.assertTrue(projection.has(AUTHOR));
+        Assert.assertTrue(projection.has(ParserInterface.MIME_TYPE));
+        Assert.assertFalse(projection.has(ParserInterface.CONTENT));
+        Assert.assertTrue(projection.hasAny(ParserInterface.CONTENT, AUTHOR));
+        Assert.assertFalse(projection.hasAny(ParserInterface.CONTENT, ParserInterface.LANG_DETECTION));
+    }
+
+    @Test
+    public void emptyValue() {
+        final MultivaluedMap<String, String> parameters = new MultivaluedHashMap<>();
+        parameters.add(FieldProjection.PARAMETER.name, " , ");
+        Assert.assertTrue(FieldProjection.of(parameters).isAll());
+    }
+}
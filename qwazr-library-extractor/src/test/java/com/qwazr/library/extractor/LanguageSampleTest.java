@@ -0,0 +1,54 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.library.extractor;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LanguageSampleTest {
+
+    @Test
+    public void sampleIsSpreadAcrossParts() {
+        final LanguageSample sample = new LanguageSample(1000, 4);
+        // Each part gets 250 characters and a separator
+        sample.add("x".repeat(400));
+        sample.add("y".repeat(400));
+        Assert.assertEquals(2 * 251, sample.getSample().length());
+        Assert.assertTrue(sample.getSample().contains("y"));
+    }
+
+    @Test
+    public void sampleIsSpreadAcrossManyParts() {
+        final LanguageSample sample = new LanguageSample(1000, 100);
+        // 5 parts of at most 200 characters: one part every 20 parts
+        for (int i = 0; i < 100; i++)
+            sample.add(String.format("<%02d>", i) + "x".repeat(100));
+        Assert.assertEquals(5 * 105, sample.getSample().length());
+        Assert.assertTrue(sample.getSample().contains("<80>"));
+        Assert.assertFalse(sample.getSample().contains("<01>"));
+    }
+
+    @Test
+    public void sampleIsCapped() {
+        final LanguageSample sample = new LanguageSample(1000, 1);
+        sample.add("x".repeat(600));
+        sample.add("y".repeat(600));
+        Assert.assertEquals(601 + 400, sample.getSample().length());
+        sample.add("z");
+        sample.add(null);
+        Assert.assertFalse(sample.getSample().contains("z"));
+    }
+}
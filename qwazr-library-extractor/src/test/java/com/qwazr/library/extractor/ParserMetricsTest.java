@@ -0,0 +1,123 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.library.extractor;
+
+import com.qwazr.extractor.ParserInterface;
+import com.qwazr.extractor.ParserResult;
+import com.qwazr.utils.IOUtils;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import javax.management.ObjectName;
+import javax.ws.rs.NotAcceptableException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ParserMetricsTest {
+
+    @Test
+    public void meteredParser() throws Exception {
+        final MeteredParser parser = MeteredParser.of(new StubParser("metrics-test"));
+        final byte[] bytes = "Hello world".getBytes(StandardCharsets.UTF_8);
+
+        Assert.assertNotNull(parser.createParser()
+                .extract(new MultivaluedHashMap<>(), new ByteArrayInputStream(bytes), MediaType.TEXT_PLAIN_TYPE));
+        try {
+            parser.extract(new MultivaluedHashMap<>(),
+                    new ByteArrayInputStream("fail".getBytes(StandardCharsets.UTF_8)), MediaType.TEXT_PLAIN_TYPE);
+            Assert.fail("NotAcceptableException expected");
+        } catch (NotAcceptableException e) {
+            // Expected
+        }
+
+        final ParserMetrics.Snapshot snapshot = ParserMetrics.getSnapshots().get("metrics-test");
+        Assert.assertNotNull(snapshot);
+        Assert.assertEquals(2, snapshot.calls);
+        Assert.assertEquals(1, snapshot.failures);
+        Assert.assertEquals(bytes.length + 4, snapshot.bytes_in);
+        Assert.assertEquals("Hello world".length(), snapshot.characters_out);
+        Assert.assertEquals(Long.valueOf(1),
+                snapshot.failures_by_type.get(NotAcceptableException.class.getName()));
+        Assert.assertEquals(2L, snapshot.time_histogram.values().stream().mapToLong(Long::longValue).sum());
+
+        Assert.assertTrue(ManagementFactory.getPlatformMBeanServer()
+                .isRegistered(new ObjectName(
+                        "com.qwazr.library.extractor:type=ParserMetrics,name=" + ObjectName.quote("metrics-test"))));
+
+        parser.getMetrics().reset();
+        Assert.assertEquals(0, parser.getMetrics().getCalls());
+    }
+
+    /**
+     * A streaming parser pushing one document per line
+     */
+    private static class StreamingStub extends StubParser implements StreamingParser {
+
+        private StreamingStub(final String name) {
+            super(name);
+        }
+
+        @Override
+        public ParserResult extract(final MultivaluedMap<String, String> parameters,
+                                    final InputStream inputStream,
+                                    final MediaType mediaType,
+                                    final DocumentConsumer consumer) throws IOException {
+            final String text = IOUtils.toString(inputStream, StandardCharsets.UTF_8);
+            for (final String line : text.split("\n")) {
+                final ParserResult.Builder builder = ParserResult.of(getName());
+                builder.newDocument().add(CONTENT, line);
+                consumer.accept(builder.build());
+            }
+            return ParserResult.of(getName()).build();
+        }
+
+        @Override
+        public ParserResult extract(final MultivaluedMap<String, String> parameters,
+                                    final Path filePath,
+                                    final DocumentConsumer consumer) throws IOException {
+            try (final InputStream input = Files.newInputStream(filePath)) {
+                return extract(parameters, input, MediaType.TEXT_PLAIN_TYPE, consumer);
+            }
+        }
+    }
+
+    @Test
+    public void meteredStreamingParser() throws Exception {
+        final MeteredParser parser = MeteredParser.of(new StreamingStub("metrics-streaming-test"));
+        final ParserInterface streamingParser = parser.createParser();
+        Assert.assertTrue(streamingParser instanceof StreamingParser);
+        Assert.assertFalse(MeteredParser.of(new StubParser("metrics-plain-test")) instanceof StreamingParser);
+
+        final List<ParserResult> documents = new ArrayList<>();
+        ((StreamingParser) streamingParser).extract(new MultivaluedHashMap<>(),
+                new ByteArrayInputStream("Hello\nworld".getBytes(StandardCharsets.UTF_8)), MediaType.TEXT_PLAIN_TYPE,
+                documents::add);
+        Assert.assertEquals(2, documents.size());
+
+        final ParserMetrics.Snapshot snapshot = parser.getMetrics().getSnapshot();
+        Assert.assertEquals(1, snapshot.calls);
+        Assert.assertEquals("Helloworld".length(), snapshot.characters_out);
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.library.extractor;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SpoolTest {
+
+    private final static SpoolStrategy STRATEGY = SpoolStrategy.of(16, null);
+
+    private static byte[] bytes(final int size) {
+        final byte[] bytes = new byte[size];
+        for (int i = 0; i < size; i++)
+            bytes[i] = (byte) i;
+        return bytes;
+    }
+
+    private static void checkContent(final Spool spool, final byte[] expected) throws IOException {
+        Assert.assertEquals(expected.length, spool.size());
+        try (final InputStream input = spool.getInputStream()) {
+            Assert.assertArrayEquals(expected, input.readAllBytes());
+        }
+    }
+
+    @Test
+    public void smallInputInMemory() throws IOException {
+        final byte[] content = bytes(16);
+        final Path path;
+        try (final Spool spool = STRATEGY.spool(new ByteArrayInputStream(content), ".bin")) {
+            Assert.assertTrue(spool.isInMemory());
+            checkContent(spool, content);
+            path = spool.toPath();
+            Assert.assertTrue(path.getFileName().toString().endsWith(".bin"));
+            Assert.assertArrayEquals(content, Files.readAllBytes(path));
+            Assert.assertSame(path, spool.toPath());
+            Assert.assertFalse(spool.isInMemory());
+        }
+        Assert.assertFalse(Files.exists(path));
+    }
+
+    @Test
+    public void largeInputInFile() throws IOException {
+        final byte[] content = bytes(17);
+        final Path path;
+        try (final Spool spool = STRATEGY.spool(new ByteArrayInputStream(content), ".bin")) {
+            Assert.assertFalse(spool.isInMemory());
+            checkContent(spool, content);
+            path = spool.toPath();
+            Assert.assertArrayEquals(content, Files.readAllBytes(path));
+        }
+        Assert.assertFalse(Files.exists(path));
+    }
+
+    @Test
+    public void spoolDirectory() throws IOException {
+        final Path directory = Files.createTempDirectory("spooltest");
+        try (final Spool spool = SpoolStrategy.of(0, directory).spool(new ByteArrayInputStream(bytes(1)), null)) {
+            Assert.assertEquals(directory, spool.toPath().getParent());
+        } finally {
+            Files.delete(directory);
+        }
+    }
+}
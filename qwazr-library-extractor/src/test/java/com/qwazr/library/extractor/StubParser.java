@@ -0,0 +1,93 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.library.extractor;
+
+import com.qwazr.extractor.ParserFactory;
+import com.qwazr.extractor.ParserField;
+import com.qwazr.extractor.ParserInterface;
+import com.qwazr.extractor.ParserResult;
+import com.qwazr.utils.IOUtils;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.ws.rs.NotAcceptableException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+
+/**
+ * A plain text parser used by the tests. The text "fail" triggers a {@link NotAcceptableException}.
+ */
+class StubParser implements ParserFactory, ParserInterface {
+
+    final AtomicInteger calls = new AtomicInteger();
+
+    private final String name;
+
+    StubParser(final String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public ParserInterface createParser() {
+        return this;
+    }
+
+    @Override
+    public Collection<ParserField> getFields() {
+        return List.of(CONTENT);
+    }
+
+    @Override
+    public Collection<String> getSupportedFileExtensions() {
+        return List.of("txt");
+    }
+
+    @Override
+    public Collection<MediaType> getSupportedMimeTypes() {
+        return List.of(MediaType.TEXT_PLAIN_TYPE);
+    }
+
+    @Override
+    public ParserResult extract(final MultivaluedMap<String, String> parameters,
+                                final InputStream inputStream,
+                                final MediaType mimeType) throws IOException {
+        calls.incrementAndGet();
+        final String text = IOUtils.toString(inputStream, StandardCharsets.UTF_8);
+        if ("fail".equals(text))
+            throw new NotAcceptableException("fail");
+        final ParserResult.Builder builder = ParserResult.of(name);
+        builder.newDocument().add(CONTENT, text);
+        return builder.build();
+    }
+
+    @Override
+    public ParserResult extract(final MultivaluedMap<String, String> parameters,
+                                final Path filePath) throws IOException {
+        try (final InputStream input = Files.newInputStream(filePath)) {
+            return extract(parameters, input, MediaType.TEXT_PLAIN_TYPE);
+        }
+    }
+}
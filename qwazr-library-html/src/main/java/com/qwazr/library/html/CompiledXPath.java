@@ -0,0 +1,99 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.library.html;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import javax.xml.xpath.XPathEvaluationResult;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+import javax.xml.xpath.XPathNodes;
+import org.w3c.dom.Node;
+
+/**
+ * A compiled XPath expression which can be shared by the threads.
+ * <p>
+ * The JAXP expressions are not thread safe: the expression is compiled once when the instance is built
+ * (which validates it), then the compiled copies are borrowed from a small bounded pool, like the
+ * {@link DomParserPool}. A new copy is compiled only when no idle copy is available.
+ * The pool does not depend on the identity of the threads: it behaves the same with platform and virtual threads.
+ */
+class CompiledXPath {
+
+    private final static XPathFactory XPATH_FACTORY = XPathFactory.newInstance();
+
+    private final String expression;
+
+    private final ArrayBlockingQueue<XPathExpression> idle;
+
+    CompiledXPath(final String expression) throws XPathExpressionException {
+        this.expression = expression;
+        this.idle = new ArrayBlockingQueue<>(Math.max(1, DomParserPool.DEFAULT_CAPACITY));
+        idle.offer(compile(expression));
+    }
+
+    private static XPathExpression compile(final String expression) throws XPathExpressionException {
+        // The factory is not thread safe
+        synchronized (XPATH_FACTORY) {
+            return XPATH_FACTORY.newXPath().compile(expression);
+        }
+    }
+
+    private XPathExpression borrow() throws XPathExpressionException {
+        final XPathExpression xPathExpression = idle.poll();
+        return xPathExpression == null ? compile(expression) : xPathExpression;
+    }
+
+    /**
+     * Evaluate the expression and send the result to the consumer, with its natural type
+     * (the nodes of a node-set, a string, a number or a boolean).
+     */
+    void evaluate(final Node node, final HtmlParser.ListConsumer consumer) throws XPathExpressionException {
+        final XPathExpression xPathExpression = borrow();
+        final XPathEvaluationResult<?> result;
+        try {
+            result = xPathExpression.evaluateExpression(node, XPathEvaluationResult.class);
+        } finally {
+            // The copy is dropped if the pool is full
+            idle.offer(xPathExpression);
+        }
+        if (result == null)
+            return;
+        switch (result.type()) {
+        case NODESET:
+            for (final Node resultNode : (XPathNodes) result.value())
+                consumer.accept(resultNode);
+            break;
+        case NODE:
+            consumer.accept((Node) result.value());
+            break;
+        case BOOLEAN:
+            consumer.accept((Boolean) result.value());
+            break;
+        case NUMBER:
+            consumer.accept((Number) result.value());
+            break;
+        default:
+            consumer.accept(result.value() == null ? null : result.value().toString());
+            break;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+}
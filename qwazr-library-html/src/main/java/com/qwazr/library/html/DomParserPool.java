@@ -0,0 +1,141 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.library.html;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import org.apache.xerces.parsers.DOMParser;
+
+/**
+ * A bounded pool of HTML {@link DOMParser}.
+ * <p>
+ * Borrowing never blocks: a new parser is created when no idle parser is available.
+ * When a parser is returned, the reference to its last document is dropped,
+ * and the parser is kept only if the number of idle parsers is below the capacity.
+ * The pool does not depend on the identity of the threads: it behaves the same with platform and virtual threads.
+ * <pre>
+ * try (final DomParserPool.Lease lease = HtmlParser.getDomParserPool().borrow()) {
+ *     lease.getParser().parse(inputSource);
+ *     final Document document = lease.getParser().getDocument();
+ *     ...
+ * }
+ * </pre>
+ * The default capacity is given by the system property com.qwazr.library.html.dom_parser_pool_size
+ * (twice the number of processors).
+ */
+public class DomParserPool {
+
+    public final static int DEFAULT_CAPACITY = Integer.getInteger("com.qwazr.library.html.dom_parser_pool_size",
+            Runtime.getRuntime().availableProcessors() * 2);
+
+    private final Supplier<DOMParser> factory;
+
+    private final int capacity;
+
+    private final ArrayBlockingQueue<DOMParser> idle;
+
+    private final AtomicInteger inUse = new AtomicInteger();
+
+    private final LongAdder borrowed = new LongAdder();
+
+    private final LongAdder created = new LongAdder();
+
+    private final LongAdder discarded = new LongAdder();
+
+    /**
+     * @param factory  creates a new parser
+     * @param capacity the maximum number of idle parsers kept by the pool
+     */
+    public DomParserPool(final Supplier<DOMParser> factory, final int capacity) {
+        this.factory = factory;
+        this.capacity = capacity;
+        this.idle = capacity > 0 ? new ArrayBlockingQueue<>(capacity) : null;
+    }
+
+    /**
+     * @return an idle parser, or a new one if no parser is available
+     */
+    public Lease borrow() {
+        borrowed.increment();
+        DOMParser parser = idle == null ? null : idle.poll();
+        if (parser == null) {
+            created.increment();
+            parser = factory.get();
+        }
+        inUse.incrementAndGet();
+        return new Lease(parser);
+    }
+
+    private void giveBack(final DOMParser parser) {
+        inUse.decrementAndGet();
+        // Do not retain the last document
+        parser.dropDocumentReferences();
+        if (idle == null || !idle.offer(parser))
+            discarded.increment();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getIdle() {
+        return idle == null ? 0 : idle.size();
+    }
+
+    public int getInUse() {
+        return inUse.get();
+    }
+
+    public long getBorrowed() {
+        return borrowed.sum();
+    }
+
+    public long getCreated() {
+        return created.sum();
+    }
+
+    public long getDiscarded() {
+        return discarded.sum();
+    }
+
+    /**
+     * A borrowed parser, returned to the pool when the lease is closed
+     */
+    public final class Lease implements AutoCloseable {
+
+        private DOMParser parser;
+
+        private Lease(final DOMParser parser) {
+            this.parser = parser;
+        }
+
+        public DOMParser getParser() {
+            if (parser == null)
+                throw new IllegalStateException("The parser has already been returned");
+            return parser;
+        }
+
+        @Override
+        public void close() {
+            if (parser == null)
+                return;
+            giveBack(parser);
+            parser = null;
+        }
+    }
+}
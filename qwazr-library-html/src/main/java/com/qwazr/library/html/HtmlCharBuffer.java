@@ -0,0 +1,130 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.library.html;
+
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * The decoded characters of an HTML source, read once and shared by the HTML parser (as a Reader)
+ * and by the regular expressions (as a CharSequence).
+ * <p>
+ * The growable buffers are reused through a small bounded pool, which does not depend on the identity of the threads
+ * (like the {@link DomParserPool}). Loading never blocks: a new buffer is created when no idle buffer is available.
+ * After a large page, the buffer is shrunk back when it is released, so an idle buffer does not retain more than
+ * {@link #MAX_RETAINED_CHARS} characters between two requests.
+ */
+class HtmlCharBuffer implements CharSequence {
+
+    private final static int INITIAL_CHARS = 64 * 1024;
+
+    final static int MAX_RETAINED_CHARS = 1024 * 1024;
+
+    private final static ArrayBlockingQueue<HtmlCharBuffer> IDLE =
+            new ArrayBlockingQueue<>(Math.max(1, DomParserPool.DEFAULT_CAPACITY));
+
+    private char[] chars;
+
+    private int length;
+
+    private boolean inUse;
+
+    private HtmlCharBuffer() {
+        chars = new char[INITIAL_CHARS];
+    }
+
+    /**
+     * Read the whole source into an idle buffer.
+     * The buffer must be released by calling {@link #release()}.
+     *
+     * @param reader the decoded HTML source
+     * @return an idle buffer, or a new buffer if none is available
+     * @throws IOException if the source cannot be read
+     */
+    static HtmlCharBuffer load(final Reader reader) throws IOException {
+        HtmlCharBuffer buffer = IDLE.poll();
+        if (buffer == null)
+            buffer = new HtmlCharBuffer();
+        buffer.inUse = true;
+        try {
+            buffer.read(reader);
+        } catch (IOException | RuntimeException e) {
+            buffer.release();
+            throw e;
+        }
+        return buffer;
+    }
+
+    private void read(final Reader reader) throws IOException {
+        length = 0;
+        int read;
+        while ((read = reader.read(chars, length, chars.length - length)) != -1) {
+            length += read;
+            if (length == chars.length)
+                chars = Arrays.copyOf(chars, chars.length * 2);
+        }
+    }
+
+    /**
+     * @return a new reader over the decoded characters (no copy)
+     */
+    Reader newReader() {
+        return new CharArrayReader(chars, 0, length);
+    }
+
+    /**
+     * Give the buffer back to the pool. The buffer is dropped if the pool is full.
+     */
+    void release() {
+        if (!inUse)
+            return;
+        length = 0;
+        if (chars.length > MAX_RETAINED_CHARS)
+            chars = new char[INITIAL_CHARS];
+        inUse = false;
+        IDLE.offer(this);
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(final int index) {
+        if (index < 0 || index >= length)
+            throw new IndexOutOfBoundsException(index);
+        return chars[index];
+    }
+
+    /**
+     * @return a copy of the characters, the buffer may be reused
+     */
+    @Override
+    public CharSequence subSequence(final int start, final int end) {
+        if (start < 0 || end > length || start > end)
+            throw new IndexOutOfBoundsException("start: " + start + ", end: " + end + ", length: " + length);
+        return new String(chars, start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        return new String(chars, 0, length);
+    }
+}
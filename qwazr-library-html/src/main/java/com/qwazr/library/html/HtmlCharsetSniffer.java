@@ -0,0 +1,122 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.library.html;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.ws.rs.core.MediaType;
+
+/**
+ * Find the charset of an HTML stream, as a browser does, without decoding the stream twice:
+ * <ol>
+ * <li>the byte order mark (UTF-8, UTF-16LE, UTF-16BE),</li>
+ * <li>the charset parameter of the content type,</li>
+ * <li>a meta charset (or meta http-equiv content-type) in the first {@link #LOOK_AHEAD} bytes,</li>
+ * <li>UTF-8 by default.</li>
+ * </ol>
+ * Only the look-ahead bytes are buffered, the decoding is then done by one reader over the stream.
+ */
+class HtmlCharsetSniffer {
+
+    final static int LOOK_AHEAD = 1024;
+
+    private final static Pattern META_CHARSET = Pattern.compile(
+            "<meta\\s[^>]*?charset\\s*=\\s*[\"']?\\s*([a-z0-9_:.\\-]+)", Pattern.CASE_INSENSITIVE);
+
+    /**
+     * @param inputStream the HTML stream
+     * @param mediaType   the content type of the stream (may be null)
+     * @return a reader decoding the stream with the detected charset, the byte order mark is skipped
+     * @throws IOException if the stream cannot be read
+     */
+    static Reader newReader(final InputStream inputStream, final MediaType mediaType) throws IOException {
+        final InputStream input = inputStream.markSupported() ?
+                inputStream :
+                new BufferedInputStream(inputStream, LOOK_AHEAD * 8);
+        input.mark(LOOK_AHEAD);
+        final byte[] head = new byte[LOOK_AHEAD];
+        int length = 0;
+        int read;
+        while (length < LOOK_AHEAD && (read = input.read(head, length, LOOK_AHEAD - length)) != -1)
+            length += read;
+        input.reset();
+        final Charset bomCharset = getBomCharset(head, length);
+        if (bomCharset != null) {
+            // The mark has been reset, the byte order mark is buffered
+            for (int i = bomCharset == StandardCharsets.UTF_8 ? 3 : 2; i > 0; i--)
+                input.read();
+            return new InputStreamReader(input, bomCharset);
+        }
+        return new InputStreamReader(input, detect(head, length, mediaType));
+    }
+
+    /**
+     * @return the charset given by the byte order mark, or null
+     */
+    static Charset getBomCharset(final byte[] head, final int length) {
+        if (length >= 3 && (head[0] & 0xFF) == 0xEF && (head[1] & 0xFF) == 0xBB && (head[2] & 0xFF) == 0xBF)
+            return StandardCharsets.UTF_8;
+        if (length >= 2 && (head[0] & 0xFF) == 0xFE && (head[1] & 0xFF) == 0xFF)
+            return StandardCharsets.UTF_16BE;
+        if (length >= 2 && (head[0] & 0xFF) == 0xFF && (head[1] & 0xFF) == 0xFE)
+            return StandardCharsets.UTF_16LE;
+        return null;
+    }
+
+    /**
+     * @return the charset of the content type, or of the meta tags, or UTF-8
+     */
+    static Charset detect(final byte[] head, final int length, final MediaType mediaType) {
+        final Charset bomCharset = getBomCharset(head, length);
+        if (bomCharset != null)
+            return bomCharset;
+        if (mediaType != null) {
+            final Charset charset = forName(mediaType.getParameters().get(MediaType.CHARSET_PARAMETER));
+            if (charset != null)
+                return charset;
+        }
+        // The bytes of the tags are ASCII compatible
+        final Matcher matcher = META_CHARSET.matcher(new String(head, 0, length, StandardCharsets.ISO_8859_1));
+        if (matcher.find()) {
+            final Charset charset = forName(matcher.group(1));
+            if (charset != null)
+                // A page which can be read to find its meta tag is not encoded in UTF-16
+                return charset == StandardCharsets.UTF_16 || charset == StandardCharsets.UTF_16BE ||
+                        charset == StandardCharsets.UTF_16LE ? StandardCharsets.UTF_8 : charset;
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    /**
+     * @return the charset, or null if the name is empty, invalid or not supported
+     */
+    private static Charset forName(final String name) {
+        if (name == null || name.isBlank())
+            return null;
+        try {
+            return Charset.forName(name.trim());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
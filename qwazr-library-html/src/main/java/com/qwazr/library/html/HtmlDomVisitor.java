@@ -0,0 +1,218 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.library.html;
+
+import com.qwazr.extractor.ParserField;
+import com.qwazr.extractor.ParserInterface;
+import com.qwazr.extractor.ParserResult;
+import com.qwazr.library.extractor.ExtractionBudget;
+import com.qwazr.utils.DomUtils;
+import com.qwazr.utils.HtmlUtils;
+import com.qwazr.utils.StringUtils;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * Collects the default fields of the HtmlParser (title, headers, anchors, images, metas and content)
+ * in one traversal of the DOM. The results are the same as the dedicated extractions:
+ * <ul>
+ * <li>title: the first text of /html/head/title</li>
+ * <li>h1 to h6: the text content of the header elements</li>
+ * <li>anchors: the href attribute of the a elements (//a/@href)</li>
+ * <li>images: the src and alt attributes of the img elements</li>
+ * <li>metas: the name and content of the meta elements of the first head element</li>
+ * <li>content: the text nodes, as returned by HtmlUtils.domTextExtractor</li>
+ * </ul>
+ */
+class HtmlDomVisitor {
+
+    private final ParserResult.FieldsBuilder document;
+    private final boolean title;
+    private final boolean headers;
+    private final boolean anchors;
+    private final boolean images;
+    private final boolean content;
+    private final boolean metas;
+    private final ExtractionBudget budget;
+
+    private final List<List<String>> headerTexts;
+    private final Map<String, String> metaMap;
+    private String titleText;
+    private Node firstHead;
+    private boolean contentStopped;
+
+    HtmlDomVisitor(final ParserResult.FieldsBuilder document,
+                   final boolean title,
+                   final boolean headers,
+                   final boolean anchors,
+                   final boolean images,
+                   final boolean content,
+                   final boolean metas,
+                   final ExtractionBudget budget) {
+        this.document = document;
+        this.title = title;
+        this.headers = headers;
+        this.anchors = anchors;
+        this.images = images;
+        this.content = content;
+        this.metas = metas;
+        this.budget = budget;
+        this.headerTexts = new ArrayList<>(6);
+        for (int i = 0; i < 6; i++)
+            headerTexts.add(new ArrayList<>());
+        this.metaMap = new LinkedHashMap<>();
+    }
+
+    private final static ParserField[] HEADER_FIELDS =
+            {HtmlParser.H1, HtmlParser.H2, HtmlParser.H3, HtmlParser.H4, HtmlParser.H5, HtmlParser.H6};
+
+    private final static String[] IGNORED_ELEMENTS = {"script", "style", "object"};
+
+    void visit(final Document htmlDocument) {
+        final Element root = htmlDocument.getDocumentElement();
+        if (root != null)
+            visit(root, false, false);
+        if (title)
+            document.set(ParserInterface.TITLE, titleText == null ? StringUtils.EMPTY : titleText);
+        if (headers)
+            for (int i = 0; i < HEADER_FIELDS.length; i++)
+                for (final String text : headerTexts.get(i))
+                    document.add(HEADER_FIELDS[i], text);
+        if (metas && !metaMap.isEmpty())
+            document.add(HtmlParser.METAS, metaMap);
+    }
+
+    /**
+     * @param node          the current node
+     * @param ignoredText   true if the text is ignored for the content (script, style)
+     * @param inFirstHead   true if the node is inside the first head element
+     */
+    private void visit(final Node node, final boolean ignoredText, final boolean inFirstHead) {
+        switch (node.getNodeType()) {
+        case Node.ELEMENT_NODE:
+            visitElement((Element) node, ignoredText, inFirstHead);
+            break;
+        case Node.TEXT_NODE:
+            if (content && !ignoredText && !contentStopped)
+                addContent(node);
+            break;
+        default:
+            break;
+        }
+    }
+
+    private void visitElement(final Element element, boolean ignoredText, boolean inFirstHead) {
+        final String name = element.getNodeName().toLowerCase();
+        switch (name) {
+        case "head":
+            if (firstHead == null) {
+                firstHead = element;
+                inFirstHead = true;
+            }
+            break;
+        case "title":
+            if (title && titleText == null && isTitlePath(element))
+                titleText = getFirstText(element);
+            break;
+        case "meta":
+            if (metas && inFirstHead) {
+                final String metaName = DomUtils.getAttributeString(element, "name");
+                final String metaContent = DomUtils.getAttributeString(element, "content");
+                if (!StringUtils.isEmpty(metaName) && !StringUtils.isEmpty(metaContent))
+                    metaMap.put(metaName, metaContent);
+            }
+            break;
+        case "a":
+            if (anchors) {
+                final Node href = element.getAttributeNode("href");
+                if (href != null)
+                    document.add(HtmlParser.ANCHORS, DomUtils.getAttributeString(href, "href"));
+            }
+            break;
+        case "img":
+            if (images) {
+                final Map<String, String> map = new LinkedHashMap<>();
+                addToMap(map, "src", DomUtils.getAttributeString(element, "src"));
+                addToMap(map, "alt", DomUtils.getAttributeString(element, "alt"));
+                if (!map.isEmpty())
+                    document.add(HtmlParser.IMAGES, map);
+            }
+            break;
+        default:
+            if (headers && name.length() == 2 && name.charAt(0) == 'h') {
+                final int level = name.charAt(1) - '1';
+                if (level >= 0 && level < 6)
+                    headerTexts.get(level).add(element.getTextContent());
+            }
+            break;
+        }
+        if (!ignoredText)
+            for (final String ignored : IGNORED_ELEMENTS)
+                if (ignored.equals(name))
+                    ignoredText = true;
+        for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling())
+            visit(child, ignoredText, inFirstHead);
+    }
+
+    /**
+     * @return true if the element matches /html/head/title
+     */
+    private static boolean isTitlePath(final Element element) {
+        final Node head = element.getParentNode();
+        if (head == null || !"head".equalsIgnoreCase(head.getNodeName()))
+            return false;
+        final Node html = head.getParentNode();
+        return html != null && "html".equalsIgnoreCase(html.getNodeName()) &&
+                html.getParentNode() != null && html.getParentNode().getNodeType() == Node.DOCUMENT_NODE;
+    }
+
+    /**
+     * @return the value of the first descendant text node (the string value of //text()), or null
+     */
+    private static String getFirstText(final Node node) {
+        for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child.getNodeType() == Node.TEXT_NODE)
+                return child.getNodeValue();
+            final String text = getFirstText(child);
+            if (text != null)
+                return text;
+        }
+        return null;
+    }
+
+    private void addContent(final Node textNode) {
+        try {
+            HtmlUtils.domTextExtractor(textNode, line -> {
+                budget.check();
+                document.add(ParserInterface.CONTENT, line);
+                budget.addCharacters(line.length());
+            });
+        } catch (ExtractionBudget.Exhausted e) {
+            // The lines already extracted are kept
+            contentStopped = true;
+        }
+    }
+
+    private static void addToMap(final Map<String, String> map, final String name, final String value) {
+        if (!StringUtils.isEmpty(value))
+            map.put(name, value);
+    }
+}
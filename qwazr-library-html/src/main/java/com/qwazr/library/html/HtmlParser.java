@@ -21,16 +21,12 @@ import com.qwazr.extractor.ParserField;
 import com.qwazr.extractor.ParserInterface;
 import com.qwazr.extractor.ParserResult;
 import com.qwazr.extractor.ParserUtils;
-import com.qwazr.utils.DomUtils;
-import com.qwazr.utils.HtmlUtils;
-import com.qwazr.utils.IOUtils;
-import com.qwazr.utils.StringUtils;
+import com.qwazr.library.extractor.ExtractionBudget;
+import com.qwazr.library.extractor.FieldProjection;
 import com.qwazr.utils.XPathParser;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.StringReader;
-import java.nio.charset.StandardCharsets;
+import java.io.Reader;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -45,15 +41,16 @@ import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedMap;
 import javax.xml.xpath.XPathExpressionException;
 import org.apache.xerces.parsers.DOMParser;
+import org.apache.xerces.parsers.SAXParser;
 import org.cyberneko.html.HTMLConfiguration;
 import org.w3c.dom.Document;
-import org.w3c.dom.Element;
 import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import se.fishtank.css.selectors.Selectors;
 import se.fishtank.css.selectors.dom.W3CNode;
+import se.fishtank.css.selectors.parser.SelectorGroups;
+import se.fishtank.css.selectors.parser.SelectorParser;
 
 public class HtmlParser implements ParserFactory, ParserInterface {
 
@@ -79,11 +76,47 @@ public class HtmlParser implements ParserFactory, ParserInterface {
         return new DOMParser(getNewHtmlConfiguration());
     }
 
-    private final static ThreadLocal<DOMParser> DOM_PARSER_THREAD_LOCAL =
-            ThreadLocal.withInitial(HtmlParser::getNewDomParser);
+    private final static DomParserPool DOM_PARSER_POOL =
+            new DomParserPool(HtmlParser::getNewDomParser, DomParserPool.DEFAULT_CAPACITY);
 
-    static public DOMParser getThreadLocalDomParser() {
-        return DOM_PARSER_THREAD_LOCAL.get();
+    /**
+     * @return the shared pool of HTML DOM parsers
+     */
+    static public DomParserPool getDomParserPool() {
+        return DOM_PARSER_POOL;
+    }
+
+    /**
+     * Parse an HTML document using a parser borrowed from the pool.
+     * The parser is returned to the pool as soon as the document is built.
+     *
+     * @param inputSource the HTML source
+     * @return the DOM document
+     * @throws IOException  if the source cannot be read
+     * @throws SAXException if the document cannot be parsed
+     */
+    static public Document parseDocument(final InputSource inputSource) throws IOException, SAXException {
+        try (final DomParserPool.Lease lease = DOM_PARSER_POOL.borrow()) {
+            final DOMParser parser = lease.getParser();
+            parser.parse(inputSource);
+            return parser.getDocument();
+        }
+    }
+
+    final static SelectorCache<Pattern> REGEXP_CACHE =
+            new SelectorCache<>("regexp", SelectorCache.DEFAULT_CAPACITY);
+
+    final static SelectorCache<SelectorGroups> CSS_CACHE =
+            new SelectorCache<>("css", SelectorCache.DEFAULT_CAPACITY);
+
+    final static SelectorCache<CompiledXPath> XPATH_CACHE =
+            new SelectorCache<>("xpath", SelectorCache.DEFAULT_CAPACITY);
+
+    /**
+     * @return the caches of the compiled regular expressions, CSS selectors and XPath expressions
+     */
+    static public List<SelectorCache<?>> getSelectorCaches() {
+        return List.of(REGEXP_CACHE, CSS_CACHE, XPATH_CACHE);
     }
 
     final private static MediaType DEFAULT_MIMETYPE = MediaType.valueOf("text/html");
@@ -95,23 +128,23 @@ public class HtmlParser implements ParserFactory, ParserInterface {
     final private static ParserField HEADERS =
             ParserField.newString("headers", "Extract headers (h1, h2, h3, h4, h5, h6)");
 
-    final private static ParserField H1 = ParserField.newString("h1", "H1 header contents");
+    final static ParserField H1 = ParserField.newString("h1", "H1 header contents");
 
-    final private static ParserField H2 = ParserField.newString("h2", "H2 header contents");
+    final static ParserField H2 = ParserField.newString("h2", "H2 header contents");
 
-    final private static ParserField H3 = ParserField.newString("h3", "H3 header contents");
+    final static ParserField H3 = ParserField.newString("h3", "H3 header contents");
 
-    final private static ParserField H4 = ParserField.newString("h4", "H4 header contents");
+    final static ParserField H4 = ParserField.newString("h4", "H4 header contents");
 
-    final private static ParserField H5 = ParserField.newString("h5", "H5 header contents");
+    final static ParserField H5 = ParserField.newString("h5", "H5 header contents");
 
-    final private static ParserField H6 = ParserField.newString("h6", "H6 header contents");
+    final static ParserField H6 = ParserField.newString("h6", "H6 header contents");
 
-    final private static ParserField ANCHORS = ParserField.newString("anchors", "Anchors");
+    final static ParserField ANCHORS = ParserField.newString("anchors", "Anchors");
 
-    final private static ParserField IMAGES = ParserField.newMap("images", "Image tags");
+    final static ParserField IMAGES = ParserField.newMap("images", "Image tags");
 
-    final private static ParserField METAS = ParserField.newMap("metas", "Meta tags");
+    final static ParserField METAS = ParserField.newMap("metas", "Meta tags");
 
     final private static ParserField SELECTORS = ParserField.newMap("selectors", "Selector results");
 
@@ -133,6 +166,9 @@ public class HtmlParser implements ParserFactory, ParserInterface {
     final private static ParserField REGEXP_NAME_PARAM =
             ParserField.newString("regexp_name", "The name of the regular expression");
 
+    final private static ParserField STREAMING_PARAM = ParserField.newString("streaming",
+            "Set to true to extract the fields in one pass without building a DOM. Ignored with xpath or css.");
+
     final private static List<ParserField> PARAMETERS = List.of(
             TITLE,
             CONTENT,
@@ -145,7 +181,11 @@ public class HtmlParser implements ParserFactory, ParserInterface {
             CSS_PARAM,
             CSS_NAME_PARAM,
             REGEXP_PARAM,
-            REGEXP_NAME_PARAM
+            REGEXP_NAME_PARAM,
+            STREAMING_PARAM,
+            FieldProjection.PARAMETER,
+            ExtractionBudget.TIMEOUT_MS,
+            ExtractionBudget.MAX_CHARACTERS
     );
 
     @Override
@@ -158,63 +198,7 @@ public class HtmlParser implements ParserFactory, ParserInterface {
         return FIELDS;
     }
 
-    private void extractTitle(final XPathParser xpath, final Document documentElement,
-                              final ParserResult.FieldsBuilder document) throws XPathExpressionException {
-        final String title = xpath.evaluateString(documentElement, "/html/head/title//text()");
-        if (title != null)
-            document.set(TITLE, title);
-    }
-
-    private void extractHeaders(final Document documentElement, final ParserResult.FieldsBuilder document) {
-        addToField(document, H1, documentElement.getElementsByTagName("h1"));
-        addToField(document, H2, documentElement.getElementsByTagName("h2"));
-        addToField(document, H3, documentElement.getElementsByTagName("h3"));
-        addToField(document, H4, documentElement.getElementsByTagName("h4"));
-        addToField(document, H5, documentElement.getElementsByTagName("h5"));
-        addToField(document, H6, documentElement.getElementsByTagName("h6"));
-    }
-
-    private void extractAnchors(final XPathParser xpath, final Document documentElement,
-                                final ParserResult.FieldsBuilder document) throws XPathExpressionException {
-        DomUtils.forEach(xpath.evaluateNodes(documentElement, "//a/@href"),
-                node -> document.add(ANCHORS, DomUtils.getAttributeString(node, "href")));
-    }
-
-    private void extractImgTags(final Document documentElement, final ParserResult.FieldsBuilder document) {
-        DomUtils.forEach(documentElement.getElementsByTagName("img"), node -> {
-            final Map<String, String> map = new LinkedHashMap<>();
-            addToMap(map, "src", DomUtils.getAttributeString(node, "src"));
-            addToMap(map, "alt", DomUtils.getAttributeString(node, "alt"));
-            if (!map.isEmpty())
-                document.add(IMAGES, map);
-        });
-    }
-
-    private void extractTextContent(final Document documentElement, final ParserResult.FieldsBuilder document) {
-        HtmlUtils.domTextExtractor(documentElement, line -> document.add(CONTENT, line));
-        // Lang detection
-        document.add(LANG_DETECTION, ParserUtils.languageDetection(document, CONTENT, 10000));
-    }
-
-    private void extractMeta(final Document documentElement, final ParserResult.FieldsBuilder document) {
-        NodeList nodeList = documentElement.getElementsByTagName("head");
-        if (nodeList == null || nodeList.getLength() == 0)
-            return;
-        final Node head = nodeList.item(0);
-        if (head.getNodeType() != Node.ELEMENT_NODE)
-            return;
-        final Map<String, String> map = new LinkedHashMap<>();
-        DomUtils.forEach((((Element) head).getElementsByTagName("meta")), meta -> {
-            final String name = DomUtils.getAttributeString(meta, "name");
-            final String content = DomUtils.getAttributeString(meta, "content");
-            if (!StringUtils.isEmpty(name) && !StringUtils.isEmpty(content))
-                map.put(name, content);
-        });
-        if (!map.isEmpty())
-            document.add(METAS, map);
-    }
-
-    private static class ListConsumer extends ArrayList<Object> implements XPathParser.Consumer {
+    static class ListConsumer extends ArrayList<Object> implements XPathParser.Consumer {
 
         @Override
         @JsonIgnore
@@ -256,11 +240,11 @@ public class HtmlParser implements ParserFactory, ParserInterface {
         return parameters;
     }
 
-    private void extractXPath(final Map<String, String> parameters, final XPathParser xPath, final Node htmlDocument,
+    private void extractXPath(final Map<String, String> parameters, final Node htmlDocument,
                               final LinkedHashMap<String, Object> selectorsResult) throws XPathExpressionException {
         for (final Map.Entry<String, String> parameter : parameters.entrySet()) {
             final ListConsumer results = new ListConsumer();
-            xPath.evaluate(htmlDocument, parameter.getValue(), results);
+            XPATH_CACHE.get(parameter.getValue(), CompiledXPath::new).evaluate(htmlDocument, results);
             selectorsResult.put(parameter.getKey(), results);
         }
     }
@@ -270,16 +254,18 @@ public class HtmlParser implements ParserFactory, ParserInterface {
         final Selectors<Node, W3CNode> selectors = new Selectors<>(new W3CNode(htmlDocument));
         for (final Map.Entry<String, String> parameter : parameters.entrySet()) {
             final ListConsumer results = new ListConsumer();
-            selectors.querySelectorAll(parameter.getValue()).forEach(results::accept);
+            selectors.querySelectorAll(CSS_CACHE.get(parameter.getValue(), SelectorParser::parse))
+                    .forEach(results::accept);
             selectorsResult.put(parameter.getKey(), results);
         }
     }
 
-    private void extractRegExp(final Map<String, String> parameters, final String htmlSource,
+    private void extractRegExp(final Map<String, String> parameters, final CharSequence htmlSource,
                                final LinkedHashMap<String, Object> selectorsResult) {
         for (final Map.Entry<String, String> parameter : parameters.entrySet()) {
             final ListConsumer results = new ListConsumer();
-            final Matcher matcher = Pattern.compile(parameter.getValue(), Pattern.DOTALL).matcher(htmlSource);
+            final Matcher matcher = REGEXP_CACHE.get(parameter.getValue(), HtmlParser::compileRegExp)
+                    .matcher(htmlSource);
             final int groupCount = matcher.groupCount();
             while (matcher.find())
                 for (int j = 1; j <= groupCount; j++)
@@ -288,14 +274,66 @@ public class HtmlParser implements ParserFactory, ParserInterface {
         }
     }
 
-    private void addToMap(final Map<String, String> map, final String name, final String value) {
-        if (!StringUtils.isEmpty(value))
-            map.put(name, value);
+    private static Pattern compileRegExp(final String regExp) {
+        return Pattern.compile(regExp, Pattern.DOTALL);
+    }
+
+    private static boolean isRequested(final MultivaluedMap<String, String> parameters, final ParserField field) {
+        return parameters != null && parameters.containsKey(field.name);
+    }
+
+    /**
+     * The streaming mode: the fields are collected by the SAX events, no DOM is built.
+     * The regular expressions still need the whole source.
+     */
+    private void extractStreaming(final MultivaluedMap<String, String> parameters,
+                                  final Reader reader,
+                                  final Map<String, String> regexpParams,
+                                  final ParserResult.Builder resultBuilder,
+                                  final ExtractionBudget budget) throws IOException, SAXException {
+        final LinkedHashMap<String, Object> selectorsResult = new LinkedHashMap<>();
+        final HtmlCharBuffer htmlSource = regexpParams.isEmpty() ?
+                null :
+                HtmlCharBuffer.load(reader);
+        try {
+            if (htmlSource != null)
+                extractRegExp(regexpParams, htmlSource, selectorsResult);
+            extractStreaming(parameters, new InputSource(htmlSource == null ? reader : htmlSource.newReader()),
+                    selectorsResult, resultBuilder, budget);
+        } finally {
+            if (htmlSource != null)
+                htmlSource.release();
+        }
     }
 
-    private void addToField(final ParserResult.FieldsBuilder document, final ParserField parserField,
-                            final NodeList elements) {
-        DomUtils.forEach(elements, node -> document.add(parserField, node.getTextContent()));
+    private void extractStreaming(final MultivaluedMap<String, String> parameters,
+                                  final InputSource inputSource,
+                                  final LinkedHashMap<String, Object> selectorsResult,
+                                  final ParserResult.Builder resultBuilder,
+                                  final ExtractionBudget budget) throws IOException, SAXException {
+        final ParserResult.FieldsBuilder parserDocument = resultBuilder.newDocument();
+        final boolean selectorResultIsEmpty = selectorsResult.isEmpty();
+        if (!selectorResultIsEmpty)
+            parserDocument.set(SELECTORS, selectorsResult);
+
+        final FieldProjection projection = FieldProjection.of(parameters);
+        final boolean content = (selectorResultIsEmpty && projection.hasAny(CONTENT, LANG_DETECTION)) ||
+                isRequested(parameters, CONTENT);
+        final HtmlStreamHandler handler = new HtmlStreamHandler(parserDocument,
+                (selectorResultIsEmpty && projection.has(TITLE)) || isRequested(parameters, TITLE),
+                (selectorResultIsEmpty && projection.hasAny(H1, H2, H3, H4, H5, H6)) ||
+                        isRequested(parameters, HEADERS),
+                (selectorResultIsEmpty && projection.has(ANCHORS)) || isRequested(parameters, ANCHORS),
+                (selectorResultIsEmpty && projection.has(IMAGES)) || isRequested(parameters, IMAGES),
+                content,
+                (selectorResultIsEmpty && projection.has(METAS)) || isRequested(parameters, METAS),
+                budget);
+        final SAXParser saxParser = new SAXParser(getNewHtmlConfiguration());
+        saxParser.setContentHandler(handler);
+        saxParser.parse(inputSource);
+        if (content && projection.has(LANG_DETECTION))
+            parserDocument.add(LANG_DETECTION, ParserUtils.languageDetection(parserDocument, CONTENT, 10000));
+        budget.markTruncated(resultBuilder.metas());
     }
 
     @Override
@@ -304,6 +342,8 @@ public class HtmlParser implements ParserFactory, ParserInterface {
                                 final MediaType mediaType) throws IOException {
 
         final ParserResult.Builder resultBuilder = ParserResult.of(NAME);
+        final ExtractionBudget budget = ExtractionBudget.of(parameters);
+        HtmlCharBuffer htmlSource = null;
         try {
             if (mediaType != null)
                 resultBuilder.metas().set(MIME_TYPE, mediaType.toString());
@@ -312,28 +352,30 @@ public class HtmlParser implements ParserFactory, ParserInterface {
             final Map<String, String> cssParams = extractPrefixParameters(parameters, CSS_PARAM, CSS_NAME_PARAM);
             final Map<String, String> regexpParams =
                     extractPrefixParameters(parameters, REGEXP_PARAM, REGEXP_NAME_PARAM);
-            final boolean isSelector = !(xPathParams.isEmpty() && cssParams.isEmpty() && regexpParams.isEmpty());
 
-            final DOMParser htmlParser = getThreadLocalDomParser();
+            // The charset is detected from the byte order mark, the content type or the meta tags
+            final Reader reader = HtmlCharsetSniffer.newReader(inputStream, mediaType);
 
-            final String htmlSource;
-            if (!regexpParams.isEmpty()) {
-                htmlSource = IOUtils.toString(inputStream, StandardCharsets.UTF_8);
-                htmlParser.parse(new InputSource(new StringReader(htmlSource)));
-            } else {
-                htmlSource = null;
-                htmlParser.parse(new InputSource(new InputStreamReader(inputStream, StandardCharsets.UTF_8)));
+            if (xPathParams.isEmpty() && cssParams.isEmpty() &&
+                    Boolean.parseBoolean(ParserUtils.getParameterValue(parameters, STREAMING_PARAM, 0))) {
+                extractStreaming(parameters, reader, regexpParams, resultBuilder, budget);
+                return resultBuilder.build();
             }
 
+            // With regular expressions, the characters are decoded once for both the parser and the matchers
+            final Document htmlDocument;
+            if (!regexpParams.isEmpty()) {
+                htmlSource = HtmlCharBuffer.load(reader);
+                htmlDocument = parseDocument(new InputSource(htmlSource.newReader()));
+            } else
+                htmlDocument = parseDocument(new InputSource(reader));
+
             final ParserResult.FieldsBuilder parserDocument = resultBuilder.newDocument();
 
             final LinkedHashMap<String, Object> selectorsResult = new LinkedHashMap<>();
 
-            final Document htmlDocument = htmlParser.getDocument();
-            final XPathParser xPath = !xPathParams.isEmpty() || !isSelector ? new XPathParser() : null;
-
             if (!xPathParams.isEmpty())
-                extractXPath(xPathParams, xPath, htmlDocument, selectorsResult);
+                extractXPath(xPathParams, htmlDocument, selectorsResult);
             if (!cssParams.isEmpty())
                 extractCss(cssParams, htmlDocument, selectorsResult);
             if (!regexpParams.isEmpty())
@@ -343,22 +385,30 @@ public class HtmlParser implements ParserFactory, ParserInterface {
             if (!selectorResultIsEmpty)
                 parserDocument.set(SELECTORS, selectorsResult);
 
-            if (selectorResultIsEmpty || (parameters != null && parameters.containsKey(TITLE.name)))
-                extractTitle(xPath, htmlDocument, parserDocument);
-            if (selectorResultIsEmpty || (parameters != null && parameters.containsKey(HEADERS.name)))
-                extractHeaders(htmlDocument, parserDocument);
-            if (selectorResultIsEmpty || (parameters != null && parameters.containsKey(ANCHORS.name)))
-                extractAnchors(xPath, htmlDocument, parserDocument);
-            if (selectorResultIsEmpty || (parameters != null && parameters.containsKey(IMAGES.name)))
-                extractImgTags(htmlDocument, parserDocument);
-            if (selectorResultIsEmpty || (parameters != null && parameters.containsKey(CONTENT.name)))
-                extractTextContent(htmlDocument, parserDocument);
-            if (selectorResultIsEmpty || (parameters != null && parameters.containsKey(METAS.name)))
-                extractMeta(htmlDocument, parserDocument);
+            final FieldProjection projection = FieldProjection.of(parameters);
+
+            // The default fields are collected in one traversal of the DOM
+            final boolean content = (selectorResultIsEmpty && projection.hasAny(CONTENT, LANG_DETECTION)) ||
+                    isRequested(parameters, CONTENT);
+            new HtmlDomVisitor(parserDocument,
+                    (selectorResultIsEmpty && projection.has(TITLE)) || isRequested(parameters, TITLE),
+                    (selectorResultIsEmpty && projection.hasAny(H1, H2, H3, H4, H5, H6)) ||
+                            isRequested(parameters, HEADERS),
+                    (selectorResultIsEmpty && projection.has(ANCHORS)) || isRequested(parameters, ANCHORS),
+                    (selectorResultIsEmpty && projection.has(IMAGES)) || isRequested(parameters, IMAGES),
+                    content,
+                    (selectorResultIsEmpty && projection.has(METAS)) || isRequested(parameters, METAS),
+                    budget).visit(htmlDocument);
+            if (content && projection.has(LANG_DETECTION))
+                parserDocument.add(LANG_DETECTION, ParserUtils.languageDetection(parserDocument, CONTENT, 10000));
+            budget.markTruncated(resultBuilder.metas());
         } catch (SAXException e) {
             throw new InternalServerErrorException(e);
         } catch (XPathExpressionException e) {
             throw new NotAcceptableException("Error in the XPATH expression: " + e.getMessage(), e);
+        } finally {
+            if (htmlSource != null)
+                htmlSource.release();
         }
         return resultBuilder.build();
     }
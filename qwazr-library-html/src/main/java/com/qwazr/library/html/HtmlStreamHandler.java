@@ -0,0 +1,252 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.library.html;
+
+import com.qwazr.extractor.ParserField;
+import com.qwazr.extractor.ParserInterface;
+import com.qwazr.extractor.ParserResult;
+import com.qwazr.library.extractor.ExtractionBudget;
+import com.qwazr.utils.StringUtils;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Extracts the default fields of the HtmlParser in one pass of the NekoHTML SAX pipeline, without building a DOM.
+ * The memory used depends on the extracted fields, not on the size of the page.
+ * The fields are the same as the ones collected by {@link HtmlDomVisitor}: the title is the first text node of the
+ * title element (an empty string if there is none), and the text of the script, style and object elements is not
+ * part of the content.
+ */
+class HtmlStreamHandler extends DefaultHandler {
+
+    private final ParserResult.FieldsBuilder document;
+    private final boolean title;
+    private final boolean headers;
+    private final boolean anchors;
+    private final boolean images;
+    private final boolean content;
+    private final boolean metas;
+    private final ExtractionBudget budget;
+
+    private final Map<String, String> metaMap;
+    private final Deque<Capture> headerCaptures;
+    private final StringBuilder text;
+    private StringBuilder titleText;
+    private String titleValue;
+    private boolean titleDone;
+    private boolean contentStopped;
+    private int headDepth;
+    private int ignoredDepth;
+
+    HtmlStreamHandler(final ParserResult.FieldsBuilder document,
+                      final boolean title,
+                      final boolean headers,
+                      final boolean anchors,
+                      final boolean images,
+                      final boolean content,
+                      final boolean metas,
+                      final ExtractionBudget budget) {
+        this.document = document;
+        this.title = title;
+        this.headers = headers;
+        this.anchors = anchors;
+        this.images = images;
+        this.content = content;
+        this.metas = metas;
+        this.budget = budget;
+        this.metaMap = new LinkedHashMap<>();
+        this.headerCaptures = new ArrayDeque<>();
+        this.text = new StringBuilder();
+    }
+
+    private static String getName(final String localName, final String qName) {
+        return StringUtils.isEmpty(localName) ? qName.toLowerCase() : localName.toLowerCase();
+    }
+
+    private static ParserField getHeaderField(final String name) {
+        if (name.length() != 2 || name.charAt(0) != 'h')
+            return null;
+        switch (name.charAt(1)) {
+        case '1':
+            return HtmlParser.H1;
+        case '2':
+            return HtmlParser.H2;
+        case '3':
+            return HtmlParser.H3;
+        case '4':
+            return HtmlParser.H4;
+        case '5':
+            return HtmlParser.H5;
+        case '6':
+            return HtmlParser.H6;
+        default:
+            return null;
+        }
+    }
+
+    private static boolean isIgnored(final String name) {
+        return "script".equals(name) || "style".equals(name) || "object".equals(name);
+    }
+
+    /**
+     * The first text node of the title ends with the next element event
+     */
+    private void flushTitle() {
+        if (titleText == null || titleText.length() == 0)
+            return;
+        titleValue = titleText.toString();
+        titleText = null;
+        titleDone = true;
+    }
+
+    @Override
+    public void startElement(final String uri, final String localName, final String qName,
+                             final Attributes attributes) {
+        flushText();
+        flushTitle();
+        final String name = getName(localName, qName);
+        if (isIgnored(name)) {
+            ignoredDepth++;
+            return;
+        }
+        switch (name) {
+        case "head":
+            headDepth++;
+            break;
+        case "title":
+            if (title && headDepth > 0 && !titleDone)
+                titleText = new StringBuilder();
+            break;
+        case "meta":
+            if (metas && headDepth > 0) {
+                final String metaName = attributes.getValue("name");
+                final String metaContent = attributes.getValue("content");
+                if (!StringUtils.isEmpty(metaName) && !StringUtils.isEmpty(metaContent))
+                    metaMap.put(metaName, metaContent);
+            }
+            break;
+        case "a":
+            if (anchors) {
+                final String href = attributes.getValue("href");
+                if (href != null)
+                    document.add(HtmlParser.ANCHORS, href);
+            }
+            break;
+        case "img":
+            if (images) {
+                final Map<String, String> map = new LinkedHashMap<>();
+                final String src = attributes.getValue("src");
+                if (!StringUtils.isEmpty(src))
+                    map.put("src", src);
+                final String alt = attributes.getValue("alt");
+                if (!StringUtils.isEmpty(alt))
+                    map.put("alt", alt);
+                if (!map.isEmpty())
+                    document.add(HtmlParser.IMAGES, map);
+            }
+            break;
+        default:
+            if (headers) {
+                final ParserField headerField = getHeaderField(name);
+                if (headerField != null)
+                    headerCaptures.push(new Capture(name, headerField));
+            }
+            break;
+        }
+    }
+
+    @Override
+    public void endElement(final String uri, final String localName, final String qName) {
+        flushText();
+        flushTitle();
+        final String name = getName(localName, qName);
+        if (isIgnored(name)) {
+            ignoredDepth--;
+            return;
+        }
+        switch (name) {
+        case "head":
+            headDepth--;
+            break;
+        case "title":
+            // An empty title is skipped, like the first text of /html/head/title
+            titleText = null;
+            break;
+        default:
+            if (!headerCaptures.isEmpty() && headerCaptures.peek().name.equals(name)) {
+                final Capture capture = headerCaptures.pop();
+                document.add(capture.field, capture.text.toString());
+            }
+            break;
+        }
+    }
+
+    @Override
+    public void characters(final char[] ch, final int start, final int length) {
+        if (titleText != null)
+            titleText.append(ch, start, length);
+        // The headers keep the whole text content, as Node.getTextContent()
+        for (final Capture capture : headerCaptures)
+            capture.text.append(ch, start, length);
+        if (content && ignoredDepth == 0 && !contentStopped)
+            text.append(ch, start, length);
+    }
+
+    @Override
+    public void endDocument() {
+        flushText();
+        flushTitle();
+        if (title)
+            document.set(ParserInterface.TITLE, titleValue == null ? StringUtils.EMPTY : titleValue);
+        if (!metaMap.isEmpty())
+            document.add(HtmlParser.METAS, metaMap);
+    }
+
+    /**
+     * A text node is complete when an element starts or ends
+     */
+    private void flushText() {
+        if (text.length() == 0)
+            return;
+        final String line = text.toString().trim();
+        text.setLength(0);
+        if (line.isEmpty())
+            return;
+        if (budget.isExhausted()) {
+            contentStopped = true;
+            return;
+        }
+        document.add(ParserInterface.CONTENT, line);
+        budget.addCharacters(line.length());
+    }
+
+    private static class Capture {
+
+        private final String name;
+        private final ParserField field;
+        private final StringBuilder text;
+
+        private Capture(final String name, final ParserField field) {
+            this.name = name;
+            this.field = field;
+            this.text = new StringBuilder();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.library.html;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded LRU cache of compiled selectors (regular expressions, CSS selectors, XPath expressions)
+ * keyed by the expression string.
+ * <p>
+ * The compilation is done outside of the lock: two threads missing the same expression may both compile it,
+ * the last one wins. The default capacity is given by the system property
+ * com.qwazr.library.html.selector_cache_size (1000 entries per kind of selector).
+ *
+ * @param <T> the type of the compiled selector
+ */
+public class SelectorCache<T> {
+
+    public final static int DEFAULT_CAPACITY =
+            Integer.getInteger("com.qwazr.library.html.selector_cache_size", 1000);
+
+    @FunctionalInterface
+    interface Compiler<T, E extends Exception> {
+        T compile(String expression) throws E;
+    }
+
+    private final String name;
+
+    private final int capacity;
+
+    private final LinkedHashMap<String, T> cache;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    SelectorCache(final String name, final int capacity) {
+        this.name = name;
+        this.capacity = capacity;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, T> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * @param expression the selector
+     * @param compiler   called on a cache miss
+     * @return the compiled selector
+     * @throws E if the selector cannot be compiled (the failure is not cached)
+     */
+    <E extends Exception> T get(final String expression, final Compiler<T, E> compiler) throws E {
+        synchronized (cache) {
+            final T compiled = cache.get(expression);
+            if (compiled != null) {
+                hits.increment();
+                return compiled;
+            }
+        }
+        misses.increment();
+        final T compiled = compiler.compile(expression);
+        if (capacity > 0) {
+            synchronized (cache) {
+                cache.put(expression, compiled);
+            }
+        }
+        return compiled;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public int getSize() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * Remove every compiled selector and reset the counters
+     */
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+        hits.reset();
+        misses.reset();
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.library.html;
+
+import java.io.StringReader;
+import org.apache.xerces.parsers.DOMParser;
+import org.junit.Assert;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+
+public class DomParserPoolTest {
+
+    @Test
+    public void borrowAndReturn() throws Exception {
+        final DomParserPool pool = new DomParserPool(HtmlParser::getNewDomParser, 1);
+        final DOMParser parser;
+        try (final DomParserPool.Lease lease = pool.borrow()) {
+            parser = lease.getParser();
+            parser.parse(new InputSource(new StringReader("<html><body><p>Hello</p></body></html>")));
+            Assert.assertNotNull(parser.getDocument());
+            Assert.assertEquals(1, pool.getInUse());
+        }
+        // The returned parser does not retain the document
+        Assert.assertNull(parser.getDocument());
+        Assert.assertEquals(0, pool.getInUse());
+        Assert.assertEquals(1, pool.getIdle());
+
+        // The idle parser is reused
+        try (final DomParserPool.Lease lease = pool.borrow()) {
+            Assert.assertSame(parser, lease.getParser());
+            // The pool is empty, a new parser is created
+            try (final DomParserPool.Lease lease2 = pool.borrow()) {
+                Assert.assertNotSame(parser, lease2.getParser());
+            }
+        }
+        Assert.assertEquals(3, pool.getBorrowed());
+        Assert.assertEquals(2, pool.getCreated());
+        // Only one idle parser is kept
+        Assert.assertEquals(1, pool.getIdle());
+        Assert.assertEquals(1, pool.getDiscarded());
+    }
+
+    @Test
+    public void parseDocument() throws Exception {
+        final Document document =
+                HtmlParser.parseDocument(new InputSource(new StringReader("<html><body><p>Hello</p></body></html>")));
+        Assert.assertEquals(1, document.getElementsByTagName("p").getLength());
+        Assert.assertEquals(0, HtmlParser.getDomParserPool().getInUse());
+    }
+}
@@ -16,12 +16,31 @@
 package com.qwazr.library.html;
 
 import com.qwazr.extractor.ExtractorManager;
+import com.qwazr.extractor.ParserField;
 import com.qwazr.extractor.ParserResult;
 import com.qwazr.extractor.ParserTest;
+import com.qwazr.library.extractor.ExtractionBudget;
+import com.qwazr.library.extractor.FieldProjection;
+import com.qwazr.utils.DomUtils;
+import com.qwazr.utils.HtmlUtils;
+import com.qwazr.utils.ObjectMappers;
+import com.qwazr.utils.StringUtils;
+import com.qwazr.utils.XPathParser;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
 import javax.ws.rs.core.MediaType;
+import javax.xml.xpath.XPathExpressionException;
 import org.junit.Assert;
 import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
 
 import javax.ws.rs.core.MultivaluedHashMap;
 import javax.ws.rs.core.MultivaluedMap;
@@ -102,4 +121,200 @@ public class HtmlParserTest extends ParserTest {
         testSelector(null, REGEXP_SELECTORS, "regexp", REGEXP_RESULTS);
         testSelector(REGEXP_NAMES, REGEXP_SELECTORS, "regexp", REGEXP_RESULTS);
     }
+
+    @Test
+    public void testRegExpLargePage() throws IOException {
+        final StringBuilder sb = new StringBuilder("<html><body>");
+        for (int i = 0; i < 20000; i++)
+            sb.append("<p>paragraph ").append(i).append("</p>");
+        sb.append("<p id=\"last\">the end</p></body></html>");
+        final byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+        for (final String streaming : new String[] { "false", "true" }) {
+            final MultivaluedMap<String, String> map = new MultivaluedHashMap<>();
+            map.add("regexp", "<p id=\"last\">(.*?)</p>");
+            map.add("streaming", streaming);
+            final ParserResult result =
+                    new HtmlParser().extract(map, new ByteArrayInputStream(bytes), MediaType.TEXT_HTML_TYPE);
+            final Map<String, List<String>> selectors =
+                    (Map<String, List<String>>) result.getDocumentFieldValue(0, "selectors", 0);
+            Assert.assertEquals(streaming, List.of("the end"), selectors.get("0"));
+        }
+    }
+
+    private static String extractTitle(final byte[] bytes, final MediaType mediaType) throws IOException {
+        final ParserResult result =
+                new HtmlParser().extract(new MultivaluedHashMap<>(), new ByteArrayInputStream(bytes), mediaType);
+        return result.getDocumentFieldValue(0, "title", 0).toString();
+    }
+
+    @Test
+    public void testCharset() throws IOException {
+        final String title = "Caf\u00e9 cr\u00e8me";
+        // Meta charset
+        Assert.assertEquals(title, extractTitle(("<html><head><meta charset=\"iso-8859-1\"><title>" + title +
+                "</title></head></html>").getBytes(StandardCharsets.ISO_8859_1), MediaType.TEXT_HTML_TYPE));
+        // Meta http-equiv
+        Assert.assertEquals(title, extractTitle(("<html><head>" +
+                "<meta http-equiv=\"Content-Type\" content=\"text/html; charset=windows-1252\"><title>" + title +
+                "</title></head></html>").getBytes(Charset.forName("windows-1252")), MediaType.TEXT_HTML_TYPE));
+        // The content type wins over the meta
+        Assert.assertEquals(title, extractTitle(("<html><head><meta charset=\"utf-8\"><title>" + title +
+                        "</title></head></html>").getBytes(StandardCharsets.ISO_8859_1),
+                MediaType.valueOf("text/html; charset=ISO-8859-1")));
+        // The byte order mark wins over everything
+        Assert.assertEquals(title, extractTitle(("\ufeff<html><head><title>" + title + "</title></head></html>")
+                .getBytes(StandardCharsets.UTF_16LE), MediaType.valueOf("text/html; charset=ISO-8859-1")));
+        // UTF-8 by default
+        Assert.assertEquals(title, extractTitle(("<html><head><title>" + title + "</title></head></html>")
+                .getBytes(StandardCharsets.UTF_8), null));
+    }
+
+    @Test
+    public void testSelectorCache() throws IOException {
+        final long xPathHits = HtmlParser.XPATH_CACHE.getHits();
+        final long cssHits = HtmlParser.CSS_CACHE.getHits();
+        final long regExpHits = HtmlParser.REGEXP_CACHE.getHits();
+        testSelector(null, XPATH_SELECTORS, "xpath", XPATH_RESULTS);
+        testSelector(null, XPATH_SELECTORS, "xpath", XPATH_RESULTS);
+        testSelector(null, CSS_SELECTORS, "css", CSS_RESULTS);
+        testSelector(null, CSS_SELECTORS, "css", CSS_RESULTS);
+        testSelector(null, REGEXP_SELECTORS, "regexp", REGEXP_RESULTS);
+        testSelector(null, REGEXP_SELECTORS, "regexp", REGEXP_RESULTS);
+        Assert.assertTrue(HtmlParser.XPATH_CACHE.getHits() >= xPathHits + XPATH_SELECTORS.length);
+        Assert.assertTrue(HtmlParser.CSS_CACHE.getHits() >= cssHits + CSS_SELECTORS.length);
+        Assert.assertTrue(HtmlParser.REGEXP_CACHE.getHits() >= regExpHits + REGEXP_SELECTORS.length);
+        for (final SelectorCache<?> cache : HtmlParser.getSelectorCaches())
+            Assert.assertTrue(cache.getName(), cache.getSize() <= cache.getCapacity());
+    }
+
+    @Test
+    public void testFieldsProjection() throws IOException {
+        final MultivaluedMap<String, String> map = new MultivaluedHashMap<>();
+        map.add(FieldProjection.PARAMETER.name, "title,h1");
+        final ParserResult result = new HtmlParser().extract(map, getStream("file.html"), MediaType.TEXT_HTML_TYPE);
+        Assert.assertEquals("OpenSearchServer | Open Source Search Engine and API",
+                result.getDocumentFieldValue(0, "title", 0).toString().trim());
+        final String json = ObjectMappers.JSON.writeValueAsString(result);
+        Assert.assertFalse(json.contains("\"content\""));
+        Assert.assertFalse(json.contains("\"lang_detection\""));
+    }
+
+    @Test
+    public void testMaxCharacters() throws IOException {
+        final MultivaluedMap<String, String> map = new MultivaluedHashMap<>();
+        map.add(ExtractionBudget.MAX_CHARACTERS.name, "20");
+        final ParserResult result = new HtmlParser().extract(map, getStream("file.html"), MediaType.TEXT_HTML_TYPE);
+        final String json = ObjectMappers.JSON.writeValueAsString(result);
+        Assert.assertTrue(json.contains("\"truncated\""));
+        Assert.assertTrue(json.contains("\"max_characters\""));
+    }
+
+    @Test
+    public void testStreaming() throws IOException {
+        final ParserResult domResult =
+                new HtmlParser().extract(new MultivaluedHashMap<>(), getStream("file.html"), MediaType.TEXT_HTML_TYPE);
+        final MultivaluedMap<String, String> map = new MultivaluedHashMap<>();
+        map.add("streaming", "true");
+        final ParserResult saxResult = new HtmlParser().extract(map, getStream("file.html"), MediaType.TEXT_HTML_TYPE);
+        for (final String field : new String[] { "title", "h3", "h5", "images", "metas" })
+            Assert.assertEquals(field, domResult.getDocumentFieldValue(0, field, 0),
+                    saxResult.getDocumentFieldValue(0, field, 0));
+        Assert.assertEquals(domResult.getDocumentFieldValue(0, "h5", 8), saxResult.getDocumentFieldValue(0, "h5", 8));
+        Assert.assertNotNull(saxResult.getDocumentFieldValue(0, "anchors", 0));
+        Assert.assertTrue(ObjectMappers.JSON.writeValueAsString(saxResult).contains("search engine software"));
+    }
+
+    private static void checkSameFields(final String html) throws IOException {
+        final byte[] bytes = html.getBytes(StandardCharsets.UTF_8);
+        final ParserResult domResult = new HtmlParser().extract(new MultivaluedHashMap<>(),
+                new ByteArrayInputStream(bytes), MediaType.TEXT_HTML_TYPE);
+        final MultivaluedMap<String, String> map = new MultivaluedHashMap<>();
+        map.add("streaming", "true");
+        final ParserResult saxResult =
+                new HtmlParser().extract(map, new ByteArrayInputStream(bytes), MediaType.TEXT_HTML_TYPE);
+        // The JSON trees are compared, the order of the fields does not matter
+        Assert.assertEquals(ObjectMappers.JSON.readTree(ObjectMappers.JSON.writeValueAsString(domResult)),
+                ObjectMappers.JSON.readTree(ObjectMappers.JSON.writeValueAsString(saxResult)));
+    }
+
+    @Test
+    public void testStreamingSameFields() throws IOException {
+        checkSameFields("<html><head><title>Tom &amp; Jerry</title>" +
+                "<meta name=\"description\" content=\"A cat and a mouse\"></head>" +
+                "<body><h1>First <script>var header;</script>header</h1>" +
+                "<object data=\"movie.swf\">Flash fallback</object>" +
+                "<p>Some text <a href=\"page.html\">a link</a></p>" +
+                "<h2>Second header</h2><img src=\"image.png\" alt=\"An image\">" +
+                "<style>p {color: red;}</style><p>The end</p></body></html>");
+        // Without title, both modes return an empty title
+        checkSameFields("<html><body><p>No title</p></body></html>");
+    }
+
+    /**
+     * The default field extraction before the single-pass visitor: one walk of the DOM per field
+     * (the baseline of the benchmark module).
+     */
+    private static void legacyExtract(final Document htmlDocument, final ParserResult.FieldsBuilder document)
+            throws XPathExpressionException {
+        final XPathParser xpath = new XPathParser();
+        final String title = xpath.evaluateString(htmlDocument, "/html/head/title//text()");
+        if (title != null)
+            document.set(HtmlParser.TITLE, title);
+        final ParserField[] headers =
+                { HtmlParser.H1, HtmlParser.H2, HtmlParser.H3, HtmlParser.H4, HtmlParser.H5, HtmlParser.H6 };
+        for (final ParserField header : headers)
+            DomUtils.forEach(htmlDocument.getElementsByTagName(header.name),
+                    node -> document.add(header, node.getTextContent()));
+        DomUtils.forEach(xpath.evaluateNodes(htmlDocument, "//a/@href"),
+                node -> document.add(HtmlParser.ANCHORS, DomUtils.getAttributeString(node, "href")));
+        DomUtils.forEach(htmlDocument.getElementsByTagName("img"), node -> {
+            final Map<String, String> map = new LinkedHashMap<>();
+            final String src = DomUtils.getAttributeString(node, "src");
+            if (!StringUtils.isEmpty(src))
+                map.put("src", src);
+            final String alt = DomUtils.getAttributeString(node, "alt");
+            if (!StringUtils.isEmpty(alt))
+                map.put("alt", alt);
+            if (!map.isEmpty())
+                document.add(HtmlParser.IMAGES, map);
+        });
+        HtmlUtils.domTextExtractor(htmlDocument, line -> document.add(HtmlParser.CONTENT, line));
+        final NodeList heads = htmlDocument.getElementsByTagName("head");
+        if (heads == null || heads.getLength() == 0 || heads.item(0).getNodeType() != Node.ELEMENT_NODE)
+            return;
+        final Map<String, String> metas = new LinkedHashMap<>();
+        DomUtils.forEach(((Element) heads.item(0)).getElementsByTagName("meta"), meta -> {
+            final String name = DomUtils.getAttributeString(meta, "name");
+            final String content = DomUtils.getAttributeString(meta, "content");
+            if (!StringUtils.isEmpty(name) && !StringUtils.isEmpty(content))
+                metas.put(name, content);
+        });
+        if (!metas.isEmpty())
+            document.add(HtmlParser.METAS, metas);
+    }
+
+    private static void checkSameAsLegacy(final InputSource inputSource) throws Exception {
+        final Document htmlDocument = HtmlParser.parseDocument(inputSource);
+        final ParserResult.Builder visitorResult = ParserResult.of("html");
+        new HtmlDomVisitor(visitorResult.newDocument(), true, true, true, true, true, true,
+                ExtractionBudget.of(0, 0)).visit(htmlDocument);
+        final ParserResult.Builder legacyResult = ParserResult.of("html");
+        legacyExtract(htmlDocument, legacyResult.newDocument());
+        // The JSON trees are compared, the order of the fields does not matter
+        Assert.assertEquals(ObjectMappers.JSON.readTree(ObjectMappers.JSON.writeValueAsString(legacyResult.build())),
+                ObjectMappers.JSON.readTree(ObjectMappers.JSON.writeValueAsString(visitorResult.build())));
+    }
+
+    @Test
+    public void testDomVisitorSameAsLegacy() throws Exception {
+        checkSameAsLegacy(new InputSource(getStream("file.html")));
+        checkSameAsLegacy(new InputSource(new StringReader("<html><head><title>Tom &amp; Jerry</title>" +
+                "<meta name=\"description\" content=\"A cat and a mouse\"></head>" +
+                "<body><h1>First <script>var header;</script>header</h1>" +
+                "<object data=\"movie.swf\">Flash fallback</object>" +
+                "<p>Some text <a href=\"page.html\">a link</a></p>" +
+                "<h2>Second header</h2><h6>Last <em>header</em></h6><img src=\"image.png\" alt=\"An image\">" +
+                "<style>p {color: red;}</style><p>The end</p></body></html>")));
+        checkSameAsLegacy(new InputSource(new StringReader("<html><body><p>No title</p></body></html>")));
+    }
 }
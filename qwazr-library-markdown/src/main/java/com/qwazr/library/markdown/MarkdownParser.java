@@ -20,6 +20,7 @@ import com.qwazr.extractor.ParserField;
 import com.qwazr.extractor.ParserInterface;
 import com.qwazr.extractor.ParserResult;
 import com.qwazr.extractor.ParserUtils;
+import com.qwazr.library.extractor.FieldProjection;
 import com.qwazr.utils.StringUtils;
 import java.io.IOException;
 import java.io.InputStream;
@@ -69,11 +70,20 @@ public class MarkdownParser implements ParserInterface, ParserFactory {
 
     final static Collection<ParserField> FIELDS = List.of(H1, H2, H3, H4, H5, H6, CONTENT, URL, URL_TITLE, LANG_DETECTION);
 
+    final static Collection<ParserField> RENDERED_FIELDS = List.of(H1, H2, H3, H4, H5, H6, URL, URL_TITLE);
+
+    final static Collection<ParserField> PARAMETERS = List.of(FieldProjection.PARAMETER);
+
     @Override
     public Collection<ParserField> getFields() {
         return FIELDS;
     }
 
+    @Override
+    public Collection<ParserField> getParameters() {
+        return PARAMETERS;
+    }
+
     @Override
     public Collection<String> getSupportedFileExtensions() {
         return DEFAULT_EXTENSIONS;
@@ -100,6 +110,7 @@ public class MarkdownParser implements ParserInterface, ParserFactory {
                                       final MediaType mimeType) throws IOException {
 
         ParserResult.Builder builder = ParserResult.of(NAME);
+        final FieldProjection projection = FieldProjection.of(parameters);
         builder.metas().set(MIME_TYPE, DEFAULT_MEDIATYPE.toString());
         final ParserResult.FieldsBuilder result = builder.newDocument();
         final Parser parser = Parser.builder().build();
@@ -110,13 +121,15 @@ public class MarkdownParser implements ParserInterface, ParserFactory {
         }
 
         // First pass we extract the meta data fields
-        TextContentRenderer.builder()
-                .nodeRendererFactory(context -> new ExtractorNodeRenderer(result))
-                .build()
-                .render(documentNode);
+        if (projection.hasAny(RENDERED_FIELDS))
+            TextContentRenderer.builder()
+                    .nodeRendererFactory(context -> new ExtractorNodeRenderer(result))
+                    .build()
+                    .render(documentNode);
 
         // Second pass we extract the text content
-        final String text = TextContentRenderer.builder().build().render(documentNode);
+        final String text =
+                projection.has(CONTENT) ? TextContentRenderer.builder().build().render(documentNode) : null;
         if (text != null) {
             final String[] lines = StringUtils.splitLines(text);
             for (String line : lines)
@@ -20,6 +20,7 @@ import com.qwazr.extractor.ParserField;
 import com.qwazr.extractor.ParserInterface;
 import com.qwazr.extractor.ParserResult;
 import com.qwazr.extractor.ParserUtils;
+import com.qwazr.library.extractor.FieldProjection;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Path;
@@ -79,6 +80,8 @@ public class OdfParser implements ParserFactory, ParserInterface {
             LANG_DETECTION
     );
 
+    final static List<ParserField> PARAMETERS = List.of(FieldProjection.PARAMETER);
+
     @Override
     public String getName() {
         return NAME;
@@ -94,6 +97,11 @@ public class OdfParser implements ParserFactory, ParserInterface {
         return FIELDS;
     }
 
+    @Override
+    public Collection<ParserField> getParameters() {
+        return PARAMETERS;
+    }
+
     @Override
     public Collection<String> getSupportedFileExtensions() {
         return TYPES_MAP.keySet();
@@ -105,7 +113,8 @@ public class OdfParser implements ParserFactory, ParserInterface {
     }
 
     private ParserResult parseContent(final Document document,
-                                      final MediaType mediaType) throws Exception {
+                                      final MediaType mediaType,
+                                      final FieldProjection projection) throws Exception {
         final ParserResult.Builder resultBuilder = ParserResult.of(NAME);
         if (mediaType != null)
             resultBuilder.metas().set(MIME_TYPE, mediaType.toString());
@@ -126,13 +135,17 @@ public class OdfParser implements ParserFactory, ParserInterface {
                 metas.add(LANGUAGE, meta.getLanguage());
             }
 
+            if (!projection.hasAny(CONTENT, LANG_DETECTION))
+                return resultBuilder.build();
+
             final OdfElement odfElement = document.getContentRoot();
             if (odfElement != null) {
                 final ParserResult.FieldsBuilder result = resultBuilder.newDocument();
                 String text = TextExtractor.newOdfTextExtractor(odfElement).getText();
                 if (text != null) {
                     result.add(CONTENT, text);
-                    result.add(LANG_DETECTION, ParserUtils.languageDetection(result, CONTENT, 10000));
+                    if (projection.has(LANG_DETECTION))
+                        result.add(LANG_DETECTION, ParserUtils.languageDetection(result, CONTENT, 10000));
                 }
             }
         } finally {
@@ -147,7 +160,7 @@ public class OdfParser implements ParserFactory, ParserInterface {
                                 final InputStream inputStream,
                                 final MediaType mimeType) throws IOException {
         try {
-            return parseContent(Document.loadDocument(inputStream), mimeType);
+            return parseContent(Document.loadDocument(inputStream), mimeType, FieldProjection.of(parameters));
         } catch (IOException e) {
             throw e;
         } catch (Exception e) {
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.library.pdfbox;
+
+import com.qwazr.library.AbstractLibrary;
+import java.io.Closeable;
+import java.io.File;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+
+/**
+ * The memory policy used by the PdfBoxParser to load the documents.
+ * The main memory is capped, the rest of the document is buffered in scratch files:
+ * <pre>
+ * {
+ *   "library": {
+ *     "pdfbox": {
+ *       "class": "com.qwazr.library.pdfbox.PdfBoxMemoryTool",
+ *       "max_main_memory_bytes": 67108864,
+ *       "max_storage_bytes": 2147483648,
+ *       "temp_directory": "/var/tmp/pdfbox"
+ *     }
+ *   }
+ * }
+ * </pre>
+ * The max_main_memory_bytes parameter of a request overrides the main memory cap.
+ */
+public class PdfBoxMemoryTool extends AbstractLibrary implements Closeable {
+
+    public final Long max_main_memory_bytes = null;
+
+    public final Long max_storage_bytes = null;
+
+    public final String temp_directory = null;
+
+    @Override
+    public void load() {
+        final MemoryUsageSetting setting = MemoryUsageSetting.setupMixed(
+                max_main_memory_bytes == null ? -1 : max_main_memory_bytes,
+                max_storage_bytes == null ? -1 : max_storage_bytes);
+        if (temp_directory != null && !temp_directory.isEmpty())
+            setting.setTempDir(new File(temp_directory));
+        PdfBoxParser.setDefaultMemoryUsage(setting);
+    }
+
+    @Override
+    public void close() {
+        PdfBoxParser.setDefaultMemoryUsage(null);
+    }
+}
@@ -20,27 +20,54 @@ import com.qwazr.extractor.ParserField;
 import com.qwazr.extractor.ParserInterface;
 import com.qwazr.extractor.ParserResult;
 import com.qwazr.extractor.ParserUtils;
+import com.qwazr.library.extractor.DocumentConsumer;
+import com.qwazr.library.extractor.DocumentEmitter;
+import com.qwazr.library.extractor.ExtractionBudget;
+import com.qwazr.library.extractor.FieldProjection;
+import com.qwazr.library.extractor.ImageOcr;
+import com.qwazr.library.extractor.LanguageSample;
+import com.qwazr.library.extractor.Spool;
+import com.qwazr.library.extractor.SpoolStrategy;
+import com.qwazr.library.extractor.StreamingParser;
 import com.qwazr.utils.LoggerUtils;
 import com.qwazr.utils.StringUtils;
+import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.StringWriter;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javax.ws.rs.BadRequestException;
 import javax.ws.rs.InternalServerErrorException;
+import javax.ws.rs.NotSupportedException;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedMap;
+import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDDocumentCatalog;
 import org.apache.pdfbox.pdmodel.PDDocumentInformation;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.encryption.InvalidPasswordException;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
 import org.apache.pdfbox.text.PDFTextStripper;
 
-public class PdfBoxParser implements ParserFactory, ParserInterface {
+public class PdfBoxParser implements ParserFactory, ParserInterface, StreamingParser {
 
     private final static String NAME = "pdfbox";
 
@@ -89,7 +116,69 @@ public class PdfBoxParser implements ParserFactory, ParserInterface {
 
     final private static ParserField PASSWORD = ParserField.newString("password", StringUtils.EMPTY);
 
-    final private static Collection<ParserField> PARAMETERS = List.of(PASSWORD);
+    final private static ParserField START_PAGE = ParserField.newInteger("start_page",
+            "The first page to extract, starting from 1");
+
+    final private static ParserField END_PAGE = ParserField.newInteger("end_page",
+            "The last page to extract (inclusive)");
+
+    final private static ParserField MAX_PAGES = ParserField.newInteger("max_pages",
+            "The maximum number of pages to extract, from the start page");
+
+    final private static ParserField PARALLEL_CHUNK_PAGES = ParserField.newInteger("parallel_chunk_pages",
+            "Split the pages in chunks of this size which are extracted concurrently. 0 (default) is sequential.");
+
+    final private static ParserField MAX_MAIN_MEMORY_BYTES = ParserField.newInteger("max_main_memory_bytes",
+            "The maximum heap used to load the document, the rest goes to scratch files. -1 for no limit.");
+
+    final private static ParserField METADATA_ONLY = ParserField.newString("metadata_only",
+            "Set to true to only extract the metadata, the number of pages and the rotation of each page. " +
+                    "The content of the pages is not parsed.");
+
+    final private static ParserField OCR_FALLBACK = ParserField.newString("ocr_fallback",
+            "Set to true to render the pages without text and recognize them using the OCR engine");
+
+    final private static ParserField OCR_MIN_CHARACTERS = ParserField.newInteger("ocr_min_characters",
+            "A page with less characters is recognized by the OCR engine. Default is " +
+                    OcrFallback.DEFAULT_MIN_CHARACTERS);
+
+    final private static ParserField OCR_MAX_PAGES = ParserField.newInteger("ocr_max_pages",
+            "The maximum number of pages recognized by the OCR engine per document. Default is " +
+                    OcrFallback.DEFAULT_MAX_PAGES);
+
+    final private static ParserField OCR_DPI = ParserField.newInteger("ocr_dpi",
+            "The resolution of the rendered pages. Default is " + OcrFallback.DEFAULT_DPI);
+
+    final private static ParserField OCR_LANGUAGE = ParserField.newString("ocr_language",
+            "The language code of the OCR engine (ie: eng, fra)");
+
+    final private static ParserField LANG_DETECTION_MODE = ParserField.newString("lang_detection_mode",
+            "document (default): the language is detected once, on a sample of the pages, and returned in the metas. " +
+                    "page: the language of each page is detected.");
+
+    final private static String LANG_DETECTION_DOCUMENT = "document";
+
+    final private static String LANG_DETECTION_PAGE = "page";
+
+    final private static Collection<ParserField> PARAMETERS = List.of(PASSWORD, START_PAGE, END_PAGE, MAX_PAGES,
+            PARALLEL_CHUNK_PAGES, MAX_MAIN_MEMORY_BYTES, METADATA_ONLY, OCR_FALLBACK, OCR_MIN_CHARACTERS,
+            OCR_MAX_PAGES, OCR_DPI, OCR_LANGUAGE, LANG_DETECTION_MODE, FieldProjection.PARAMETER,
+            ExtractionBudget.TIMEOUT_MS, ExtractionBudget.MAX_CHARACTERS);
+
+    private static volatile MemoryUsageSetting defaultMemoryUsage = MemoryUsageSetting.setupMainMemoryOnly();
+
+    /**
+     * Set the memory policy used when the request does not give the max_main_memory_bytes parameter.
+     *
+     * @param memoryUsage the new default memory policy, or null to only use the main memory
+     */
+    static void setDefaultMemoryUsage(final MemoryUsageSetting memoryUsage) {
+        defaultMemoryUsage = memoryUsage == null ? MemoryUsageSetting.setupMainMemoryOnly() : memoryUsage;
+    }
+
+    static MemoryUsageSetting getDefaultMemoryUsage() {
+        return defaultMemoryUsage;
+    }
 
     @Override
     public String getName() {
@@ -121,17 +210,57 @@ public class PdfBoxParser implements ParserFactory, ParserInterface {
     }
 
     /**
-     * Extract text content using PDFBox
+     * Extract text content using PDFBox.
+     * The text is not stripped in metadata only mode or if no text field is requested: the rotation of the pages
+     * is read from the page tree.
      *
      * @param pdf
-     * @param resultBuilder
+     * @param metas
+     * @param emitter    receives one document per page
+     * @param parameters
+     * @param source     opens a new handle on the document for the parallel mode, or null
      * @throws IOException
      */
-    private void parseContent(final PDDocument pdf, final ParserResult.Builder resultBuilder) throws IOException {
+    private void parseContent(final PDDocument pdf,
+                              final ParserResult.FieldsBuilder metas,
+                              final DocumentEmitter emitter,
+                              final MultivaluedMap<String, String> parameters,
+                              final DocumentSource source) throws IOException {
         try {
-            extractMetaData(pdf, resultBuilder.metas());
-            final Stripper stripper = new Stripper(resultBuilder);
-            stripper.getText(pdf);
+            extractMetaData(pdf, metas);
+            final FieldProjection projection = FieldProjection.of(parameters);
+            if (isMetadataOnly(parameters) || !projection.hasAny(CONTENT, LANG_DETECTION, CHARACTER_COUNT)) {
+                if (projection.has(ROTATION))
+                    extractRotations(pdf, emitter, parameters);
+            } else {
+                final ExtractionBudget budget = ExtractionBudget.of(parameters);
+                final int[] pageRange = getPageRange(pdf.getNumberOfPages(), parameters);
+                final boolean pageLangDetection = projection.has(LANG_DETECTION) && isPageLangDetection(parameters);
+                final LanguageSample languageSample = projection.has(LANG_DETECTION) && !pageLangDetection ?
+                        new LanguageSample(LanguageSample.DEFAULT_MAX_CHARACTERS, pageRange[1] - pageRange[0] + 1) :
+                        null;
+                final PageSink sink = languageSample == null ? page -> page.emit(emitter) : page -> {
+                    languageSample.add(page.text);
+                    page.emit(emitter);
+                };
+                final PageProcessor processor =
+                        new PageProcessor(pageLangDetection, OcrFallback.of(parameters), budget);
+                final PageHandler handler = processor.newHandler(pdf, sink);
+                final Stripper stripper = new Stripper(budget, handler);
+                stripper.setStartPage(pageRange[0]);
+                stripper.setEndPage(pageRange[1]);
+                final int chunkPages = getPageParameter(parameters, PARALLEL_CHUNK_PAGES);
+                if (source != null && chunkPages > 0 &&
+                        stripper.getEndPage() - stripper.getStartPage() + 1 > chunkPages)
+                    parallelStrip(pdf, stripper, handler, chunkPages, source, sink, processor);
+                else {
+                    stripper.getText(pdf);
+                    handler.finish();
+                }
+                if (languageSample != null)
+                    languageSample.detect(metas, LANG_DETECTION);
+                budget.markTruncated(metas);
+            }
         } finally {
             if (pdf != null) {
                 try {
@@ -143,36 +272,239 @@ public class PdfBoxParser implements ParserFactory, ParserInterface {
         }
     }
 
+    private static int getPageParameter(final MultivaluedMap<String, String> parameters, final ParserField field) {
+        return (int) Math.min(Integer.MAX_VALUE, getLongParameter(parameters, field, 0));
+    }
+
+    private static long getLongParameter(final MultivaluedMap<String, String> parameters,
+                                         final ParserField field,
+                                         final long defaultValue) {
+        final String value = ParserUtils.getParameterValue(parameters, field, 0);
+        if (value == null || value.trim().isEmpty())
+            return defaultValue;
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("The parameter " + field.name + " is not a number: " + value, e);
+        }
+    }
+
+    private static boolean isPageLangDetection(final MultivaluedMap<String, String> parameters) {
+        final String mode = ParserUtils.getParameterValue(parameters, LANG_DETECTION_MODE, 0);
+        if (mode == null || mode.isEmpty() || LANG_DETECTION_DOCUMENT.equals(mode))
+            return false;
+        if (LANG_DETECTION_PAGE.equals(mode))
+            return true;
+        throw new BadRequestException("Unknown " + LANG_DETECTION_MODE.name + ": " + mode);
+    }
+
+    private static boolean isMetadataOnly(final MultivaluedMap<String, String> parameters) {
+        return Boolean.parseBoolean(ParserUtils.getParameterValue(parameters, METADATA_ONLY, 0));
+    }
+
+    /**
+     * Emit one document per page with the rotation. Only the page tree is read.
+     */
+    private static void extractRotations(final PDDocument pdf,
+                                         final DocumentEmitter emitter,
+                                         final MultivaluedMap<String, String> parameters) throws IOException {
+        final int[] pageRange = getPageRange(pdf.getNumberOfPages(), parameters);
+        int pageNumber = 0;
+        for (final PDPage page : pdf.getPages()) {
+            if (++pageNumber < pageRange[0])
+                continue;
+            if (pageNumber > pageRange[1])
+                break;
+            emitter.newDocument().add(ROTATION, page.getRotation());
+            emitter.complete();
+        }
+    }
+
+    /**
+     * Apply the start_page, end_page and max_pages parameters. The pages outside the bounds are not parsed.
+     *
+     * @return the first and the last page (inclusive)
+     */
+    private static int[] getPageRange(final int numberOfPages, final MultivaluedMap<String, String> parameters) {
+        final int startPage = Math.max(1, getPageParameter(parameters, START_PAGE));
+        int endPage = getPageParameter(parameters, END_PAGE);
+        if (endPage <= 0 || endPage > numberOfPages)
+            endPage = numberOfPages;
+        final int maxPages = getPageParameter(parameters, MAX_PAGES);
+        if (maxPages > 0)
+            endPage = Math.min(endPage, startPage + maxPages - 1);
+        return new int[]{startPage, endPage};
+    }
+
+    /**
+     * The page range is split in chunks. Each chunk is stripped by a thread of the pool using its own handle on the
+     * document, as a PDDocument is not thread safe. The first chunk is stripped by the calling thread while the next
+     * ones are running. The pages are emitted in order.
+     */
+    private static void parallelStrip(final PDDocument pdf,
+                                      final Stripper stripper,
+                                      final PageHandler handler,
+                                      final int chunkPages,
+                                      final DocumentSource source,
+                                      final PageSink sink,
+                                      final PageProcessor processor) throws IOException {
+        final int startPage = stripper.getStartPage();
+        final int endPage = stripper.getEndPage();
+        final List<Future<List<Page>>> futures = new ArrayList<>();
+        for (int start = startPage + chunkPages; start <= endPage; start += chunkPages) {
+            final int chunkStart = start;
+            final int chunkEnd = Math.min(endPage, start + chunkPages - 1);
+            futures.add(ChunkExecutor.INSTANCE.submit(
+                    () -> stripChunk(source, chunkStart, chunkEnd, processor)));
+        }
+        try {
+            stripper.setEndPage(startPage + chunkPages - 1);
+            stripper.getText(pdf);
+            handler.finish();
+            for (final Future<List<Page>> future : futures)
+                for (final Page page : future.get())
+                    sink.accept(page);
+        } catch (InterruptedException e) {
+            // The pages already collected are kept, the result is marked as truncated
+            Thread.currentThread().interrupt();
+            processor.budget.stop(ExtractionBudget.INTERRUPTED);
+        } catch (ExecutionException e) {
+            throw rethrow(e);
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    /**
+     * Rethrow the cause of a failed task as is (ie: an {@link ExtractionBudget.Exhausted} stays one).
+     *
+     * @return the exception to throw if the cause is a checked exception other than IOException
+     */
+    private static IOException rethrow(final ExecutionException e) throws IOException {
+        final Throwable cause = e.getCause();
+        if (cause instanceof IOException)
+            throw (IOException) cause;
+        if (cause instanceof RuntimeException)
+            throw (RuntimeException) cause;
+        if (cause instanceof Error)
+            throw (Error) cause;
+        return new IOException(cause);
+    }
+
+    private static List<Page> stripChunk(final DocumentSource source,
+                                         final int startPage,
+                                         final int endPage,
+                                         final PageProcessor processor) throws IOException {
+        try (final PDDocument pdf = source.open()) {
+            final List<Page> pages = new ArrayList<>(endPage - startPage + 1);
+            final PageHandler handler = processor.newHandler(pdf, pages::add);
+            final Stripper stripper = new Stripper(processor.budget, handler);
+            stripper.setStartPage(startPage);
+            stripper.setEndPage(endPage);
+            stripper.getText(pdf);
+            handler.finish();
+            return pages;
+        }
+    }
+
+    /**
+     * The max_main_memory_bytes parameter overrides the main memory cap of the default policy.
+     * The scratch directory and the storage cap always come from the default policy.
+     */
+    private static MemoryUsageSetting getMemoryUsage(final MultivaluedMap<String, String> parameters) {
+        final MemoryUsageSetting defaultSetting = defaultMemoryUsage;
+        final long maxMainMemoryBytes = getLongParameter(parameters, MAX_MAIN_MEMORY_BYTES, Long.MIN_VALUE);
+        if (maxMainMemoryBytes == Long.MIN_VALUE)
+            return defaultSetting;
+        final MemoryUsageSetting setting = MemoryUsageSetting.setupMixed(maxMainMemoryBytes,
+                defaultSetting.isStorageRestricted() ? defaultSetting.getMaxStorageBytes() : -1);
+        if (defaultSetting.getTempDir() != null)
+            setting.setTempDir(defaultSetting.getTempDir());
+        return setting;
+    }
+
     private String getPassword(final MultivaluedMap<String, String> parameters) {
         final String password = ParserUtils.getParameterValue(parameters, PASSWORD, 0);
         return password == null ? StringUtils.EMPTY : password;
     }
 
-    @Override
-    public ParserResult extract(final MultivaluedMap<String, String> parameters,
-                                final InputStream inputStream,
-                                final MediaType mediaType) throws IOException {
+    private PDDocument load(final MultivaluedMap<String, String> parameters,
+                            final InputStream inputStream) throws IOException {
         try {
-            final ParserResult.Builder resultBuilder = ParserResult.of(NAME);
-            parseContent(PDDocument.load(inputStream, getPassword(parameters)), resultBuilder);
-            return resultBuilder.build();
+            return PDDocument.load(inputStream, getPassword(parameters), getMemoryUsage(parameters));
         } catch (InvalidPasswordException e) {
             throw new InternalServerErrorException(e);
         }
     }
 
-    @Override
-    public ParserResult extract(final MultivaluedMap<String, String> parameters,
-                                final Path filePath) throws IOException {
+    private PDDocument load(final MultivaluedMap<String, String> parameters,
+                            final Path filePath) throws IOException {
         try {
-            final ParserResult.Builder resultBuilder = ParserResult.of(NAME);
-            parseContent(PDDocument.load(filePath.toFile(), getPassword(parameters)), resultBuilder);
-            return resultBuilder.build();
+            return PDDocument.load(filePath.toFile(), getPassword(parameters), getMemoryUsage(parameters));
         } catch (InvalidPasswordException e) {
             throw new InternalServerErrorException("Error with " + filePath.toAbsolutePath() + ": " + e.getMessage(), e);
         }
     }
 
+    /**
+     * The parallel mode needs to open the document several times: the stream is spooled.
+     */
+    private ParserResult extract(final MultivaluedMap<String, String> parameters,
+                                 final InputStream inputStream,
+                                 final ParserResult.Builder resultBuilder,
+                                 final DocumentEmitter emitter) throws IOException {
+        if (getPageParameter(parameters, PARALLEL_CHUNK_PAGES) <= 0) {
+            parseContent(load(parameters, inputStream), resultBuilder.metas(), emitter, parameters, null);
+            return resultBuilder.build();
+        }
+        try (final Spool spool = SpoolStrategy.DEFAULT.spool(inputStream, ".pdf")) {
+            final DocumentSource source = spool.isInMemory() ?
+                    () -> load(parameters, spool.getInputStream()) :
+                    () -> load(parameters, spool.toPath());
+            parseContent(source.open(), resultBuilder.metas(), emitter, parameters, source);
+            return resultBuilder.build();
+        }
+    }
+
+    private ParserResult extract(final MultivaluedMap<String, String> parameters,
+                                 final Path filePath,
+                                 final ParserResult.Builder resultBuilder,
+                                 final DocumentEmitter emitter) throws IOException {
+        parseContent(load(parameters, filePath), resultBuilder.metas(), emitter, parameters,
+                () -> load(parameters, filePath));
+        return resultBuilder.build();
+    }
+
+    @Override
+    public ParserResult extract(final MultivaluedMap<String, String> parameters,
+                                final InputStream inputStream,
+                                final MediaType mediaType) throws IOException {
+        final ParserResult.Builder resultBuilder = ParserResult.of(NAME);
+        return extract(parameters, inputStream, resultBuilder, DocumentEmitter.of(resultBuilder));
+    }
+
+    @Override
+    public ParserResult extract(final MultivaluedMap<String, String> parameters,
+                                final Path filePath) throws IOException {
+        final ParserResult.Builder resultBuilder = ParserResult.of(NAME);
+        return extract(parameters, filePath, resultBuilder, DocumentEmitter.of(resultBuilder));
+    }
+
+    @Override
+    public ParserResult extract(final MultivaluedMap<String, String> parameters,
+                                final InputStream inputStream,
+                                final MediaType mediaType,
+                                final DocumentConsumer consumer) throws IOException {
+        return extract(parameters, inputStream, ParserResult.of(NAME), DocumentEmitter.of(NAME, consumer));
+    }
+
+    @Override
+    public ParserResult extract(final MultivaluedMap<String, String> parameters,
+                                final Path filePath,
+                                final DocumentConsumer consumer) throws IOException {
+        return extract(parameters, filePath, ParserResult.of(NAME), DocumentEmitter.of(NAME, consumer));
+    }
+
     @Override
     public Collection<ParserField> getParameters() {
         return PARAMETERS;
@@ -193,24 +525,263 @@ public class PdfBoxParser implements ParserFactory, ParserInterface {
         return DEFAULT_MIMETYPES;
     }
 
+    @FunctionalInterface
+    private interface DocumentSource {
+        PDDocument open() throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface PageHandler {
+
+        void accept(int pageNumber, String text, int rotation) throws IOException;
+
+        /**
+         * Called when the last page has been stripped
+         */
+        default void finish() throws IOException {
+        }
+    }
+
+    @FunctionalInterface
+    private interface PageSink {
+        void accept(Page page) throws IOException;
+    }
+
+    /**
+     * Builds the pages from the stripped text: language detection and OCR fallback.
+     */
+    private static class PageProcessor {
+
+        private final boolean langDetection;
+        private final OcrFallback ocrFallback;
+        private final ExtractionBudget budget;
+
+        private PageProcessor(final boolean langDetection,
+                              final OcrFallback ocrFallback,
+                              final ExtractionBudget budget) {
+            this.langDetection = langDetection;
+            this.ocrFallback = ocrFallback;
+            this.budget = budget;
+        }
+
+        /**
+         * The characters are counted when a page leaves the handler, after the OCR: the text of a scanned page
+         * is the recognized one, not the almost empty stripped one.
+         *
+         * @param pdf  the document handle used by the stripper, needed to render the pages
+         * @param sink receives the pages in order
+         * @return a new handler for one stripper
+         */
+        private PageHandler newHandler(final PDDocument pdf, final PageSink sink) {
+            final PageSink countingSink = page -> {
+                budget.addCharacters(page.text.length());
+                sink.accept(page);
+            };
+            if (ocrFallback == null)
+                return (pageNumber, text, rotation) -> countingSink.accept(Page.of(text, rotation, langDetection));
+            return new OcrPageHandler(pdf, countingSink, langDetection, ocrFallback, budget);
+        }
+    }
+
+    /**
+     * The OCR settings of a document. The number of recognized pages is shared by all the strippers of the document.
+     */
+    private static class OcrFallback {
+
+        private final static int DEFAULT_MIN_CHARACTERS = 10;
+        private final static int DEFAULT_MAX_PAGES = 20;
+        private final static int DEFAULT_DPI = 300;
+
+        private final ImageOcr imageOcr;
+        private final String language;
+        private final int minCharacters;
+        private final float dpi;
+        private final AtomicInteger remainingPages;
+
+        private OcrFallback(final ImageOcr imageOcr, final MultivaluedMap<String, String> parameters) {
+            this.imageOcr = imageOcr;
+            this.language = ParserUtils.getParameterValue(parameters, OCR_LANGUAGE, 0);
+            this.minCharacters = (int) getLongParameter(parameters, OCR_MIN_CHARACTERS, DEFAULT_MIN_CHARACTERS);
+            this.dpi = getLongParameter(parameters, OCR_DPI, DEFAULT_DPI);
+            this.remainingPages =
+                    new AtomicInteger((int) getLongParameter(parameters, OCR_MAX_PAGES, DEFAULT_MAX_PAGES));
+        }
+
+        /**
+         * @return the OCR settings, or null if the fallback is not requested
+         */
+        private static OcrFallback of(final MultivaluedMap<String, String> parameters) {
+            if (!Boolean.parseBoolean(ParserUtils.getParameterValue(parameters, OCR_FALLBACK, 0)))
+                return null;
+            final ImageOcr imageOcr = OcrHolder.INSTANCE;
+            if (imageOcr == null)
+                throw new NotSupportedException("The OCR fallback is not available: no OCR engine is registered");
+            return new OcrFallback(imageOcr, parameters);
+        }
+
+        private boolean needsOcr(final String text) {
+            return text.trim().length() < minCharacters && remainingPages.getAndDecrement() > 0;
+        }
+
+        /**
+         * @return the recognized text, or the stripped text if the OCR failed
+         */
+        private String recognize(final BufferedImage image, final String text) {
+            try {
+                final String recognized = imageOcr.recognize(image, language);
+                return recognized == null ? text : recognized;
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "The OCR of the page failed", e);
+                return text;
+            }
+        }
+    }
+
+    /**
+     * The almost empty pages are rendered by the stripper thread (a PDDocument is not thread safe) and recognized by
+     * the OCR pool. The pages are released in order as soon as they are ready.
+     */
+    private static class OcrPageHandler implements PageHandler {
+
+        private final PDFRenderer renderer;
+        private final PageSink sink;
+        private final boolean langDetection;
+        private final OcrFallback ocrFallback;
+        private final ExtractionBudget budget;
+        private final Deque<Future<Page>> pending;
+
+        private OcrPageHandler(final PDDocument pdf,
+                               final PageSink sink,
+                               final boolean langDetection,
+                               final OcrFallback ocrFallback,
+                               final ExtractionBudget budget) {
+            this.renderer = new PDFRenderer(pdf);
+            this.sink = sink;
+            this.langDetection = langDetection;
+            this.ocrFallback = ocrFallback;
+            this.budget = budget;
+            this.pending = new ArrayDeque<>();
+        }
+
+        @Override
+        public void accept(final int pageNumber, final String text, final int rotation) throws IOException {
+            if (ocrFallback.needsOcr(text)) {
+                final BufferedImage image =
+                        renderer.renderImageWithDPI(pageNumber - 1, ocrFallback.dpi, ImageType.GRAY);
+                pending.add(OcrExecutor.INSTANCE.submit(
+                        () -> Page.of(ocrFallback.recognize(image, text), rotation, langDetection)));
+            } else
+                pending.add(CompletableFuture.completedFuture(Page.of(text, rotation, langDetection)));
+            flush(false);
+        }
+
+        @Override
+        public void finish() throws IOException {
+            flush(true);
+        }
+
+        private void flush(final boolean wait) throws IOException {
+            try {
+                while (!pending.isEmpty() && (wait || pending.peekFirst().isDone()))
+                    sink.accept(pending.pollFirst().get());
+            } catch (InterruptedException e) {
+                // The pages not yet recognized are dropped, the result is marked as truncated
+                Thread.currentThread().interrupt();
+                pending.forEach(future -> future.cancel(true));
+                pending.clear();
+                budget.stop(ExtractionBudget.INTERRUPTED);
+            } catch (ExecutionException e) {
+                throw rethrow(e);
+            }
+        }
+    }
+
+    private static class OcrHolder {
+
+        private final static ImageOcr INSTANCE = ImageOcr.load();
+    }
+
+    /**
+     * The bounded pool running the OCR of the pages, shared by all the documents.
+     * The queue is bounded too: when it is full the stripper thread runs the OCR itself, so the number of rendered
+     * images waiting in memory is limited and a large scanned document slows down instead of filling the heap.
+     */
+    private static class OcrExecutor {
+
+        private final static int THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+        private final static ExecutorService INSTANCE =
+                new ThreadPoolExecutor(THREADS, THREADS, 0L, TimeUnit.MILLISECONDS,
+                        new ArrayBlockingQueue<>(THREADS * 2), runnable -> {
+                    final Thread thread = new Thread(runnable, "pdfbox-ocr");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * The pool shared by the parallel extractions, sized to the number of cores.
+     */
+    private static class ChunkExecutor {
+
+        private final static ExecutorService INSTANCE =
+                Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+                    final Thread thread = new Thread(runnable, "pdfbox-chunk");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    private static class Page {
+
+        private final String text;
+        private final int rotation;
+        private final Object langDetection;
+
+        private Page(final String text, final int rotation, final Object langDetection) {
+            this.text = text;
+            this.rotation = rotation;
+            this.langDetection = langDetection;
+        }
+
+        private static Page of(final String text, final int rotation, final boolean langDetection) {
+            if (!langDetection)
+                return new Page(text, rotation, null);
+            final ParserResult.FieldsBuilder document = ParserResult.of(NAME).newDocument();
+            document.add(CONTENT, text);
+            return new Page(text, rotation, ParserUtils.languageDetection(document, CONTENT, 10000));
+        }
+
+        private void emit(final DocumentEmitter emitter) throws IOException {
+            final ParserResult.FieldsBuilder document = emitter.newDocument();
+            document.add(CHARACTER_COUNT, text.length());
+            document.add(CONTENT, text);
+            if (langDetection != null)
+                document.add(LANG_DETECTION, langDetection);
+            document.add(ROTATION, rotation);
+            emitter.complete();
+        }
+    }
+
     private static class Stripper extends PDFTextStripper {
 
-        private final ParserResult.Builder resultBuilder;
+        private final ExtractionBudget budget;
+        private final PageHandler pageHandler;
 
-        private Stripper(ParserResult.Builder resultBuilder) throws IOException {
-            this.resultBuilder = resultBuilder;
+        private Stripper(final ExtractionBudget budget, final PageHandler pageHandler) throws IOException {
+            this.budget = budget;
+            this.pageHandler = pageHandler;
         }
 
         @Override
         protected void endPage(PDPage page) throws IOException {
             super.endPage(page);
-            final ParserResult.FieldsBuilder document = resultBuilder.newDocument();
             final String text = output.toString();
-            document.add(CHARACTER_COUNT, text.length());
-            document.add(CONTENT, text);
-            document.add(LANG_DETECTION, ParserUtils.languageDetection(document, CONTENT, 10000));
-            document.add(ROTATION, page.getRotation());
+            pageHandler.accept(getCurrentPageNo(), text, page.getRotation());
             output = new StringWriter();
+            // The characters are counted by the page handler, the remaining pages are skipped
+            if (budget.isExhausted())
+                setEndPage(getCurrentPageNo());
         }
     }
 }
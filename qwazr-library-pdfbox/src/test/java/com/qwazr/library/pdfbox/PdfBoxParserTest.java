@@ -16,11 +16,27 @@
 package com.qwazr.library.pdfbox;
 
 import com.qwazr.extractor.ExtractorManager;
+import com.qwazr.extractor.ParserResult;
 import com.qwazr.extractor.ParserTest;
+import com.qwazr.library.extractor.FieldProjection;
+import com.qwazr.utils.ObjectMappers;
+import javax.ws.rs.BadRequestException;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.junit.Assert;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 public class PdfBoxParserTest extends ParserTest {
 
@@ -42,4 +58,156 @@ public class PdfBoxParserTest extends ParserTest {
                 "1234");
     }
 
+    @Test
+    public void testMetasOnly() throws Exception {
+        final MultivaluedMap<String, String> map = new MultivaluedHashMap<>();
+        map.add(FieldProjection.PARAMETER.name, "mime_type,number_of_pages");
+        final ParserResult result =
+                new PdfBoxParser().extract(map, getStream("file.pdf"), MediaType.valueOf("application/pdf"));
+        final String json = ObjectMappers.JSON.writeValueAsString(result);
+        Assert.assertTrue(json.contains("application/pdf"));
+        Assert.assertFalse(json.contains("\"content\""));
+    }
+
+    @Test
+    public void testStreaming() throws Exception {
+        final MultivaluedMap<String, String> map = new MultivaluedHashMap<>();
+        final PdfBoxParser parser = new PdfBoxParser();
+        final List<ParserResult> pages = new ArrayList<>();
+        final ParserResult metas =
+                parser.extract(map, getStream("file.pdf"), MediaType.valueOf("application/pdf"), pages::add);
+        Assert.assertFalse(pages.isEmpty());
+        Assert.assertFalse(ObjectMappers.JSON.writeValueAsString(metas).contains("\"content\""));
+        Assert.assertTrue(pages.get(0).getDocumentFieldValue(0, "content", 0).toString().contains(DEFAULT_TEST_STRING));
+    }
+
+    @Test
+    public void testPageRange() throws Exception {
+        final PdfBoxParser parser = new PdfBoxParser();
+        final MultivaluedMap<String, String> map = new MultivaluedHashMap<>();
+        map.add("max_pages", "1");
+        final List<ParserResult> pages = new ArrayList<>();
+        parser.extract(map, getStream("file.pdf"), MediaType.valueOf("application/pdf"), pages::add);
+        Assert.assertEquals(1, pages.size());
+        Assert.assertTrue(pages.get(0).getDocumentFieldValue(0, "content", 0).toString().contains(DEFAULT_TEST_STRING));
+
+        map.clear();
+        map.add("start_page", "1000");
+        pages.clear();
+        parser.extract(map, getStream("file.pdf"), MediaType.valueOf("application/pdf"), pages::add);
+        Assert.assertTrue(pages.isEmpty());
+    }
+
+    private static Path createPdf(final int pageCount) throws IOException {
+        final Path path = Files.createTempFile("pdfboxtest", ".pdf");
+        try (final PDDocument pdf = new PDDocument()) {
+            for (int i = 1; i <= pageCount; i++) {
+                final PDPage page = new PDPage();
+                pdf.addPage(page);
+                try (final PDPageContentStream content = new PDPageContentStream(pdf, page)) {
+                    content.beginText();
+                    content.setFont(PDType1Font.HELVETICA, 12);
+                    content.newLineAtOffset(100, 700);
+                    content.showText("page" + i);
+                    content.endText();
+                }
+            }
+            pdf.save(path.toFile());
+        }
+        return path;
+    }
+
+    private static void checkPageOrder(final List<ParserResult> pages, final int firstPage, final int lastPage) {
+        Assert.assertEquals(lastPage - firstPage + 1, pages.size());
+        for (int i = firstPage; i <= lastPage; i++)
+            Assert.assertEquals("page" + i,
+                    pages.get(i - firstPage).getDocumentFieldValue(0, "content", 0).toString().trim());
+    }
+
+    @Test
+    public void testParallelChunks() throws Exception {
+        final Path path = createPdf(7);
+        try {
+            final PdfBoxParser parser = new PdfBoxParser();
+            final MultivaluedMap<String, String> map = new MultivaluedHashMap<>();
+            map.add("parallel_chunk_pages", "2");
+            final List<ParserResult> pages = new ArrayList<>();
+            parser.extract(map, path, pages::add);
+            checkPageOrder(pages, 1, 7);
+
+            map.add("start_page", "2");
+            pages.clear();
+            try (final InputStream input = Files.newInputStream(path)) {
+                parser.extract(map, input, MediaType.valueOf("application/pdf"), pages::add);
+            }
+            checkPageOrder(pages, 2, 7);
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    public void testMaxMainMemory() throws Exception {
+        final MultivaluedMap<String, String> map = new MultivaluedHashMap<>();
+        map.add("max_main_memory_bytes", "1024");
+        final ParserResult result =
+                new PdfBoxParser().extract(map, getStream("file.pdf"), MediaType.valueOf("application/pdf"));
+        Assert.assertTrue(result.getDocumentFieldValue(0, "content", 0).toString().contains(DEFAULT_TEST_STRING));
+    }
+
+    @Test
+    public void testMetadataOnly() throws Exception {
+        final MultivaluedMap<String, String> map = new MultivaluedHashMap<>();
+        map.add("metadata_only", "true");
+        final List<ParserResult> pages = new ArrayList<>();
+        final ParserResult metas = new PdfBoxParser().extract(map, getStream("file.pdf"),
+                MediaType.valueOf("application/pdf"), pages::add);
+        Assert.assertTrue(ObjectMappers.JSON.writeValueAsString(metas).contains("\"number_of_pages\""));
+        Assert.assertEquals(1, pages.size());
+        final String json = ObjectMappers.JSON.writeValueAsString(pages.get(0));
+        Assert.assertTrue(json.contains("\"rotation\""));
+        Assert.assertFalse(json.contains("\"content\""));
+    }
+
+    @Test
+    public void testOcrFallback() throws Exception {
+        final Path path = createPdf(3);
+        try {
+            // Add a page without text
+            try (final PDDocument pdf = PDDocument.load(path.toFile())) {
+                pdf.addPage(new PDPage());
+                pdf.save(path.toFile());
+            }
+            final MultivaluedMap<String, String> map = new MultivaluedHashMap<>();
+            map.add("ocr_fallback", "true");
+            final List<ParserResult> pages = new ArrayList<>();
+            new PdfBoxParser().extract(map, path, pages::add);
+            Assert.assertEquals(4, pages.size());
+            checkPageOrder(pages.subList(0, 3), 1, 3);
+            Assert.assertEquals(StubImageOcr.TEXT, pages.get(3).getDocumentFieldValue(0, "content", 0));
+
+            map.add("ocr_max_pages", "0");
+            pages.clear();
+            new PdfBoxParser().extract(map, path, pages::add);
+            Assert.assertNotEquals(StubImageOcr.TEXT, pages.get(3).getDocumentFieldValue(0, "content", 0));
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    public void testDocumentLangDetection() throws Exception {
+        final MultivaluedMap<String, String> map = new MultivaluedHashMap<>();
+        final List<ParserResult> pages = new ArrayList<>();
+        new PdfBoxParser().extract(map, getStream("file.pdf"), MediaType.valueOf("application/pdf"), pages::add);
+        Assert.assertFalse(ObjectMappers.JSON.writeValueAsString(pages.get(0)).contains("\"lang_detection\""));
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void testUnknownLangDetectionMode() throws Exception {
+        final MultivaluedMap<String, String> map = new MultivaluedHashMap<>();
+        map.add("lang_detection_mode", "paragraph");
+        new PdfBoxParser().extract(map, getStream("file.pdf"), MediaType.valueOf("application/pdf"));
+    }
+
 }
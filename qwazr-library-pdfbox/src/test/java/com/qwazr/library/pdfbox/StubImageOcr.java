@@ -0,0 +1,32 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.library.pdfbox;
+
+import com.qwazr.library.extractor.ImageOcr;
+import java.awt.image.BufferedImage;
+
+/**
+ * Registered as the OCR engine of the tests
+ */
+public class StubImageOcr implements ImageOcr {
+
+    final static String TEXT = "recognized";
+
+    @Override
+    public String recognize(final BufferedImage image, final String language) {
+        return TEXT;
+    }
+}
@@ -20,6 +20,8 @@ import com.qwazr.extractor.ParserField;
 import com.qwazr.extractor.ParserInterface;
 import com.qwazr.extractor.ParserResult;
 import com.qwazr.extractor.ParserUtils;
+import com.qwazr.library.extractor.ExtractionBudget;
+import com.qwazr.library.extractor.FieldProjection;
 import com.qwazr.utils.IOUtils;
 import java.io.IOException;
 import java.io.InputStream;
@@ -51,6 +53,11 @@ public class DocParser implements ParserFactory, ParserInterface, PoiExtractor {
         return FIELDS;
     }
 
+    @Override
+    public Collection<ParserField> getParameters() {
+        return PARAMETERS;
+    }
+
     @Override
     public Collection<String> getSupportedFileExtensions() {
         return DEFAULT_EXTENSIONS;
@@ -71,8 +78,9 @@ public class DocParser implements ParserFactory, ParserInterface, PoiExtractor {
         return DEFAULT_MIMETYPES;
     }
 
-    private ParserResult currentWordExtraction(final InputStream inputStream)
-            throws IOException {
+    private ParserResult currentWordExtraction(final InputStream inputStream,
+                                               final FieldProjection projection,
+                                               final ExtractionBudget budget) throws IOException {
         final ParserResult.Builder resultBuilder = ParserResult.of(NAME);
 
         try (final WordExtractor word = new WordExtractor(inputStream)) {
@@ -82,17 +90,17 @@ public class DocParser implements ParserFactory, ParserInterface, PoiExtractor {
             PoiExtractor.extractMetas(word.getSummaryInformation(), metas);
 
             final ParserResult.FieldsBuilder document = resultBuilder.newDocument();
-            final String[] paragraphes = word.getParagraphText();
-            if (paragraphes != null)
-                for (String paragraph : paragraphes)
-                    document.add(CONTENT, paragraph);
-            document.add(LANG_DETECTION, ParserUtils.languageDetection(document, CONTENT, 10000));
+            PoiExtractor.addTexts(word.getParagraphText(), document, budget);
+            if (projection.has(LANG_DETECTION))
+                document.add(LANG_DETECTION, ParserUtils.languageDetection(document, CONTENT, 10000));
+            budget.markTruncated(metas);
         }
         return resultBuilder.build();
     }
 
-    private ParserResult oldWordExtraction(final InputStream inputStream)
-            throws IOException {
+    private ParserResult oldWordExtraction(final InputStream inputStream,
+                                           final FieldProjection projection,
+                                           final ExtractionBudget budget) throws IOException {
         final ParserResult.Builder resultBuilder = ParserResult.of(NAME);
         Word6Extractor word6 = null;
         try {
@@ -110,10 +118,10 @@ public class DocParser implements ParserFactory, ParserInterface, PoiExtractor {
 
             final ParserResult.FieldsBuilder document = resultBuilder.newDocument();
             @SuppressWarnings("deprecation") String[] paragraphes = word6.getParagraphText();
-            if (paragraphes != null)
-                for (String paragraph : paragraphes)
-                    document.add(CONTENT, paragraph);
-            document.add(LANG_DETECTION, ParserUtils.languageDetection(document, CONTENT, 10000));
+            PoiExtractor.addTexts(paragraphes, document, budget);
+            if (projection.has(LANG_DETECTION))
+                document.add(LANG_DETECTION, ParserUtils.languageDetection(document, CONTENT, 10000));
+            budget.markTruncated(metas);
             return resultBuilder.build();
         } finally {
             IOUtils.closeQuietly(word6);
@@ -124,10 +132,19 @@ public class DocParser implements ParserFactory, ParserInterface, PoiExtractor {
     public ParserResult extract(final MultivaluedMap<String, String> parameters,
                                 final InputStream inputStream,
                                 final MediaType mimeType) throws IOException {
+        final FieldProjection projection = FieldProjection.of(parameters);
+        if (PoiExtractor.isMetasOnly(projection)) {
+            final ParserResult.Builder resultBuilder = ParserResult.of(NAME);
+            final ParserResult.FieldsBuilder metas = resultBuilder.metas();
+            metas.set(MIME_TYPE, DEFAULT_MIMETYPE.toString());
+            PoiExtractor.extractMetas(PoiExtractor.readSummaryInformation(inputStream), metas);
+            return resultBuilder.build();
+        }
+        final ExtractionBudget budget = ExtractionBudget.of(parameters);
         try {
-            return currentWordExtraction(inputStream);
+            return currentWordExtraction(inputStream, projection, budget);
         } catch (OldWordFileFormatException e) {
-            return oldWordExtraction(inputStream);
+            return oldWordExtraction(inputStream, projection, budget);
         }
     }
 
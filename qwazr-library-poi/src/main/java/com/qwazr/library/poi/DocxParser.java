@@ -20,6 +20,8 @@ import com.qwazr.extractor.ParserField;
 import com.qwazr.extractor.ParserInterface;
 import com.qwazr.extractor.ParserResult;
 import com.qwazr.extractor.ParserUtils;
+import com.qwazr.library.extractor.ExtractionBudget;
+import com.qwazr.library.extractor.FieldProjection;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Path;
@@ -56,6 +58,11 @@ public class DocxParser implements ParserFactory, ParserInterface, PoiExtractor
         return FIELDS;
     }
 
+    @Override
+    public Collection<ParserField> getParameters() {
+        return PARAMETERS;
+    }
+
     @Override
     public String getName() {
         return NAME;
@@ -76,8 +83,10 @@ public class DocxParser implements ParserFactory, ParserInterface, PoiExtractor
         return TYPEMAP.values();
     }
 
-    static void extract(final XWPFWordExtractor word, final ParserResult.FieldsBuilder result) {
-        result.add(CONTENT, word.getText());
+    static void extract(final XWPFWordExtractor word,
+                        final ParserResult.FieldsBuilder result,
+                        final ExtractionBudget budget) {
+        PoiExtractor.addText(word.getText(), result, budget);
     }
 
     @Override
@@ -86,6 +95,16 @@ public class DocxParser implements ParserFactory, ParserInterface, PoiExtractor
                                 final MediaType mimeType) throws IOException {
 
         final ParserResult.Builder resultBuilder = ParserResult.of(NAME);
+        final FieldProjection projection = FieldProjection.of(parameters);
+        final ExtractionBudget budget = ExtractionBudget.of(parameters);
+
+        if (PoiExtractor.isMetasOnly(projection)) {
+            final ParserResult.FieldsBuilder metas = resultBuilder.metas();
+            if (mimeType != null)
+                metas.set(MIME_TYPE, mimeType.toString());
+            PoiExtractor.extractMetas(PoiExtractor.readCoreProperties(inputStream), metas);
+            return resultBuilder.build();
+        }
 
         try (final XWPFDocument document = new XWPFDocument(inputStream)) {
 
@@ -95,9 +114,15 @@ public class DocxParser implements ParserFactory, ParserInterface, PoiExtractor
                 if (mimeType != null)
                     metas.set(MIME_TYPE, mimeType.toString());
                 PoiExtractor.extractMetas(word.getCoreProperties(), metas);
+                if (budget.isExhausted()) {
+                    budget.markTruncated(resultBuilder.metas());
+                    return resultBuilder.build();
+                }
                 final ParserResult.FieldsBuilder parserDocument = resultBuilder.newDocument();
-                extract(word, parserDocument);
-                parserDocument.add(LANG_DETECTION, ParserUtils.languageDetection(parserDocument, CONTENT, 10000));
+                extract(word, parserDocument, budget);
+                if (projection.has(LANG_DETECTION))
+                    parserDocument.add(LANG_DETECTION, ParserUtils.languageDetection(parserDocument, CONTENT, 10000));
+                budget.markTruncated(metas);
             }
         }
         return resultBuilder.build();
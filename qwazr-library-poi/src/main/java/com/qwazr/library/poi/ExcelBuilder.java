@@ -21,6 +21,7 @@ import org.apache.poi.ss.usermodel.CellStyle;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
 import javax.servlet.http.HttpServletResponse;
@@ -28,10 +29,21 @@ import java.io.Closeable;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
 
@@ -41,14 +53,14 @@ import java.util.function.BiConsumer;
 public class ExcelBuilder implements Closeable {
 
 	private final Workbook workbook;
+	private final ExcelStyles styles;
 	private final AtomicInteger xpos = new AtomicInteger();
 	private final AtomicInteger ypos = new AtomicInteger();
 	private Sheet currentSheet;
 	private Row currentRow;
-	private Short defaultDateFormat;
-	private Short defaultNumberFormat;
 	private CellStyle defaultDateCellStyle;
 	private CellStyle defaultNumberCellStyle;
+	private final boolean ownsWorkbook;
 
 	/**
 	 * The builder creator
@@ -57,8 +69,49 @@ public class ExcelBuilder implements Closeable {
 	 */
 	public ExcelBuilder(final boolean xlsx) {
 		workbook = xlsx ? new XSSFWorkbook() : new HSSFWorkbook();
+		styles = new ExcelStyles(workbook);
 		currentSheet = null;
 		currentRow = null;
+		ownsWorkbook = true;
+	}
+
+	/**
+	 * The creator of a streaming XLSX builder. Only the last rows of each sheet are kept in memory,
+	 * the older rows are flushed to temporary files. Once flushed, a row cannot be read or modified:
+	 * the cursor must only move forward.
+	 *
+	 * @param rowAccessWindowSize the number of rows kept in memory for each sheet
+	 * @param compressTempFiles   true to compress the temporary files (less disk, more CPU)
+	 */
+	public ExcelBuilder(final int rowAccessWindowSize, final boolean compressTempFiles) {
+		final SXSSFWorkbook sxssfWorkbook = new SXSSFWorkbook(rowAccessWindowSize);
+		sxssfWorkbook.setCompressTempFiles(compressTempFiles);
+		workbook = sxssfWorkbook;
+		styles = new ExcelStyles(workbook);
+		currentSheet = null;
+		currentRow = null;
+		ownsWorkbook = true;
+	}
+
+	/**
+	 * A builder sharing the workbook, the styles and the default formats of its parent,
+	 * with its own cursor positioned at the beginning of the given sheet.
+	 */
+	private ExcelBuilder(final ExcelBuilder parent, final Sheet sheet) {
+		workbook = parent.workbook;
+		styles = parent.styles;
+		defaultDateCellStyle = parent.defaultDateCellStyle;
+		defaultNumberCellStyle = parent.defaultNumberCellStyle;
+		currentSheet = sheet;
+		currentRow = null;
+		ownsWorkbook = false;
+	}
+
+	/**
+	 * @return true if the rows are flushed to temporary files (SXSSF)
+	 */
+	public boolean isStreaming() {
+		return workbook instanceof SXSSFWorkbook;
 	}
 
 	/**
@@ -68,7 +121,14 @@ public class ExcelBuilder implements Closeable {
 	 * @return
 	 */
 	public short getFormat(final String format) {
-		return workbook.createDataFormat().getFormat(format);
+		return styles.getFormat(format);
+	}
+
+	/**
+	 * @return the registry of the data formats and cell styles of the workbook
+	 */
+	public ExcelStyles getStyles() {
+		return styles;
 	}
 
 	/**
@@ -77,14 +137,7 @@ public class ExcelBuilder implements Closeable {
 	 * @param dateFormat the string representation of the format
 	 */
 	public void setDefaultDateFormat(final String dateFormat) {
-		if (dateFormat == null) {
-			defaultDateFormat = null;
-			defaultDateCellStyle = null;
-			return;
-		}
-		defaultDateFormat = getFormat(dateFormat);
-		defaultDateCellStyle = workbook.createCellStyle();
-		defaultDateCellStyle.setDataFormat(defaultDateFormat);
+		defaultDateCellStyle = dateFormat == null ? null : styles.getStyle(dateFormat);
 	}
 
 	/**
@@ -93,14 +146,7 @@ public class ExcelBuilder implements Closeable {
 	 * @param numberFormat the string representation of the format
 	 */
 	public void setDefaultNumberFormat(final String numberFormat) {
-		if (numberFormat == null) {
-			defaultNumberFormat = null;
-			defaultNumberCellStyle = null;
-			return;
-		}
-		defaultNumberFormat = getFormat(numberFormat);
-		defaultNumberCellStyle = workbook.createCellStyle();
-		defaultNumberCellStyle.setDataFormat(defaultNumberFormat);
+		defaultNumberCellStyle = numberFormat == null ? null : styles.getStyle(numberFormat);
 	}
 
 	/**
@@ -149,24 +195,29 @@ public class ExcelBuilder implements Closeable {
 		Cell cell = currentRow.getCell(xpos.get());
 		if (cell == null)
 			cell = currentRow.createCell(xpos.get());
+		setCellValue(cell, object, defaultDateCellStyle, defaultNumberCellStyle);
+		xpos.incrementAndGet();
+		return cell;
+	}
+
+	private static void setCellValue(final Cell cell, final Object object, final CellStyle dateStyle,
+			final CellStyle numberStyle) {
 		if (object instanceof Calendar) {
 			cell.setCellValue((Calendar) object);
-			if (defaultDateCellStyle != null)
-				cell.setCellStyle(defaultDateCellStyle);
+			if (dateStyle != null)
+				cell.setCellStyle(dateStyle);
 		} else if (object instanceof Date) {
 			cell.setCellValue((Date) object);
-			if (defaultDateCellStyle != null)
-				cell.setCellStyle(defaultDateCellStyle);
-		} else if (object instanceof Number)
+			if (dateStyle != null)
+				cell.setCellStyle(dateStyle);
+		} else if (object instanceof Number) {
 			cell.setCellValue(((Number) object).doubleValue());
-		if (defaultNumberCellStyle != null)
-			cell.setCellStyle(defaultNumberCellStyle);
-		else if (object instanceof Boolean)
+			if (numberStyle != null)
+				cell.setCellStyle(numberStyle);
+		} else if (object instanceof Boolean)
 			cell.setCellValue((Boolean) object);
 		else
 			cell.setCellValue(object.toString());
-		xpos.incrementAndGet();
-		return cell;
 	}
 
 	/**
@@ -212,21 +263,108 @@ public class ExcelBuilder implements Closeable {
 		if (rowCallback != null)
 			rowCallback.accept(this, null);
 
+		// The type of each column is resolved once
+		final ColumnWriter[] writers = new ColumnWriter[columnCount];
+		for (int i = 0; i < columnCount; i++)
+			writers[i] = getColumnWriter(metaData.getColumnType(i + 1));
+
 		while (resultSet.next()) {
-			addRow();
-			xpos.set(0);
-			for (int i = 1; i <= columnCount; i++) {
-				Object value = resultSet.getObject(i);
-				if (resultSet.wasNull())
-					xpos.incrementAndGet();
-				else
-					addCell(value);
-			}
+			final Row row = addRow();
+			for (int i = 0; i < columnCount; i++)
+				writers[i].write(row, i, resultSet, i + 1);
+			xpos.set(columnCount);
 			if (rowCallback != null)
 				rowCallback.accept(this, resultSet);
 		}
 	}
 
+	/**
+	 * Write the value of one column of a ResultSet into a cell. No cell is created for a null value.
+	 */
+	@FunctionalInterface
+	public interface ColumnWriter {
+
+		/**
+		 * @param row         the destination row
+		 * @param cellIndex   the index of the cell in the row
+		 * @param resultSet   the source, positioned on the current row
+		 * @param columnIndex the index of the column in the ResultSet (starting at 1)
+		 * @throws SQLException if the value cannot be read
+		 */
+		void write(Row row, int cellIndex, java.sql.ResultSet resultSet, int columnIndex) throws SQLException;
+	}
+
+	/**
+	 * Get the writer of a column using its SQL type. The default styles are resolved when the writer is created.
+	 *
+	 * @param sqlType the type of the column (see {@link Types})
+	 * @return the writer matching the type
+	 */
+	public ColumnWriter getColumnWriter(final int sqlType) {
+		final CellStyle numberStyle = defaultNumberCellStyle;
+		final CellStyle dateStyle = defaultDateCellStyle;
+		switch (sqlType) {
+		case Types.TINYINT:
+		case Types.SMALLINT:
+		case Types.INTEGER:
+		case Types.BIGINT:
+		case Types.REAL:
+		case Types.FLOAT:
+		case Types.DOUBLE:
+		case Types.DECIMAL:
+		case Types.NUMERIC:
+			return (row, cellIndex, resultSet, columnIndex) -> {
+				final double value = resultSet.getDouble(columnIndex);
+				if (resultSet.wasNull())
+					return;
+				final Cell cell = row.createCell(cellIndex);
+				cell.setCellValue(value);
+				if (numberStyle != null)
+					cell.setCellStyle(numberStyle);
+			};
+		case Types.DATE:
+		case Types.TIME:
+		case Types.TIMESTAMP:
+		case Types.TIME_WITH_TIMEZONE:
+		case Types.TIMESTAMP_WITH_TIMEZONE:
+			return (row, cellIndex, resultSet, columnIndex) -> {
+				final Date value = resultSet.getTimestamp(columnIndex);
+				if (value == null)
+					return;
+				final Cell cell = row.createCell(cellIndex);
+				cell.setCellValue(value);
+				if (dateStyle != null)
+					cell.setCellStyle(dateStyle);
+			};
+		case Types.BIT:
+		case Types.BOOLEAN:
+			return (row, cellIndex, resultSet, columnIndex) -> {
+				final boolean value = resultSet.getBoolean(columnIndex);
+				if (!resultSet.wasNull())
+					row.createCell(cellIndex).setCellValue(value);
+			};
+		case Types.CHAR:
+		case Types.VARCHAR:
+		case Types.LONGVARCHAR:
+		case Types.NCHAR:
+		case Types.NVARCHAR:
+		case Types.LONGNVARCHAR:
+		case Types.CLOB:
+		case Types.NCLOB:
+			return (row, cellIndex, resultSet, columnIndex) -> {
+				final String value = resultSet.getString(columnIndex);
+				if (value != null)
+					row.createCell(cellIndex).setCellValue(value);
+			};
+		default:
+			return (row, cellIndex, resultSet, columnIndex) -> {
+				final Object value = resultSet.getObject(columnIndex);
+				if (value != null && !resultSet.wasNull())
+					setCellValue(row.createCell(cellIndex), value, dateStyle, numberStyle);
+			};
+		}
+	}
+
 	/**
 	 * Fill the content of a sheet with a SQL resultSet. The first row show the column definition.
 	 *
@@ -237,6 +375,101 @@ public class ExcelBuilder implements Closeable {
 		createSheetAndFill(sheetName, resultSet, null);
 	}
 
+	/**
+	 * Fill one sheet using a builder dedicated to this sheet
+	 */
+	@FunctionalInterface
+	public interface SheetFiller {
+
+		/**
+		 * @param sheetBuilder a builder whose cursor is at the beginning of the sheet.
+		 *                     It must only be used for this sheet.
+		 * @throws Exception if the sheet cannot be filled
+		 */
+		void fill(ExcelBuilder sheetBuilder) throws Exception;
+	}
+
+	/**
+	 * Fill several sheets concurrently. The sheets are created first, in the order of the map.
+	 * Then each sheet is filled by its own worker, with its own cursor (see {@link SheetFiller}).
+	 * <p>
+	 * The sheets of a streaming workbook (SXSSF) are written to independent temporary files,
+	 * and the package is assembled when the workbook is saved or sent. The other workbooks are not thread safe:
+	 * their sheets are filled one after the other by the calling thread.
+	 *
+	 * @param fillers     the sheet names and the functions filling them
+	 * @param parallelism the maximum number of sheets filled at the same time
+	 * @throws IOException if a filler failed (the first failure is thrown, the other workers are cancelled)
+	 */
+	public void fillSheets(final Map<String, SheetFiller> fillers, final int parallelism) throws IOException {
+		final Map<String, ExcelBuilder> sheetBuilders = new LinkedHashMap<>();
+		for (final String sheetName : fillers.keySet()) {
+			Sheet sheet = workbook.getSheet(sheetName);
+			if (sheet == null)
+				sheet = workbook.createSheet(sheetName);
+			sheetBuilders.put(sheetName, new ExcelBuilder(this, sheet));
+		}
+		if (!isStreaming() || parallelism <= 1 || fillers.size() <= 1) {
+			for (final Map.Entry<String, SheetFiller> entry : fillers.entrySet())
+				fillSheet(entry.getKey(), entry.getValue(), sheetBuilders.get(entry.getKey()));
+			return;
+		}
+		final ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, fillers.size()));
+		try {
+			final List<Future<?>> futures = new ArrayList<>();
+			for (final Map.Entry<String, SheetFiller> entry : fillers.entrySet())
+				futures.add(executor.submit(() -> {
+					fillSheet(entry.getKey(), entry.getValue(), sheetBuilders.get(entry.getKey()));
+					return null;
+				}));
+			for (final Future<?> future : futures) {
+				try {
+					future.get();
+				} catch (ExecutionException e) {
+					futures.forEach(f -> f.cancel(true));
+					if (e.getCause() instanceof IOException)
+						throw (IOException) e.getCause();
+					throw new IOException(e.getCause());
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while filling the sheets");
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Fill several sheets concurrently, each sheet with the rows of its own query
+	 * (see {@link #createSheetAndFill(String, java.sql.ResultSet)}). The result sets are closed.
+	 *
+	 * @param queries     the sheet names and the functions executing the queries
+	 * @param parallelism the maximum number of sheets filled at the same time
+	 * @throws IOException if a query or a sheet failed
+	 */
+	public void createSheetsAndFill(final Map<String, Callable<java.sql.ResultSet>> queries, final int parallelism)
+			throws IOException {
+		final Map<String, SheetFiller> fillers = new LinkedHashMap<>();
+		queries.forEach((sheetName, query) -> fillers.put(sheetName, sheetBuilder -> {
+			try (final java.sql.ResultSet resultSet = query.call()) {
+				sheetBuilder.createSheetAndFill(sheetName, resultSet);
+			}
+		}));
+		fillSheets(fillers, parallelism);
+	}
+
+	private static void fillSheet(final String sheetName, final SheetFiller filler, final ExcelBuilder sheetBuilder)
+			throws IOException {
+		try {
+			filler.fill(sheetBuilder);
+		} catch (IOException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new IOException("Cannot fill the sheet " + sheetName, e);
+		}
+	}
+
 	/**
 	 * Send the content of the Excel file using the right mime type.
 	 *
@@ -250,7 +483,9 @@ public class ExcelBuilder implements Closeable {
 				"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
 		response.setContentType(mime);
 		response.setHeader("Content-Disposition", "attachment; filename=\"" + fileName + "\"");
+		// No content length: the workbook is written straight to the response, without any intermediate buffer
 		workbook.write(response.getOutputStream());
+		response.flushBuffer();
 	}
 
 	/**
@@ -277,6 +512,14 @@ public class ExcelBuilder implements Closeable {
 
 	@Override
 	public void close() throws IOException {
-		workbook.close();
+		if (!ownsWorkbook)
+			return;
+		try {
+			workbook.close();
+		} finally {
+			// Delete the temporary files of the flushed rows
+			if (workbook instanceof SXSSFWorkbook)
+				((SXSSFWorkbook) workbook).dispose();
+		}
 	}
 }
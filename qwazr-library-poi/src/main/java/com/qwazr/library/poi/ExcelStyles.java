@@ -0,0 +1,76 @@
+/**
+ * Copyright 2015-2017 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ **/
+package com.qwazr.library.poi;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.DataFormat;
+import org.apache.poi.ss.usermodel.Workbook;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The data formats and the cell styles of a workbook, interned by their format string.
+ * A workbook has a limited number of cell styles (4000 for XLS, 64000 for XLSX):
+ * a style is created once per format and shared by all the cells using it.
+ */
+public class ExcelStyles {
+
+	private final Workbook workbook;
+	private final DataFormat dataFormat;
+	private final Map<String, Short> formats;
+	private final Map<String, CellStyle> styles;
+
+	ExcelStyles(final Workbook workbook) {
+		this.workbook = workbook;
+		this.dataFormat = workbook.createDataFormat();
+		this.formats = new HashMap<>();
+		this.styles = new HashMap<>();
+	}
+
+	/**
+	 * Get the number of a given format. If the format does not exist, a new one is created
+	 *
+	 * @param format the string representation of the format
+	 * @return the index of the format
+	 */
+	public synchronized short getFormat(final String format) {
+		return formats.computeIfAbsent(format, dataFormat::getFormat);
+	}
+
+	/**
+	 * Get the cell style using the given format. If the style does not exist, a new one is created
+	 *
+	 * @param format the string representation of the format
+	 * @return the shared cell style
+	 */
+	public synchronized CellStyle getStyle(final String format) {
+		CellStyle style = styles.get(format);
+		if (style == null) {
+			style = workbook.createCellStyle();
+			style.setDataFormat(getFormat(format));
+			styles.put(format, style);
+		}
+		return style;
+	}
+
+	/**
+	 * @return the number of interned cell styles
+	 */
+	public synchronized int getStyleCount() {
+		return styles.size();
+	}
+}
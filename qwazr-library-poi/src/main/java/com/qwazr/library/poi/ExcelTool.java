@@ -24,6 +24,18 @@ public class ExcelTool extends AbstractLibrary {
 
 	public final String default_number_format = null;
 
+	/**
+	 * The number of rows kept in memory for each sheet by the streaming builders
+	 */
+	public final Integer streaming_row_window = null;
+
+	/**
+	 * True to compress the temporary files of the streaming builders
+	 */
+	public final Boolean streaming_compress_temp_files = null;
+
+	public final static int DEFAULT_STREAMING_ROW_WINDOW = 1000;
+
 	/**
 	 * Create a new Excel document builder
 	 *
@@ -32,7 +44,22 @@ public class ExcelTool extends AbstractLibrary {
 	 * @return a new builder
 	 */
 	public ExcelBuilder getNewBuilder(final boolean xlsx, final IOUtils.CloseableContext closeables) {
-		final ExcelBuilder builder = new ExcelBuilder(xlsx);
+		return configure(new ExcelBuilder(xlsx), closeables);
+	}
+
+	/**
+	 * Create a new streaming XLSX document builder. Only the last rows of each sheet are kept in memory.
+	 *
+	 * @param closeables an optional autocloseable context
+	 * @return a new builder
+	 */
+	public ExcelBuilder getNewStreamingBuilder(final IOUtils.CloseableContext closeables) {
+		final int rowWindow = streaming_row_window == null ? DEFAULT_STREAMING_ROW_WINDOW : streaming_row_window;
+		final boolean compress = streaming_compress_temp_files != null && streaming_compress_temp_files;
+		return configure(new ExcelBuilder(rowWindow, compress), closeables);
+	}
+
+	private ExcelBuilder configure(final ExcelBuilder builder, final IOUtils.CloseableContext closeables) {
 		if (closeables != null)
 			closeables.add(builder);
 		if (default_date_format != null)
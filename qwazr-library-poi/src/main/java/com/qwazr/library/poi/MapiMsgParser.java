@@ -20,6 +20,8 @@ import com.qwazr.extractor.ParserField;
 import com.qwazr.extractor.ParserInterface;
 import com.qwazr.extractor.ParserResult;
 import com.qwazr.extractor.ParserUtils;
+import com.qwazr.library.extractor.ExtractionBudget;
+import com.qwazr.library.extractor.FieldProjection;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Path;
@@ -101,6 +103,11 @@ public class MapiMsgParser implements ParserFactory, ParserInterface {
         return FIELDS;
     }
 
+    @Override
+    public Collection<ParserField> getParameters() {
+        return PoiExtractor.PARAMETERS;
+    }
+
     @Override
     public Collection<String> getSupportedFileExtensions() {
         return DEFAULT_EXTENSIONS;
@@ -117,6 +124,8 @@ public class MapiMsgParser implements ParserFactory, ParserInterface {
                                 final MediaType mimeType) throws IOException {
 
         final ParserResult.Builder resultBuilder = ParserResult.of(NAME);
+        final FieldProjection projection = FieldProjection.of(parameters);
+        final ExtractionBudget budget = ExtractionBudget.of(parameters);
 
         try (final MAPIMessage msg = new MAPIMessage(inputStream)) {
             msg.setReturnNullOnMissingChunk(true);
@@ -127,20 +136,46 @@ public class MapiMsgParser implements ParserFactory, ParserInterface {
 
             final ParserResult.FieldsBuilder document = resultBuilder.newDocument();
 
-            document.add(FROM, msg.getDisplayFrom());
-            document.add(RECIPIENT_TO, msg.getDisplayTo());
-            document.add(RECIPIENT_CC, msg.getDisplayCC());
-            document.add(RECIPIENT_BCC, msg.getDisplayBCC());
-            document.add(SUBJECT, msg.getSubject());
-            document.add(HTML_CONTENT, msg.getHtmlBody());
-            document.add(PLAIN_CONTENT, msg.getTextBody());
-            document.add(MESSAGE_DATE, msg.getMessageDate());
-            document.add(CONVERSATION_TOPIC, msg.getConversationTopic());
-
-            if (StringUtils.isEmpty(msg.getHtmlBody()))
-                document.add(LANG_DETECTION, ParserUtils.languageDetection(document, PLAIN_CONTENT, 10000));
-            else
-                document.add(LANG_DETECTION, ParserUtils.languageDetection(document, HTML_CONTENT, 10000));
+            if (projection.has(FROM))
+                document.add(FROM, msg.getDisplayFrom());
+            if (projection.has(RECIPIENT_TO))
+                document.add(RECIPIENT_TO, msg.getDisplayTo());
+            if (projection.has(RECIPIENT_CC))
+                document.add(RECIPIENT_CC, msg.getDisplayCC());
+            if (projection.has(RECIPIENT_BCC))
+                document.add(RECIPIENT_BCC, msg.getDisplayBCC());
+            if (projection.has(SUBJECT))
+                document.add(SUBJECT, msg.getSubject());
+            if (projection.has(MESSAGE_DATE))
+                document.add(MESSAGE_DATE, msg.getMessageDate());
+            if (projection.has(CONVERSATION_TOPIC))
+                document.add(CONVERSATION_TOPIC, msg.getConversationTopic());
+
+            // The bodies are also needed by the language detection
+            final boolean langDetection = projection.has(LANG_DETECTION);
+            final String htmlBody = (langDetection || projection.has(HTML_CONTENT)) && !budget.isExhausted() ?
+                    msg.getHtmlBody() :
+                    null;
+            if (htmlBody != null) {
+                document.add(HTML_CONTENT, htmlBody);
+                budget.addCharacters(htmlBody.length());
+            }
+            if ((langDetection || projection.has(PLAIN_CONTENT)) && !budget.isExhausted()) {
+                final String textBody = msg.getTextBody();
+                document.add(PLAIN_CONTENT, textBody);
+                if (textBody != null)
+                    budget.addCharacters(textBody.length());
+            }
+
+            if (langDetection) {
+                if (StringUtils.isEmpty(htmlBody))
+                    document.add(LANG_DETECTION, ParserUtils.languageDetection(document, PLAIN_CONTENT, 10000));
+                else
+                    document.add(LANG_DETECTION, ParserUtils.languageDetection(document, HTML_CONTENT, 10000));
+            }
+
+            // The reason is set if a body has been skipped
+            budget.markTruncated(metas);
 
             // TODO manage attachments
         } catch (ChunkNotFoundException e) {
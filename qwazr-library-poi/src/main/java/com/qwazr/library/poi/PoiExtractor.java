@@ -16,10 +16,34 @@
 package com.qwazr.library.poi;
 
 import com.qwazr.extractor.ParserField;
+import static com.qwazr.extractor.ParserInterface.CONTENT;
+import static com.qwazr.extractor.ParserInterface.LANG_DETECTION;
 import static com.qwazr.extractor.ParserInterface.TITLE;
 import com.qwazr.extractor.ParserResult;
+import com.qwazr.extractor.ParserUtils;
+import com.qwazr.library.extractor.DocumentEmitter;
+import com.qwazr.library.extractor.ExtractionBudget;
+import com.qwazr.library.extractor.FieldProjection;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.List;
+import javax.ws.rs.InternalServerErrorException;
+import javax.ws.rs.core.MultivaluedMap;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.poi.hpsf.HPSFPropertiesOnlyDocument;
 import org.apache.poi.hpsf.SummaryInformation;
 import org.apache.poi.ooxml.POIXMLProperties;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.xmlbeans.XmlException;
 
 public interface PoiExtractor {
 
@@ -37,6 +61,29 @@ public interface PoiExtractor {
 
     ParserField SUBJECT = ParserField.newString("subject", "The subject of the document");
 
+    Collection<ParserField> PARAMETERS = List.of(FieldProjection.PARAMETER,
+            ExtractionBudget.TIMEOUT_MS, ExtractionBudget.MAX_CHARACTERS);
+
+    ParserField STREAMING = ParserField.newString("streaming",
+            "Set to true to read the workbook with the event model, sheet by sheet, with a bounded memory");
+
+    ParserField PER_SHEET = ParserField.newString("per_sheet",
+            "With the streaming mode, set to true to extract one document per sheet");
+
+    Collection<ParserField> SPREADSHEET_PARAMETERS = List.of(FieldProjection.PARAMETER,
+            ExtractionBudget.TIMEOUT_MS, ExtractionBudget.MAX_CHARACTERS, STREAMING);
+
+    Collection<ParserField> XLS_PARAMETERS = List.of(FieldProjection.PARAMETER,
+            ExtractionBudget.TIMEOUT_MS, ExtractionBudget.MAX_CHARACTERS, STREAMING, PER_SHEET);
+
+    /**
+     * @param parameters the parameters of the extraction
+     * @return true if the streaming mode is requested
+     */
+    static boolean isStreaming(final MultivaluedMap<String, String> parameters) {
+        return Boolean.parseBoolean(ParserUtils.getParameterValue(parameters, STREAMING, 0));
+    }
+
     static void extractMetas(final POIXMLProperties.CoreProperties info,
                              final ParserResult.FieldsBuilder metas) {
         if (info == null)
@@ -62,6 +109,157 @@ public interface PoiExtractor {
         metas.add(KEYWORDS, info.getKeywords());
     }
 
+    /**
+     * @param projection the requested fields
+     * @return true if the text does not have to be extracted
+     */
+    static boolean isMetasOnly(final FieldProjection projection) {
+        return !projection.hasAny(CONTENT, LANG_DETECTION);
+    }
+
+    /**
+     * Read the core properties of an OOXML package without loading the document itself.
+     *
+     * @param inputStream the OOXML package
+     * @return the core properties
+     * @throws IOException if any I/O error occurs
+     */
+    static POIXMLProperties.CoreProperties readCoreProperties(final InputStream inputStream) throws IOException {
+        final OPCPackage pkg;
+        try {
+            pkg = OPCPackage.open(inputStream);
+        } catch (OpenXML4JException e) {
+            throw new InternalServerErrorException(e);
+        }
+        try {
+            return new POIXMLProperties(pkg).getCoreProperties();
+        } catch (OpenXML4JException | XmlException e) {
+            throw new InternalServerErrorException(e);
+        } finally {
+            pkg.revert();
+        }
+    }
+
+    /**
+     * Read the summary information of an OLE2 file system without loading the document itself.
+     *
+     * @param inputStream the OLE2 file system
+     * @return the summary information or null
+     * @throws IOException if any I/O error occurs
+     */
+    static SummaryInformation readSummaryInformation(final InputStream inputStream) throws IOException {
+        try (final POIFSFileSystem fileSystem = new POIFSFileSystem(inputStream)) {
+            return new HPSFPropertiesOnlyDocument(fileSystem).getSummaryInformation();
+        }
+    }
+
+    /**
+     * Add the texts to the CONTENT field while the budget is not exhausted.
+     *
+     * @param texts    the texts (paragraphs, shapes, ...)
+     * @param document the document receiving the texts
+     * @param budget   the budget of the extraction
+     */
+    static void addTexts(final String[] texts,
+                         final ParserResult.FieldsBuilder document,
+                         final ExtractionBudget budget) {
+        if (texts == null)
+            return;
+        for (final String text : texts) {
+            if (budget.isExhausted())
+                return;
+            document.add(CONTENT, text);
+            if (text != null)
+                budget.addCharacters(text.length());
+        }
+    }
+
+    /**
+     * Add a text extracted in one call (the whole document) to the CONTENT field.
+     * The text is cut to the remaining number of characters of the budget.
+     *
+     * @param text     the text, may be null
+     * @param document the document receiving the text
+     * @param budget   the budget of the extraction
+     */
+    static void addText(final String text,
+                        final ParserResult.FieldsBuilder document,
+                        final ExtractionBudget budget) {
+        if (StringUtils.isEmpty(text))
+            return;
+        final long remaining = budget.getRemainingCharacters();
+        if (text.length() <= remaining) {
+            document.add(CONTENT, text);
+            budget.addCharacters(text.length());
+            return;
+        }
+        if (remaining > 0)
+            document.add(CONTENT, text.substring(0, (int) remaining));
+        budget.addCharacters(remaining);
+        budget.stop(ExtractionBudget.MAX_CHARACTERS.name);
+    }
+
+    /**
+     * Emit one document per sheet: the sheet name, then one line per row with the cells separated by tabs.
+     * The formulas are not evaluated, their cached results are used.
+     * The budget is checked before each row.
+     *
+     * @param workbook   the workbook to extract
+     * @param emitter    receives the documents
+     * @param projection the requested fields
+     * @param budget     the budget of the extraction
+     * @throws IOException if the consumer failed
+     */
+    static void extractSheets(final Workbook workbook,
+                              final DocumentEmitter emitter,
+                              final FieldProjection projection,
+                              final ExtractionBudget budget) throws IOException {
+        final DataFormatter formatter = new DataFormatter();
+        final StringBuilder line = new StringBuilder();
+        for (final Sheet sheet : workbook) {
+            if (budget.isExhausted())
+                return;
+            final ParserResult.FieldsBuilder document = emitter.newDocument();
+            document.add(CONTENT, sheet.getSheetName());
+            for (final Row row : sheet) {
+                if (budget.isExhausted())
+                    break;
+                line.setLength(0);
+                for (final Cell cell : row) {
+                    if (line.length() > 0)
+                        line.append('\t');
+                    line.append(getCellText(formatter, cell));
+                }
+                if (line.length() > 0)
+                    document.add(CONTENT, line.toString());
+                budget.addCharacters(line.length());
+            }
+            if (projection.has(LANG_DETECTION))
+                document.add(LANG_DETECTION, ParserUtils.languageDetection(document, CONTENT, 10000));
+            emitter.complete();
+        }
+    }
+
+    private static String getCellText(final DataFormatter formatter, final Cell cell) {
+        switch (cell.getCellType()) {
+            case FORMULA:
+                switch (cell.getCachedFormulaResultType()) {
+                    case NUMERIC:
+                        final CellStyle style = cell.getCellStyle();
+                        return formatter.formatRawCellContents(cell.getNumericCellValue(), style.getDataFormat(),
+                                style.getDataFormatString());
+                    case STRING:
+                        return cell.getRichStringCellValue().getString();
+                    case BOOLEAN:
+                        return Boolean.toString(cell.getBooleanCellValue());
+                    default:
+                        return "";
+                }
+            default:
+                return formatter.formatCellValue(cell);
+        }
+    }
+
     /* TODO
     static void extract(final POIFSFileSystem fileSystem, final ParserResult.FieldsBuilder result)
             throws OpenXML4JException, XmlException, IOException {
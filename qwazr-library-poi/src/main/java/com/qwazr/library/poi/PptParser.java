@@ -20,6 +20,8 @@ import com.qwazr.extractor.ParserField;
 import com.qwazr.extractor.ParserInterface;
 import com.qwazr.extractor.ParserResult;
 import com.qwazr.extractor.ParserUtils;
+import com.qwazr.library.extractor.ExtractionBudget;
+import com.qwazr.library.extractor.FieldProjection;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Path;
@@ -58,6 +60,11 @@ public class PptParser implements ParserFactory, ParserInterface, PoiExtractor {
         return FIELDS;
     }
 
+    @Override
+    public Collection<ParserField> getParameters() {
+        return PARAMETERS;
+    }
+
     @Override
     public Collection<String> getSupportedFileExtensions() {
         return DEFAULT_EXTENSIONS;
@@ -74,6 +81,15 @@ public class PptParser implements ParserFactory, ParserInterface, PoiExtractor {
                                 final MediaType mimeType) throws IOException {
 
         final ParserResult.Builder resultBuilder = ParserResult.of(NAME);
+        final FieldProjection projection = FieldProjection.of(parameters);
+        final ExtractionBudget budget = ExtractionBudget.of(parameters);
+        if (PoiExtractor.isMetasOnly(projection)) {
+            final ParserResult.FieldsBuilder metas = resultBuilder.metas();
+            if (mimeType != null)
+                metas.set(MIME_TYPE, mimeType.toString());
+            PoiExtractor.extractMetas(PoiExtractor.readSummaryInformation(inputStream), metas);
+            return resultBuilder.build();
+        }
         try (final HSLFSlideShow ppt = new HSLFSlideShow(inputStream)) {
 
             final ParserResult.FieldsBuilder metas = resultBuilder.metas();
@@ -81,9 +97,15 @@ public class PptParser implements ParserFactory, ParserInterface, PoiExtractor {
                 metas.set(MIME_TYPE, mimeType.toString());
             PoiExtractor.extractMetas(ppt.getMetadataTextExtractor().getSummaryInformation(), metas);
 
+            if (budget.isExhausted()) {
+                budget.markTruncated(resultBuilder.metas());
+                return resultBuilder.build();
+            }
             final ParserResult.FieldsBuilder result = resultBuilder.newDocument();
-            PptxParser.extract(ppt, result);
-            result.add(LANG_DETECTION, ParserUtils.languageDetection(result, CONTENT, 10000));
+            PptxParser.extract(ppt, result, budget);
+            if (projection.has(LANG_DETECTION))
+                result.add(LANG_DETECTION, ParserUtils.languageDetection(result, CONTENT, 10000));
+            budget.markTruncated(metas);
         }
         return resultBuilder.build();
     }
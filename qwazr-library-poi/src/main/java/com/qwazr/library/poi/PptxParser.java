@@ -20,6 +20,8 @@ import com.qwazr.extractor.ParserField;
 import com.qwazr.extractor.ParserInterface;
 import com.qwazr.extractor.ParserResult;
 import com.qwazr.extractor.ParserUtils;
+import com.qwazr.library.extractor.ExtractionBudget;
+import com.qwazr.library.extractor.FieldProjection;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Path;
@@ -27,7 +29,6 @@ import java.util.Collection;
 import java.util.List;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedMap;
-import org.apache.commons.lang3.StringUtils;
 import org.apache.poi.ooxml.extractor.POIXMLTextExtractor;
 import org.apache.poi.sl.extractor.SlideShowExtractor;
 import org.apache.poi.sl.usermodel.SlideShow;
@@ -71,6 +72,11 @@ public class PptxParser implements ParserFactory, ParserInterface, PoiExtractor
         return FIELDS;
     }
 
+    @Override
+    public Collection<ParserField> getParameters() {
+        return PARAMETERS;
+    }
+
     @Override
     public Collection<String> getSupportedFileExtensions() {
         return DEFAULT_EXTENSIONS;
@@ -81,14 +87,14 @@ public class PptxParser implements ParserFactory, ParserInterface, PoiExtractor
         return DEFAULT_MIMETYPES;
     }
 
-    static void extract(final SlideShow<?, ?> slideShow, final ParserResult.FieldsBuilder result) throws IOException {
+    static void extract(final SlideShow<?, ?> slideShow,
+                        final ParserResult.FieldsBuilder result,
+                        final ExtractionBudget budget) throws IOException {
         try (final SlideShowExtractor<?, ?> extractor = new SlideShowExtractor<>(slideShow)) {
             extractor.setCommentsByDefault(true);
             extractor.setNotesByDefault(true);
             extractor.setSlidesByDefault(true);
-            final String text = extractor.getText();
-            if (!StringUtils.isEmpty(text))
-                result.add(CONTENT, text);
+            PoiExtractor.addText(extractor.getText(), result, budget);
         }
     }
 
@@ -98,6 +104,15 @@ public class PptxParser implements ParserFactory, ParserInterface, PoiExtractor
                                 final MediaType mimeType) throws IOException {
 
         final ParserResult.Builder resultBuilder = ParserResult.of(NAME);
+        final FieldProjection projection = FieldProjection.of(parameters);
+        final ExtractionBudget budget = ExtractionBudget.of(parameters);
+        if (PoiExtractor.isMetasOnly(projection)) {
+            final ParserResult.FieldsBuilder metas = resultBuilder.metas();
+            if (mimeType != null)
+                metas.set(MIME_TYPE, mimeType.toString());
+            PoiExtractor.extractMetas(PoiExtractor.readCoreProperties(inputStream), metas);
+            return resultBuilder.build();
+        }
         try (final XMLSlideShow slideshow = new XMLSlideShow(inputStream)) {
 
             try (final POIXMLTextExtractor textExtractor = slideshow.getMetadataTextExtractor()) {
@@ -107,9 +122,15 @@ public class PptxParser implements ParserFactory, ParserInterface, PoiExtractor
                 PoiExtractor.extractMetas(textExtractor.getCoreProperties(), metas);
             }
 
+            if (budget.isExhausted()) {
+                budget.markTruncated(resultBuilder.metas());
+                return resultBuilder.build();
+            }
             final ParserResult.FieldsBuilder result = resultBuilder.newDocument();
-            extract(slideshow, result);
-            result.add(LANG_DETECTION, ParserUtils.languageDetection(result, CONTENT, 10000));
+            extract(slideshow, result, budget);
+            if (projection.has(LANG_DETECTION))
+                result.add(LANG_DETECTION, ParserUtils.languageDetection(result, CONTENT, 10000));
+            budget.markTruncated(resultBuilder.metas());
 
         }
         return resultBuilder.build();
@@ -20,6 +20,8 @@ import com.qwazr.extractor.ParserField;
 import com.qwazr.extractor.ParserInterface;
 import com.qwazr.extractor.ParserResult;
 import com.qwazr.extractor.ParserUtils;
+import com.qwazr.library.extractor.ExtractionBudget;
+import com.qwazr.library.extractor.FieldProjection;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Path;
@@ -48,6 +50,11 @@ public class PublisherParser implements ParserFactory, ParserInterface, PoiExtra
         return FIELDS;
     }
 
+    @Override
+    public Collection<ParserField> getParameters() {
+        return PARAMETERS;
+    }
+
     @Override
     public String getName() {
         return NAME;
@@ -73,6 +80,15 @@ public class PublisherParser implements ParserFactory, ParserInterface, PoiExtra
                                 final InputStream inputStream,
                                 final MediaType mimeType) throws IOException {
         final ParserResult.Builder resultBuilder = ParserResult.of(NAME);
+        final FieldProjection projection = FieldProjection.of(parameters);
+        final ExtractionBudget budget = ExtractionBudget.of(parameters);
+        if (PoiExtractor.isMetasOnly(projection)) {
+            final ParserResult.FieldsBuilder metas = resultBuilder.metas();
+            if (mimeType != null)
+                metas.set(MIME_TYPE, mimeType.toString());
+            PoiExtractor.extractMetas(PoiExtractor.readSummaryInformation(inputStream), metas);
+            return resultBuilder.build();
+        }
 
         try (final PublisherTextExtractor extractor = new PublisherTextExtractor(inputStream)) {
 
@@ -80,12 +96,18 @@ public class PublisherParser implements ParserFactory, ParserInterface, PoiExtra
             if (mimeType != null)
                 metas.set(MIME_TYPE, mimeType.toString());
             PoiExtractor.extractMetas(extractor.getSummaryInformation(), metas);
+            if (budget.isExhausted()) {
+                budget.markTruncated(resultBuilder.metas());
+                return resultBuilder.build();
+            }
             final String text = extractor.getText();
             if (!StringUtils.isEmpty(text)) {
                 final ParserResult.FieldsBuilder result = resultBuilder.newDocument();
-                result.add(CONTENT, text);
-                result.add(LANG_DETECTION, ParserUtils.languageDetection(result, CONTENT, 10000));
+                PoiExtractor.addText(text, result, budget);
+                if (projection.has(LANG_DETECTION))
+                    result.add(LANG_DETECTION, ParserUtils.languageDetection(result, CONTENT, 10000));
             }
+            budget.markTruncated(metas);
         }
         return resultBuilder.build();
     }
@@ -20,6 +20,8 @@ import com.qwazr.extractor.ParserField;
 import com.qwazr.extractor.ParserInterface;
 import com.qwazr.extractor.ParserResult;
 import com.qwazr.extractor.ParserUtils;
+import com.qwazr.library.extractor.ExtractionBudget;
+import com.qwazr.library.extractor.FieldProjection;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Path;
@@ -73,6 +75,11 @@ public class VisioParser implements ParserFactory, ParserInterface {
         return FIELDS;
     }
 
+    @Override
+    public Collection<ParserField> getParameters() {
+        return PoiExtractor.PARAMETERS;
+    }
+
     @Override
     public Collection<String> getSupportedFileExtensions() {
         return DEFAULT_EXTENSIONS;
@@ -83,35 +90,46 @@ public class VisioParser implements ParserFactory, ParserInterface {
         return DEFAULT_MIMETYPES;
     }
 
+    private static void extractMetas(final SummaryInformation info,
+                                     final MediaType mimeType,
+                                     final ParserResult.FieldsBuilder metas) {
+        if (mimeType != null)
+            metas.set(MIME_TYPE, mimeType.toString());
+        if (info != null) {
+            metas.add(TITLE, info.getTitle());
+            metas.add(AUTHOR, info.getAuthor());
+            metas.add(SUBJECT, info.getSubject());
+            metas.add(CREATION_DATE, info.getCreateDateTime());
+            metas.add(MODIFICATION_DATE, info.getLastSaveDateTime());
+            metas.add(CONTENT, info.getKeywords());
+            metas.add(COMMENTS, info.getComments());
+        }
+    }
+
     @Override
     public ParserResult extract(final MultivaluedMap<String, String> parameters,
                                 final InputStream inputStream,
                                 final MediaType mimeType) throws IOException {
 
         final ParserResult.Builder resultBuilder = ParserResult.of(NAME);
+        final FieldProjection projection = FieldProjection.of(parameters);
+        final ExtractionBudget budget = ExtractionBudget.of(parameters);
+        if (PoiExtractor.isMetasOnly(projection)) {
+            extractMetas(PoiExtractor.readSummaryInformation(inputStream), mimeType, resultBuilder.metas());
+            return resultBuilder.build();
+        }
         try (final VisioTextExtractor extractor = new VisioTextExtractor(inputStream)) {
 
-            final SummaryInformation info = extractor.getSummaryInformation();
-
-            final ParserResult.FieldsBuilder metas = resultBuilder.metas();
-            if (mimeType != null)
-                metas.set(MIME_TYPE, mimeType.toString());
-            if (info != null) {
-                metas.add(TITLE, info.getTitle());
-                metas.add(AUTHOR, info.getAuthor());
-                metas.add(SUBJECT, info.getSubject());
-                metas.add(CREATION_DATE, info.getCreateDateTime());
-                metas.add(MODIFICATION_DATE, info.getLastSaveDateTime());
-                metas.add(CONTENT, info.getKeywords());
-                metas.add(COMMENTS, info.getComments());
-            }
+            extractMetas(extractor.getSummaryInformation(), mimeType, resultBuilder.metas());
+
             final String[] texts = extractor.getAllText();
             if (texts == null)
                 return resultBuilder.build();
             final ParserResult.FieldsBuilder result = resultBuilder.newDocument();
-            for (String text : texts)
-                result.add(CONTENT, text);
-            result.add(LANG_DETECTION, ParserUtils.languageDetection(result, CONTENT, 10000));
+            PoiExtractor.addTexts(texts, result, budget);
+            if (projection.has(LANG_DETECTION))
+                result.add(LANG_DETECTION, ParserUtils.languageDetection(result, CONTENT, 10000));
+            budget.markTruncated(resultBuilder.metas());
         }
         return resultBuilder.build();
     }
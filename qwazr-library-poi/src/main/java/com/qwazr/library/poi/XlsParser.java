@@ -20,6 +20,13 @@ import com.qwazr.extractor.ParserField;
 import com.qwazr.extractor.ParserInterface;
 import com.qwazr.extractor.ParserResult;
 import com.qwazr.extractor.ParserUtils;
+import com.qwazr.library.extractor.DocumentConsumer;
+import com.qwazr.library.extractor.DocumentEmitter;
+import com.qwazr.library.extractor.ExtractionBudget;
+import com.qwazr.library.extractor.FieldProjection;
+import com.qwazr.library.extractor.Spool;
+import com.qwazr.library.extractor.SpoolStrategy;
+import com.qwazr.library.extractor.StreamingParser;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Path;
@@ -30,7 +37,7 @@ import javax.ws.rs.core.MultivaluedMap;
 import org.apache.poi.hssf.extractor.ExcelExtractor;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 
-public class XlsParser implements ParserFactory, ParserInterface, PoiExtractor {
+public class XlsParser implements ParserFactory, ParserInterface, StreamingParser, PoiExtractor {
 
     private final static String NAME = "xls";
 
@@ -59,6 +66,11 @@ public class XlsParser implements ParserFactory, ParserInterface, PoiExtractor {
         return FIELDS;
     }
 
+    @Override
+    public Collection<ParserField> getParameters() {
+        return XLS_PARAMETERS;
+    }
+
     @Override
     public Collection<String> getSupportedFileExtensions() {
         return DEFAULT_EXTENSIONS;
@@ -73,8 +85,21 @@ public class XlsParser implements ParserFactory, ParserInterface, PoiExtractor {
     public ParserResult extract(final MultivaluedMap<String, String> parameters,
                                 final InputStream inputStream,
                                 final MediaType mimeType) throws IOException {
-
+        if (PoiExtractor.isStreaming(parameters)) {
+            try (final Spool spool = SpoolStrategy.DEFAULT.spool(inputStream, ".xls")) {
+                return extractStreaming(parameters, spool.toPath(), mimeType, null);
+            }
+        }
         final ParserResult.Builder resultBuilder = ParserResult.of(NAME);
+        final FieldProjection projection = FieldProjection.of(parameters);
+        final ExtractionBudget budget = ExtractionBudget.of(parameters);
+        if (PoiExtractor.isMetasOnly(projection)) {
+            final ParserResult.FieldsBuilder metas = resultBuilder.metas();
+            if (mimeType != null)
+                metas.set(MIME_TYPE, mimeType.toString());
+            PoiExtractor.extractMetas(PoiExtractor.readSummaryInformation(inputStream), metas);
+            return resultBuilder.build();
+        }
         try (final HSSFWorkbook workbook = new HSSFWorkbook(inputStream)) {
 
             try (final ExcelExtractor excel = new ExcelExtractor(workbook)) {
@@ -84,9 +109,16 @@ public class XlsParser implements ParserFactory, ParserInterface, PoiExtractor {
                     metas.set(MIME_TYPE, mimeType.toString());
                 PoiExtractor.extractMetas(excel.getSummaryInformation(), metas);
 
+                // With a budget, the sheets are read row by row so that the extraction can be stopped
+                if (budget.isLimited()) {
+                    PoiExtractor.extractSheets(workbook, DocumentEmitter.of(resultBuilder), projection, budget);
+                    budget.markTruncated(metas);
+                    return resultBuilder.build();
+                }
                 final ParserResult.FieldsBuilder result = resultBuilder.newDocument();
                 result.add(CONTENT, excel.getText());
-                result.add(LANG_DETECTION, ParserUtils.languageDetection(result, CONTENT, 10000));
+                if (projection.has(LANG_DETECTION))
+                    result.add(LANG_DETECTION, ParserUtils.languageDetection(result, CONTENT, 10000));
             }
         }
         return resultBuilder.build();
@@ -95,6 +127,73 @@ public class XlsParser implements ParserFactory, ParserInterface, PoiExtractor {
     @Override
     public ParserResult extract(final MultivaluedMap<String, String> parameters,
                                 final Path filePath) throws IOException {
+        if (PoiExtractor.isStreaming(parameters))
+            return extractStreaming(parameters, filePath, DEFAULT_MIMETYPE, null);
         return ParserUtils.toBufferedStream(filePath, in -> extract(parameters, in, DEFAULT_MIMETYPE));
     }
+
+    /**
+     * The streaming mode: the records are read with the HSSF event model.
+     * The documents are pushed to the consumer one per sheet,
+     * or added to the returned result (one per sheet if requested, otherwise one for the whole workbook).
+     *
+     * @param consumer receives the documents, or null to add them to the returned result
+     */
+    private ParserResult extractStreaming(final MultivaluedMap<String, String> parameters,
+                                          final Path filePath,
+                                          final MediaType mimeType,
+                                          final DocumentConsumer consumer) throws IOException {
+        final ParserResult.Builder resultBuilder = ParserResult.of(NAME);
+        final ExtractionBudget budget = ExtractionBudget.of(parameters);
+        final ParserResult.FieldsBuilder metas = resultBuilder.metas();
+        if (mimeType != null)
+            metas.set(MIME_TYPE, mimeType.toString());
+        final boolean perSheet =
+                consumer != null || Boolean.parseBoolean(ParserUtils.getParameterValue(parameters, PER_SHEET, 0));
+        XlsStreamExtractor.extract(filePath, metas,
+                consumer == null ? DocumentEmitter.of(resultBuilder) : DocumentEmitter.of(NAME, consumer),
+                FieldProjection.of(parameters), budget, perSheet);
+        budget.markTruncated(metas);
+        return resultBuilder.build();
+    }
+
+    /**
+     * Streaming extraction: one document per sheet.
+     */
+    @Override
+    public ParserResult extract(final MultivaluedMap<String, String> parameters,
+                                final InputStream inputStream,
+                                final MediaType mimeType,
+                                final DocumentConsumer consumer) throws IOException {
+        if (PoiExtractor.isStreaming(parameters)) {
+            try (final Spool spool = SpoolStrategy.DEFAULT.spool(inputStream, ".xls")) {
+                return extractStreaming(parameters, spool.toPath(), mimeType, consumer);
+            }
+        }
+        final ParserResult.Builder resultBuilder = ParserResult.of(NAME);
+        final FieldProjection projection = FieldProjection.of(parameters);
+        final ExtractionBudget budget = ExtractionBudget.of(parameters);
+        final ParserResult.FieldsBuilder metas = resultBuilder.metas();
+        if (mimeType != null)
+            metas.set(MIME_TYPE, mimeType.toString());
+        if (PoiExtractor.isMetasOnly(projection)) {
+            PoiExtractor.extractMetas(PoiExtractor.readSummaryInformation(inputStream), metas);
+            return resultBuilder.build();
+        }
+        try (final HSSFWorkbook workbook = new HSSFWorkbook(inputStream)) {
+            PoiExtractor.extractMetas(workbook.getSummaryInformation(), metas);
+            PoiExtractor.extractSheets(workbook, DocumentEmitter.of(NAME, consumer), projection, budget);
+            budget.markTruncated(metas);
+        }
+        return resultBuilder.build();
+    }
+
+    @Override
+    public ParserResult extract(final MultivaluedMap<String, String> parameters,
+                                final Path filePath,
+                                final DocumentConsumer consumer) throws IOException {
+        if (PoiExtractor.isStreaming(parameters))
+            return extractStreaming(parameters, filePath, DEFAULT_MIMETYPE, consumer);
+        return ParserUtils.toBufferedStream(filePath, in -> extract(parameters, in, DEFAULT_MIMETYPE, consumer));
+    }
 }
@@ -0,0 +1,256 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.library.poi;
+
+import static com.qwazr.extractor.ParserInterface.CONTENT;
+import static com.qwazr.extractor.ParserInterface.LANG_DETECTION;
+import com.qwazr.extractor.ParserResult;
+import com.qwazr.extractor.ParserUtils;
+import com.qwazr.library.extractor.DocumentEmitter;
+import com.qwazr.library.extractor.ExtractionBudget;
+import com.qwazr.library.extractor.FieldProjection;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import javax.ws.rs.InternalServerErrorException;
+import org.apache.poi.hpsf.HPSFPropertiesOnlyDocument;
+import org.apache.poi.hssf.eventusermodel.AbortableHSSFListener;
+import org.apache.poi.hssf.eventusermodel.FormatTrackingHSSFListener;
+import org.apache.poi.hssf.eventusermodel.HSSFEventFactory;
+import org.apache.poi.hssf.eventusermodel.HSSFRequest;
+import org.apache.poi.hssf.eventusermodel.HSSFUserException;
+import org.apache.poi.hssf.record.BOFRecord;
+import org.apache.poi.hssf.record.BoolErrRecord;
+import org.apache.poi.hssf.record.BoundSheetRecord;
+import org.apache.poi.hssf.record.CellValueRecordInterface;
+import org.apache.poi.hssf.record.EOFRecord;
+import org.apache.poi.hssf.record.FormulaRecord;
+import org.apache.poi.hssf.record.LabelRecord;
+import org.apache.poi.hssf.record.LabelSSTRecord;
+import org.apache.poi.hssf.record.NumberRecord;
+import org.apache.poi.hssf.record.Record;
+import org.apache.poi.hssf.record.SSTRecord;
+import org.apache.poi.hssf.record.StringRecord;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.ss.usermodel.CellType;
+
+/**
+ * Extract the text of an XLS file with the HSSF event model: the records are read one by one,
+ * the workbook is never built in memory.
+ * <p>
+ * The layout is the same as {@link PoiExtractor#extractSheets}: the sheet name, then one line per row
+ * with the cells separated by tabs. The formulas are not evaluated, their cached results are used.
+ * The sheets are either emitted as one document each, or added to one document for the whole workbook.
+ */
+class XlsStreamExtractor extends AbortableHSSFListener {
+
+    private final DocumentEmitter emitter;
+    private final FieldProjection projection;
+    private final ExtractionBudget budget;
+    private final boolean perSheet;
+    private final FormatTrackingHSSFListener formatListener;
+
+    private final List<String> sheetNames;
+    private final StringBuilder line;
+    private SSTRecord sharedStrings;
+    private int sheetIndex;
+    private boolean inSheet;
+    private int currentRow;
+    private boolean waitingFormulaString;
+    private ParserResult.FieldsBuilder document;
+
+    private XlsStreamExtractor(final DocumentEmitter emitter,
+                               final FieldProjection projection,
+                               final ExtractionBudget budget,
+                               final boolean perSheet) {
+        this.emitter = emitter;
+        this.projection = projection;
+        this.budget = budget;
+        this.perSheet = perSheet;
+        this.formatListener = new FormatTrackingHSSFListener(record -> {
+        });
+        this.sheetNames = new ArrayList<>();
+        this.line = new StringBuilder();
+        this.sheetIndex = -1;
+        this.currentRow = -1;
+    }
+
+    /**
+     * @param file       the XLS file (read through a file channel, not loaded in memory)
+     * @param metas      receives the summary information
+     * @param emitter    receives the documents
+     * @param projection the requested fields
+     * @param budget     the budget of the extraction, checked before each row
+     * @param perSheet   true to emit one document per sheet, false for one document for the whole workbook
+     * @throws IOException if the file cannot be read or if the consumer failed
+     */
+    static void extract(final Path file,
+                        final ParserResult.FieldsBuilder metas,
+                        final DocumentEmitter emitter,
+                        final FieldProjection projection,
+                        final ExtractionBudget budget,
+                        final boolean perSheet) throws IOException {
+        try (final POIFSFileSystem fileSystem = new POIFSFileSystem(file.toFile(), true)) {
+            PoiExtractor.extractMetas(new HPSFPropertiesOnlyDocument(fileSystem).getSummaryInformation(), metas);
+            if (PoiExtractor.isMetasOnly(projection))
+                return;
+            final XlsStreamExtractor listener = new XlsStreamExtractor(emitter, projection, budget, perSheet);
+            final HSSFRequest request = new HSSFRequest();
+            request.addListenerForAllRecords(listener);
+            try {
+                new HSSFEventFactory().abortableProcessWorkbookEvents(request, fileSystem);
+                listener.finish();
+            } catch (HSSFUserException e) {
+                throw new InternalServerErrorException(e);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    @Override
+    public short abortableProcessRecord(final Record record) {
+        formatListener.processRecordInternally(record);
+        switch (record.getSid()) {
+        case BoundSheetRecord.sid:
+            sheetNames.add(((BoundSheetRecord) record).getSheetname());
+            break;
+        case SSTRecord.sid:
+            sharedStrings = (SSTRecord) record;
+            break;
+        case BOFRecord.sid:
+            if (((BOFRecord) record).getType() == BOFRecord.TYPE_WORKSHEET)
+                return startSheet();
+            break;
+        case EOFRecord.sid:
+            if (inSheet)
+                endSheet();
+            break;
+        case LabelSSTRecord.sid:
+            final LabelSSTRecord label = (LabelSSTRecord) record;
+            if (sharedStrings != null)
+                return addCell(label, sharedStrings.getString(label.getSSTIndex()).getString());
+            break;
+        case LabelRecord.sid:
+            final LabelRecord oldLabel = (LabelRecord) record;
+            return addCell(oldLabel, oldLabel.getValue());
+        case NumberRecord.sid:
+            final NumberRecord number = (NumberRecord) record;
+            return addCell(number, formatListener.formatNumberDateCell(number));
+        case BoolErrRecord.sid:
+            final BoolErrRecord boolErr = (BoolErrRecord) record;
+            if (boolErr.isBoolean())
+                return addCell(boolErr, Boolean.toString(boolErr.getBooleanValue()));
+            break;
+        case FormulaRecord.sid:
+            final FormulaRecord formula = (FormulaRecord) record;
+            if (formula.hasCachedResultString()) {
+                // The text is given by the next StringRecord
+                final short status = addCell(formula, null);
+                waitingFormulaString = true;
+                return status;
+            }
+            if (formula.getCachedResultType() == CellType.NUMERIC.getCode())
+                return addCell(formula, formatListener.formatNumberDateCell(formula));
+            if (formula.getCachedResultType() == CellType.BOOLEAN.getCode())
+                return addCell(formula, Boolean.toString(formula.getCachedBooleanValue()));
+            break;
+        case StringRecord.sid:
+            if (waitingFormulaString) {
+                line.append(((StringRecord) record).getString());
+                waitingFormulaString = false;
+            }
+            break;
+        default:
+            break;
+        }
+        return 0;
+    }
+
+    private short startSheet() {
+        if (budget.isExhausted())
+            return 1;
+        sheetIndex++;
+        inSheet = true;
+        currentRow = -1;
+        line.setLength(0);
+        if (perSheet || document == null)
+            document = emitter.newDocument();
+        if (sheetIndex < sheetNames.size())
+            document.add(CONTENT, sheetNames.get(sheetIndex));
+        return 0;
+    }
+
+    private void endSheet() {
+        flushLine();
+        inSheet = false;
+        if (perSheet)
+            completeDocument();
+    }
+
+    /**
+     * Append a cell to the current line. A new row flushes the previous line and checks the budget.
+     *
+     * @return 0 to continue, 1 to abort the extraction
+     */
+    private short addCell(final CellValueRecordInterface cell, final String text) {
+        waitingFormulaString = false;
+        if (!inSheet)
+            return 0;
+        if (cell.getRow() != currentRow) {
+            flushLine();
+            if (budget.isExhausted())
+                return 1;
+            currentRow = cell.getRow();
+        }
+        if (line.length() > 0)
+            line.append('\t');
+        if (text != null)
+            line.append(text);
+        return 0;
+    }
+
+    private void flushLine() {
+        if (line.length() > 0)
+            document.add(CONTENT, line.toString());
+        budget.addCharacters(line.length());
+        line.setLength(0);
+    }
+
+    private void completeDocument() {
+        if (document == null)
+            return;
+        if (projection.has(LANG_DETECTION))
+            document.add(LANG_DETECTION, ParserUtils.languageDetection(document, CONTENT, 10000));
+        document = null;
+        try {
+            emitter.complete();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Called after the last record, or after an abort: flush and complete the pending document
+     */
+    private void finish() {
+        if (inSheet)
+            flushLine();
+        completeDocument();
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2015-2020 Emmanuel Keller / QWAZR
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.qwazr.library.poi;
+
+import static com.qwazr.extractor.ParserInterface.CONTENT;
+import static com.qwazr.extractor.ParserInterface.LANG_DETECTION;
+import com.qwazr.extractor.ParserResult;
+import com.qwazr.extractor.ParserUtils;
+import com.qwazr.library.extractor.DocumentEmitter;
+import com.qwazr.library.extractor.ExtractionBudget;
+import com.qwazr.library.extractor.FieldProjection;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import javax.ws.rs.InternalServerErrorException;
+import javax.xml.parsers.ParserConfigurationException;
+import org.apache.poi.ooxml.POIXMLProperties;
+import org.apache.poi.ooxml.util.SAXHelper;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.apache.xmlbeans.XmlException;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+/**
+ * Extract the text of an XLSX file with the XSSF event model: the sheets are parsed one by one with SAX,
+ * only the shared strings and the styles are loaded in memory.
+ * <p>
+ * Each sheet is emitted as one document, with the same layout as {@link PoiExtractor#extractSheets}:
+ * the sheet name, then one line per row with the cells separated by tabs.
+ * The formulas are not evaluated, their cached results are used.
+ */
+class XlsxStreamExtractor {
+
+    /**
+     * @param file       the XLSX file (read through a zip file, not loaded in memory)
+     * @param metas      receives the core properties
+     * @param emitter    receives one document per sheet
+     * @param projection the requested fields
+     * @param budget     the budget of the extraction, checked before each row
+     * @throws IOException if the file cannot be read or if the consumer failed
+     */
+    static void extract(final Path file,
+                        final ParserResult.FieldsBuilder metas,
+                        final DocumentEmitter emitter,
+                        final FieldProjection projection,
+                        final ExtractionBudget budget) throws IOException {
+        final OPCPackage pkg;
+        try {
+            pkg = OPCPackage.open(file.toFile(), PackageAccess.READ);
+        } catch (OpenXML4JException e) {
+            throw new InternalServerErrorException(e);
+        }
+        try {
+            PoiExtractor.extractMetas(new POIXMLProperties(pkg).getCoreProperties(), metas);
+            if (PoiExtractor.isMetasOnly(projection))
+                return;
+            final XSSFReader reader = new XSSFReader(pkg);
+            final ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            final StylesTable styles = reader.getStylesTable();
+            final DataFormatter formatter = new DataFormatter();
+            final XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+            while (sheets.hasNext() && !budget.isExhausted()) {
+                try (final InputStream sheet = sheets.next()) {
+                    final ParserResult.FieldsBuilder document = emitter.newDocument();
+                    document.add(CONTENT, sheets.getSheetName());
+                    final XMLReader xmlReader = SAXHelper.newXMLReader();
+                    xmlReader.setContentHandler(new XSSFSheetXMLHandler(styles, null, strings,
+                            new RowHandler(document, budget), formatter, false));
+                    try {
+                        xmlReader.parse(new InputSource(sheet));
+                    } catch (ExtractionBudget.Exhausted e) {
+                        // The rows already extracted are kept
+                    }
+                    if (projection.has(LANG_DETECTION))
+                        document.add(LANG_DETECTION, ParserUtils.languageDetection(document, CONTENT, 10000));
+                    emitter.complete();
+                }
+            }
+        } catch (OpenXML4JException | XmlException | SAXException | ParserConfigurationException e) {
+            throw new InternalServerErrorException(e);
+        } finally {
+            pkg.revert();
+        }
+    }
+
+    /**
+     * Builds one line per row, the cells are separated by tabs
+     */
+    private static class RowHandler implements XSSFSheetXMLHandler.SheetContentsHandler {
+
+        private final ParserResult.FieldsBuilder document;
+        private final ExtractionBudget budget;
+        private final StringBuilder line;
+
+        private RowHandler(final ParserResult.FieldsBuilder document, final ExtractionBudget budget) {
+            this.document = document;
+            this.budget = budget;
+            this.line = new StringBuilder();
+        }
+
+        @Override
+        public void startRow(final int rowNum) {
+            budget.check();
+            line.setLength(0);
+        }
+
+        @Override
+        public void endRow(final int rowNum) {
+            if (line.length() > 0)
+                document.add(CONTENT, line.toString());
+            budget.addCharacters(line.length());
+        }
+
+        @Override
+        public void cell(final String cellReference, final String formattedValue, final XSSFComment comment) {
+            if (line.length() > 0)
+                line.append('\t');
+            if (formattedValue != null)
+                line.append(formattedValue);
+        }
+
+        @Override
+        public void headerFooter(final String text, final boolean isHeader, final String tagName) {
+        }
+    }
+}
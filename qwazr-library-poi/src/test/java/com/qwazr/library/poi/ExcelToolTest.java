@@ -18,11 +18,22 @@ package com.qwazr.library.poi;
 import com.qwazr.library.annotations.Library;
 import com.qwazr.library.test.AbstractLibraryTest;
 import com.qwazr.utils.IOUtils;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.junit.Assert;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Types;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public class ExcelToolTest extends AbstractLibraryTest {
 
@@ -38,4 +49,119 @@ public class ExcelToolTest extends AbstractLibraryTest {
 		}
 	}
 
+	@Test
+	public void testStylesAndColumnWriters() throws IOException, SQLException {
+		try (final ExcelBuilder excelBuilder = new ExcelBuilder(true)) {
+			excelBuilder.setDefaultNumberFormat("0.00");
+			excelBuilder.setDefaultDateFormat("yyyy-mm-dd");
+			Assert.assertSame(excelBuilder.getStyles().getStyle("0.00"), excelBuilder.getStyles().getStyle("0.00"));
+			Assert.assertEquals(excelBuilder.getFormat("0.00"), excelBuilder.getFormat("0.00"));
+			Assert.assertEquals(2, excelBuilder.getStyles().getStyleCount());
+
+			// A ResultSet positioned on a row holding 12.5 and "text"
+			final ResultSet resultSet = (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(),
+					new Class<?>[] { ResultSet.class }, (proxy, method, args) -> {
+						switch (method.getName()) {
+						case "getDouble":
+							return 12.5d;
+						case "getString":
+							return "text";
+						case "wasNull":
+							return false;
+						default:
+							throw new UnsupportedOperationException(method.getName());
+						}
+					});
+			excelBuilder.activeSheetAndSetPos("sheet", 0, 0);
+			final Row row = excelBuilder.addRow();
+			excelBuilder.getColumnWriter(Types.DECIMAL).write(row, 0, resultSet, 1);
+			excelBuilder.getColumnWriter(Types.VARCHAR).write(row, 1, resultSet, 2);
+			Assert.assertEquals(12.5d, row.getCell(0).getNumericCellValue(), 0);
+			Assert.assertSame(excelBuilder.getStyles().getStyle("0.00"), row.getCell(0).getCellStyle());
+			Assert.assertEquals("text", row.getCell(1).getStringCellValue());
+
+			// A number added without a number format keeps its numeric type
+			excelBuilder.setDefaultNumberFormat(null);
+			excelBuilder.addOneCell(3);
+			Assert.assertEquals(3d, row.getCell(0).getNumericCellValue(), 0);
+		}
+	}
+
+	@Test
+	public void testParallelSheets() throws IOException {
+		final Path file = Files.createTempFile("excel-parallel", ".xlsx");
+		try {
+			try (final ExcelBuilder excelBuilder = new ExcelBuilder(100, false)) {
+				final Map<String, ExcelBuilder.SheetFiller> fillers = new LinkedHashMap<>();
+				for (int s = 0; s < 4; s++) {
+					final String sheetName = "region" + s;
+					fillers.put(sheetName, sheetBuilder -> {
+						for (int i = 0; i < 2000; i++) {
+							sheetBuilder.addRow();
+							sheetBuilder.addCell(sheetName, i);
+						}
+					});
+				}
+				excelBuilder.fillSheets(fillers, 4);
+				excelBuilder.saveFile(file.toFile());
+			}
+			try (final XSSFWorkbook workbook = new XSSFWorkbook(file.toFile())) {
+				Assert.assertEquals(4, workbook.getNumberOfSheets());
+				for (int s = 0; s < 4; s++) {
+					final Sheet sheet = workbook.getSheetAt(s);
+					Assert.assertEquals("region" + s, sheet.getSheetName());
+					Assert.assertEquals(1999, sheet.getLastRowNum());
+					Assert.assertEquals("region" + s, sheet.getRow(1999).getCell(0).getStringCellValue());
+					Assert.assertEquals(1999d, sheet.getRow(1999).getCell(1).getNumericCellValue(), 0);
+				}
+			}
+		} catch (InvalidFormatException e) {
+			throw new IOException(e);
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	@Test
+	public void testParallelSheetsFailure() throws IOException {
+		try (final ExcelBuilder excelBuilder = new ExcelBuilder(100, false)) {
+			final Map<String, ExcelBuilder.SheetFiller> fillers = new LinkedHashMap<>();
+			fillers.put("ok", sheetBuilder -> sheetBuilder.addRow());
+			fillers.put("ko", sheetBuilder -> {
+				throw new SQLException("query failed");
+			});
+			try {
+				excelBuilder.fillSheets(fillers, 2);
+				Assert.fail("The failure of the sheet should be thrown");
+			} catch (IOException e) {
+				Assert.assertTrue(e.getCause() instanceof SQLException);
+			}
+		}
+	}
+
+	@Test
+	public void testStreaming() throws IOException {
+		final Path file = Files.createTempFile("excel-streaming", ".xlsx");
+		try {
+			try (final ExcelBuilder excelBuilder = new ExcelBuilder(100, true)) {
+				Assert.assertTrue(excelBuilder.isStreaming());
+				excelBuilder.activeSheetAndSetPos("sheet", 0, 0);
+				for (int i = 0; i < 5000; i++) {
+					excelBuilder.addRow();
+					excelBuilder.addCell("row" + i);
+				}
+				excelBuilder.saveFile(file.toFile());
+			}
+			try (final XSSFWorkbook workbook = new XSSFWorkbook(file.toFile())) {
+				final Sheet sheet = workbook.getSheet("sheet");
+				Assert.assertEquals(4999, sheet.getLastRowNum());
+				Assert.assertEquals("row4999", sheet.getRow(4999).getCell(0).getStringCellValue());
+			}
+		} catch (InvalidFormatException e) {
+			throw new IOException(e);
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
 }
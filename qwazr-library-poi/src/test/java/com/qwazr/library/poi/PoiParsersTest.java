@@ -16,8 +16,18 @@
 package com.qwazr.library.poi;
 
 import com.qwazr.extractor.ExtractorManager;
+import com.qwazr.extractor.ParserInterface;
+import com.qwazr.extractor.ParserResult;
 import com.qwazr.extractor.ParserTest;
+import com.qwazr.library.extractor.ExtractionBudget;
+import com.qwazr.library.extractor.FieldProjection;
+import com.qwazr.utils.ObjectMappers;
+import java.util.ArrayList;
+import java.util.List;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
@@ -79,4 +89,86 @@ public class PoiParsersTest extends ParserTest {
                 "content", DEFAULT_TEST_STRING);
     }
 
+    @Test
+    public void testXlsxStreaming() throws Exception {
+        final MediaType mediaType =
+                MediaType.valueOf("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+        final MultivaluedMap<String, String> map = new MultivaluedHashMap<>();
+        map.add(PoiExtractor.STREAMING.name, "true");
+        final ParserResult result = new XlsxParser().extract(map, getStream("file.xlsx"), mediaType);
+        final String json = ObjectMappers.JSON.writeValueAsString(result);
+        Assert.assertTrue(json.contains(DEFAULT_TEST_STRING));
+        Assert.assertTrue(json.contains(mediaType.toString()));
+
+        // One document per sheet is pushed to the consumer
+        final List<ParserResult> documents = new ArrayList<>();
+        new XlsxParser().extract(map, getStream("file.xlsx"), mediaType, documents::add);
+        Assert.assertFalse(documents.isEmpty());
+        Assert.assertTrue(ObjectMappers.JSON.writeValueAsString(documents).contains(DEFAULT_TEST_STRING));
+    }
+
+    @Test
+    public void testXlsStreaming() throws Exception {
+        final MediaType mediaType = MediaType.valueOf("application/vnd.ms-excel");
+        for (final String perSheet : new String[] { "false", "true" }) {
+            final MultivaluedMap<String, String> map = new MultivaluedHashMap<>();
+            map.add(PoiExtractor.STREAMING.name, "true");
+            map.add(PoiExtractor.PER_SHEET.name, perSheet);
+            final ParserResult result = new XlsParser().extract(map, getStream("file.xls"), mediaType);
+            final String json = ObjectMappers.JSON.writeValueAsString(result);
+            Assert.assertTrue(perSheet, json.contains(DEFAULT_TEST_STRING));
+            Assert.assertTrue(perSheet, json.contains(mediaType.toString()));
+        }
+
+        // One document per sheet is pushed to the consumer
+        final MultivaluedMap<String, String> map = new MultivaluedHashMap<>();
+        map.add(PoiExtractor.STREAMING.name, "true");
+        final List<ParserResult> documents = new ArrayList<>();
+        new XlsParser().extract(map, getStream("file.xls"), mediaType, documents::add);
+        Assert.assertFalse(documents.isEmpty());
+        Assert.assertTrue(ObjectMappers.JSON.writeValueAsString(documents).contains(DEFAULT_TEST_STRING));
+    }
+
+    private void testMaxCharacters(final ParserInterface parser, final String fileName, final MediaType mediaType)
+            throws Exception {
+        final MultivaluedMap<String, String> map = new MultivaluedHashMap<>();
+        map.add(ExtractionBudget.MAX_CHARACTERS.name, "5");
+        final ParserResult result = parser.extract(map, getStream(fileName), mediaType);
+        final String json = ObjectMappers.JSON.writeValueAsString(result);
+        Assert.assertTrue(fileName, json.contains("\"truncated\""));
+        Assert.assertFalse(fileName, json.contains(DEFAULT_TEST_STRING));
+    }
+
+    /**
+     * The whole text is extracted in one call, it is cut to the budget
+     */
+    @Test
+    public void testMaxCharacters() throws Exception {
+        testMaxCharacters(new DocxParser(), "file.docx",
+                MediaType.valueOf("application/vnd.openxmlformats-officedocument.wordprocessingml.document"));
+        testMaxCharacters(new PptParser(), "file.ppt", MediaType.valueOf("application/vnd.ms-powerpoint"));
+        testMaxCharacters(new PptxParser(), "file.pptx",
+                MediaType.valueOf("application/vnd.openxmlformats-officedocument.presentationml.presentation"));
+    }
+
+    private void testMetasOnly(final ParserInterface parser, final String fileName, final MediaType mediaType)
+            throws Exception {
+        final MultivaluedMap<String, String> map = new MultivaluedHashMap<>();
+        map.add(FieldProjection.PARAMETER.name, "title,mime_type");
+        final ParserResult result = parser.extract(map, getStream(fileName), mediaType);
+        final String json = ObjectMappers.JSON.writeValueAsString(result);
+        Assert.assertTrue(json.contains(mediaType.toString()));
+        Assert.assertFalse(json.contains("\"content\""));
+    }
+
+    @Test
+    public void testMetasOnly() throws Exception {
+        testMetasOnly(new DocParser(), "file.doc", MediaType.valueOf("application/msword"));
+        testMetasOnly(new DocxParser(), "file.docx",
+                MediaType.valueOf("application/vnd.openxmlformats-officedocument.wordprocessingml.document"));
+        testMetasOnly(new XlsParser(), "file.xls", MediaType.valueOf("application/vnd.ms-excel"));
+        testMetasOnly(new XlsxParser(), "file.xlsx",
+                MediaType.valueOf("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"));
+    }
+
 }
@@ -20,6 +20,10 @@ import com.qwazr.extractor.ParserField;
 import com.qwazr.extractor.ParserInterface;
 import com.qwazr.extractor.ParserResult;
 import com.qwazr.extractor.ParserUtils;
+import com.qwazr.library.extractor.DocumentConsumer;
+import com.qwazr.library.extractor.DocumentEmitter;
+import com.qwazr.library.extractor.FieldProjection;
+import com.qwazr.library.extractor.StreamingParser;
 import static com.qwazr.extractor.ParserUtils.languageDetection;
 import com.rometools.rome.feed.synd.SyndCategory;
 import com.rometools.rome.feed.synd.SyndContent;
@@ -36,11 +40,12 @@ import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.ListIterator;
 import javax.ws.rs.InternalServerErrorException;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedMap;
 
-public class RssParser implements ParserFactory, ParserInterface {
+public class RssParser implements ParserFactory, ParserInterface, StreamingParser {
 
     private static final String NAME = "rss";
 
@@ -121,11 +126,30 @@ public class RssParser implements ParserFactory, ParserInterface {
             ATOM_UPDATED_DATE,
             LANG_DETECTION);
 
+    final private static Collection<ParserField> ENTRY_FIELDS = List.of(ATOM_TITLE,
+            ATOM_LINK,
+            ATOM_DESCRIPTION,
+            ATOM_CATEGORY,
+            ATOM_AUTHOR_NAME,
+            ATOM_AUTHOR_EMAIL,
+            ATOM_CONTRIBUTOR_NAME,
+            ATOM_CONTRIBUTOR_EMAIL,
+            ATOM_PUBLISHED_DATE,
+            ATOM_UPDATED_DATE,
+            LANG_DETECTION);
+
+    final private static Collection<ParserField> PARAMETERS = List.of(FieldProjection.PARAMETER);
+
     @Override
     public Collection<ParserField> getFields() {
         return FIELDS;
     }
 
+    @Override
+    public Collection<ParserField> getParameters() {
+        return PARAMETERS;
+    }
+
     @Override
     public Collection<String> getSupportedFileExtensions() {
         return DEFAULT_EXTENSIONS;
@@ -183,12 +207,13 @@ public class RssParser implements ParserFactory, ParserInterface {
         result.add(atomDescription, value);
     }
 
-    @Override
-    public ParserResult extract(final MultivaluedMap<String, String> parameters,
-                                final InputStream inputStream,
-                                final MediaType mediaType) throws IOException {
+    private ParserResult extract(final MultivaluedMap<String, String> parameters,
+                                 final InputStream inputStream,
+                                 final MediaType mediaType,
+                                 final ParserResult.Builder builder,
+                                 final DocumentEmitter emitter) throws IOException {
 
-        final ParserResult.Builder builder = ParserResult.of(NAME);
+        final FieldProjection projection = FieldProjection.of(parameters);
         final SyndFeedInput input = new SyndFeedInput();
         try (final XmlReader reader = new XmlReader(inputStream)) {
             SyndFeed feed = input.build(reader);
@@ -208,12 +233,16 @@ public class RssParser implements ParserFactory, ParserInterface {
             metas.add(CHANNEL_PUBLISHED_DATE, feed.getPublishedDate());
 
             List<SyndEntry> entries = feed.getEntries();
-            if (entries == null)
+            if (entries == null || !projection.hasAny(ENTRY_FIELDS))
                 return builder.build();
 
-            for (SyndEntry entry : entries) {
+            // Each entry is released as soon as its document is emitted
+            final ListIterator<SyndEntry> iterator = entries.listIterator();
+            while (iterator.hasNext()) {
 
-                final ParserResult.FieldsBuilder result = builder.newDocument();
+                final SyndEntry entry = iterator.next();
+                iterator.set(null);
+                final ParserResult.FieldsBuilder result = emitter.newDocument();
 
                 result.add(ATOM_TITLE, entry.getTitle());
                 addContent(ATOM_DESCRIPTION, entry.getDescription(), result);
@@ -225,7 +254,9 @@ public class RssParser implements ParserFactory, ParserInterface {
                 result.add(ATOM_PUBLISHED_DATE, entry.getPublishedDate());
                 result.add(ATOM_UPDATED_DATE, entry.getUpdatedDate());
                 // Apply the language detection
-                result.add(LANG_DETECTION, languageDetection(result, ATOM_DESCRIPTION, 10000));
+                if (projection.has(LANG_DETECTION))
+                    result.add(LANG_DETECTION, languageDetection(result, ATOM_DESCRIPTION, 10000));
+                emitter.complete();
             }
         } catch (FeedException e) {
             throw new InternalServerErrorException(e);
@@ -233,10 +264,33 @@ public class RssParser implements ParserFactory, ParserInterface {
         return builder.build();
     }
 
+    @Override
+    public ParserResult extract(final MultivaluedMap<String, String> parameters,
+                                final InputStream inputStream,
+                                final MediaType mediaType) throws IOException {
+        final ParserResult.Builder builder = ParserResult.of(NAME);
+        return extract(parameters, inputStream, mediaType, builder, DocumentEmitter.of(builder));
+    }
+
     @Override
     public ParserResult extract(final MultivaluedMap<String, String> parameters,
                                 final Path filePath) throws IOException {
         return ParserUtils.toBufferedStream(filePath, in -> extract(parameters, in, DEFAULT_MIMETYPE));
     }
 
+    @Override
+    public ParserResult extract(final MultivaluedMap<String, String> parameters,
+                                final InputStream inputStream,
+                                final MediaType mediaType,
+                                final DocumentConsumer consumer) throws IOException {
+        return extract(parameters, inputStream, mediaType, ParserResult.of(NAME), DocumentEmitter.of(NAME, consumer));
+    }
+
+    @Override
+    public ParserResult extract(final MultivaluedMap<String, String> parameters,
+                                final Path filePath,
+                                final DocumentConsumer consumer) throws IOException {
+        return ParserUtils.toBufferedStream(filePath, in -> extract(parameters, in, DEFAULT_MIMETYPE, consumer));
+    }
+
 }
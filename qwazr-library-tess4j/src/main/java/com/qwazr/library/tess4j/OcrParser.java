@@ -20,26 +20,41 @@ import com.qwazr.extractor.ParserField;
 import com.qwazr.extractor.ParserInterface;
 import com.qwazr.extractor.ParserResult;
 import com.qwazr.extractor.ParserUtils;
-import com.qwazr.utils.AutoCloseWrapper;
+import com.qwazr.library.extractor.ExtractionBudget;
+import com.qwazr.library.extractor.FieldProjection;
+import com.qwazr.library.extractor.ImageOcr;
+import com.qwazr.library.extractor.Spool;
+import com.qwazr.library.extractor.SpoolStrategy;
 import com.qwazr.utils.LoggerUtils;
 import com.qwazr.utils.StringUtils;
+import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.logging.Logger;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
 import javax.ws.rs.BadRequestException;
 import javax.ws.rs.InternalServerErrorException;
+import javax.ws.rs.NotSupportedException;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedMap;
 import net.sourceforge.tess4j.Tesseract1;
 import net.sourceforge.tess4j.TesseractException;
+import net.sourceforge.tess4j.util.ImageIOHelper;
 
-public class OcrParser implements ParserFactory, ParserInterface {
+public class OcrParser implements ParserFactory, ParserInterface, ImageOcr {
 
     private static final Logger LOGGER = LoggerUtils.getLogger(OcrParser.class);
 
@@ -84,7 +99,8 @@ public class OcrParser implements ParserFactory, ParserInterface {
                     "uig (Uighur; Uyghur) ukr (Ukrainian) urd (Urdu) uzb (Uzbek) uzb_cyrl (Uzbek - Cyrilic) " +
                     "vie (Vietnamese) yid (Yiddish)");
 
-    final private static List<ParserField> PARAMETERS = List.of(LANGUAGE);
+    final private static List<ParserField> PARAMETERS = List.of(LANGUAGE, FieldProjection.PARAMETER,
+            ExtractionBudget.TIMEOUT_MS, ExtractionBudget.MAX_CHARACTERS);
 
     @Override
     public Collection<ParserField> getParameters() {
@@ -146,28 +162,83 @@ public class OcrParser implements ParserFactory, ParserInterface {
         LOGGER.info(() -> "TESSDATA_PREFIX sets to: " + TESSDATA_PREFIX);
     }
 
-    @Override
-    public ParserResult extract(final MultivaluedMap<String, String> parameters,
-                                final Path filePath) {
-        final ParserResult.Builder builder = ParserResult.of(NAME);
+    private static Tesseract1 newTesseract(final String language) {
         final Tesseract1 tesseract = new Tesseract1();
-        final String lang = ParserUtils.getParameterValue(parameters, LANGUAGE, 0);
-        if (lang != null)
-            tesseract.setLanguage(lang);
+        if (language != null)
+            tesseract.setLanguage(language);
         if (TESSDATA_PREFIX != null)
             tesseract.setDatapath(TESSDATA_PREFIX);
-        final String result;
+        return tesseract;
+    }
+
+    @Override
+    public String recognize(final BufferedImage image, final String language) throws IOException {
         try {
-            result = tesseract.doOCR(filePath.toFile());
+            return newTesseract(language).doOCR(image);
+        } catch (TesseractException e) {
+            throw new IOException("A Tesseract error occurred: " + e.getMessage(), e);
+        }
+    }
+
+    private ParserResult recognizeImages(final MultivaluedMap<String, String> parameters,
+                                         final List<IIOImage> images) {
+        final ParserResult.Builder builder = ParserResult.of(NAME);
+        final ExtractionBudget budget = ExtractionBudget.of(parameters);
+        final Tesseract1 tesseract = newTesseract(ParserUtils.getParameterValue(parameters, LANGUAGE, 0));
+        // The images (or the pages of a TIFF or a PDF) are recognized one by one,
+        // the budget is checked between two images
+        final StringBuilder result = new StringBuilder();
+        try {
+            for (final IIOImage image : images) {
+                if (budget.isExhausted())
+                    break;
+                final String text = tesseract.doOCR(Collections.singletonList(image), null);
+                if (text != null) {
+                    result.append(text);
+                    budget.addCharacters(text.length());
+                }
+            }
         } catch (TesseractException e) {
             throw new InternalServerErrorException("A Tesseract error occurred: " + e.getMessage(), e);
         }
+        budget.markTruncated(builder.metas());
         if (!StringUtils.isEmpty(result)) {
-            builder.newDocument().add(CONTENT, result);
+            builder.newDocument().add(CONTENT, result.toString());
         }
         return builder.build();
     }
 
+    /**
+     * Decode all the images of the stream (ie: the pages of a TIFF) without any temporary file.
+     */
+    private static List<IIOImage> readImages(final InputStream inputStream) throws IOException {
+        try (final ImageInputStream imageInput = new MemoryCacheImageInputStream(inputStream)) {
+            final Iterator<ImageReader> readers = ImageIO.getImageReaders(imageInput);
+            if (!readers.hasNext())
+                throw new NotSupportedException("No image reader found");
+            final ImageReader reader = readers.next();
+            try {
+                reader.setInput(imageInput);
+                final int count = reader.getNumImages(true);
+                final List<IIOImage> images = new ArrayList<>(count);
+                for (int i = 0; i < count; i++)
+                    images.add(reader.readAll(i, reader.getDefaultReadParam()));
+                return images;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    @Override
+    public ParserResult extract(final MultivaluedMap<String, String> parameters,
+                                final Path filePath) throws IOException {
+        // The OCR only produces the content
+        if (!FieldProjection.of(parameters).has(CONTENT))
+            return ParserResult.of(NAME).build();
+        return recognizeImages(parameters, ImageIOHelper.getIIOImageList(filePath.toFile()));
+    }
+
     @Override
     public ParserResult extract(final MultivaluedMap<String, String> parameters,
                                 final InputStream inputStream,
@@ -175,9 +246,13 @@ public class OcrParser implements ParserFactory, ParserInterface {
         final String extension = MIMEMAP.get(mediaType);
         if (extension == null)
             throw new BadRequestException("The mime-type is not supported: " + mediaType);
-        try (final AutoCloseWrapper<Path> a = AutoCloseWrapper.of(
-                ParserUtils.createTempFile(inputStream, "." + extension), LOGGER, Files::deleteIfExists)) {
-            return extract(parameters, a.get());
+        if (!FieldProjection.of(parameters).has(CONTENT))
+            return ParserResult.of(NAME).build();
+        try (final Spool spool = SpoolStrategy.DEFAULT.spool(inputStream, "." + extension)) {
+            // The small images are decoded from memory. Tess4J converts the PDF documents from a file.
+            if (spool.isInMemory() && !"pdf".equals(extension))
+                return recognizeImages(parameters, readImages(spool.getInputStream()));
+            return recognizeImages(parameters, ImageIOHelper.getIIOImageList(spool.toPath().toFile()));
         }
     }
 
@@ -20,10 +20,13 @@ import com.qwazr.extractor.ParserField;
 import com.qwazr.extractor.ParserInterface;
 import com.qwazr.extractor.ParserResult;
 import com.qwazr.extractor.ParserUtils;
+import com.qwazr.library.extractor.ExtractionBudget;
+import com.qwazr.library.extractor.FieldProjection;
+import com.qwazr.library.extractor.Spool;
+import com.qwazr.library.extractor.SpoolStrategy;
 import com.qwazr.library.html.HtmlParser;
 import com.qwazr.utils.AutoCloseWrapper;
 import com.qwazr.utils.HtmlUtils;
-import com.qwazr.utils.IOUtils;
 import com.qwazr.utils.LoggerUtils;
 import java.io.BufferedReader;
 import java.io.IOException;
@@ -33,11 +36,12 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 import javax.ws.rs.InternalServerErrorException;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedMap;
-import org.apache.xerces.parsers.DOMParser;
+import org.w3c.dom.Document;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 
@@ -61,11 +65,19 @@ public class WpdParser implements ParserFactory, ParserInterface {
     final private static Collection<ParserField> FIELDS = List.of(
             TITLE, CONTENT, LANG_DETECTION);
 
+    final private static Collection<ParserField> PARAMETERS = List.of(FieldProjection.PARAMETER,
+            ExtractionBudget.TIMEOUT_MS, ExtractionBudget.MAX_CHARACTERS);
+
     @Override
     public Collection<ParserField> getFields() {
         return FIELDS;
     }
 
+    @Override
+    public Collection<ParserField> getParameters() {
+        return PARAMETERS;
+    }
+
     @Override
     public String getName() {
         return NAME;
@@ -88,54 +100,115 @@ public class WpdParser implements ParserFactory, ParserInterface {
 
     public ParserResult parseContent(final Path path,
                                      final MediaType mimeType) throws IOException {
+        return parseContent(path, mimeType, FieldProjection.ALL, ExtractionBudget.of(0, 0));
+    }
+
+    /**
+     * Convert the document to HTML using the wpd2html command, then extract the text.
+     * The command is killed if the budget expires: the result is empty and marked as truncated.
+     *
+     * @param path       the document
+     * @param mimeType   the media type of the document, may be null
+     * @param projection the requested fields
+     * @param budget     the budget of the extraction
+     * @return the result
+     * @throws IOException if the command failed
+     */
+    public ParserResult parseContent(final Path path,
+                                     final MediaType mimeType,
+                                     final FieldProjection projection,
+                                     final ExtractionBudget budget) throws IOException {
         final ParserResult.Builder resultBuilder = ParserResult.of(NAME);
-        try (final AutoCloseWrapper<Path> a = AutoCloseWrapper.of(Files.createTempFile("wpdparser", ".html"), LOGGER,
+        // Without text field, there is no need to run the conversion command
+        if (!projection.hasAny(CONTENT, LANG_DETECTION)) {
+            if (mimeType != null)
+                resultBuilder.metas().set(MIME_TYPE, mimeType.toString());
+            return resultBuilder.build();
+        }
+        try (final AutoCloseWrapper<Path> a = AutoCloseWrapper.of(SpoolStrategy.DEFAULT.createFile(".html"), LOGGER,
                 Files::deleteIfExists)) {
             final Path htmlFile = a.get();
             final ProcessBuilder builder = new ProcessBuilder().directory(path.getParent().toFile())
                     .command(CMD_NAME, path.getFileName().toString())
                     .redirectError(ProcessBuilder.Redirect.INHERIT)
                     .redirectOutput(htmlFile.toFile());
-            final Process process = builder.start();
-            final int resultCode = process.waitFor();
-            if (resultCode != 0)
-                throw new IOException("The command " + CMD_NAME + " failed with error code: " + resultCode);
-
             final ParserResult.FieldsBuilder metas = resultBuilder.metas();
             if (mimeType != null)
                 metas.set(MIME_TYPE, mimeType.toString());
 
+            final Process process = builder.start();
+            if (!waitFor(process, budget)) {
+                budget.markTruncated(metas);
+                return resultBuilder.build();
+            }
+            final int resultCode = process.exitValue();
+            if (resultCode != 0)
+                throw new IOException("The command " + CMD_NAME + " failed with error code: " + resultCode);
+
             final ParserResult.FieldsBuilder parserDocument = resultBuilder.newDocument();
 
-            final DOMParser htmlParser = HtmlParser.getThreadLocalDomParser();
             try (final BufferedReader reader = Files.newBufferedReader(htmlFile, StandardCharsets.UTF_8)) {
-                htmlParser.parse(new InputSource(reader));
-                HtmlUtils.domTextExtractor(htmlParser.getDocument(), text -> parserDocument.add(CONTENT, text));
-                parserDocument.add(LANG_DETECTION, ParserUtils.languageDetection(parserDocument, CONTENT, 10000));
+                final Document htmlDocument = HtmlParser.parseDocument(new InputSource(reader));
+                try {
+                    HtmlUtils.domTextExtractor(htmlDocument, text -> {
+                        budget.check();
+                        parserDocument.add(CONTENT, text);
+                        budget.addCharacters(text.length());
+                    });
+                } catch (ExtractionBudget.Exhausted e) {
+                    // The lines already extracted are kept
+                }
+                if (projection.has(LANG_DETECTION))
+                    parserDocument.add(LANG_DETECTION,
+                            ParserUtils.languageDetection(parserDocument, CONTENT, 10000));
+                budget.markTruncated(metas);
             }
-        } catch (InterruptedException | SAXException e) {
+        } catch (SAXException e) {
             throw new InternalServerErrorException(e);
         }
         return resultBuilder.build();
     }
 
+    /**
+     * Wait for the end of the process, until the deadline.
+     *
+     * @return true if the process terminated, false if it has been killed
+     */
+    private static boolean waitFor(final Process process, final ExtractionBudget budget) {
+        String reason;
+        try {
+            final long remainingMs = budget.getRemainingMs();
+            if (remainingMs == Long.MAX_VALUE) {
+                process.waitFor();
+                return true;
+            }
+            if (process.waitFor(remainingMs, TimeUnit.MILLISECONDS))
+                return true;
+            reason = ExtractionBudget.TIMEOUT;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            reason = ExtractionBudget.INTERRUPTED;
+        }
+        process.destroyForcibly();
+        budget.stop(reason);
+        return false;
+    }
+
     @Override
     public ParserResult extract(final MultivaluedMap<String, String> parameters,
                                 final InputStream inputStream,
                                 final MediaType mediaType) throws IOException {
-        try (final AutoCloseWrapper<Path> a = AutoCloseWrapper.of(
-                Files.createTempFile("wpdparser", ".wpd"), LOGGER,
-                Files::deleteIfExists)) {
-            final Path tmpFile = a.get();
-            IOUtils.copy(inputStream, tmpFile);
-            return parseContent(tmpFile, mediaType);
+        // The wpd2html command only reads files, they are written to the (RAM-backed) spool directory
+        try (final Spool spool = SpoolStrategy.DEFAULT.spool(inputStream, ".wpd")) {
+            return parseContent(spool.toPath(), mediaType, FieldProjection.of(parameters),
+                    ExtractionBudget.of(parameters));
         }
     }
 
     @Override
     public ParserResult extract(final MultivaluedMap<String, String> parameters,
                                 final Path filePath) throws IOException {
-        return parseContent(filePath, null);
+        return parseContent(filePath, null, FieldProjection.of(parameters), ExtractionBudget.of(parameters));
     }
 
 }